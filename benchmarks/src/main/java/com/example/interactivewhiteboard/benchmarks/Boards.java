@@ -0,0 +1,72 @@
+package com.example.interactivewhiteboard.benchmarks;
+
+import com.example.interactivewhiteboard.components.BoardModel;
+import com.example.interactivewhiteboard.components.BoardObject;
+import com.example.interactivewhiteboard.components.ShapeObject;
+import com.example.interactivewhiteboard.components.Stroke;
+import com.example.interactivewhiteboard.components.TextObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reproducible boards for the benchmarks: mostly short hand-drawn strokes
+ * spread over an area that grows with the object count, so the density
+ * stays about that of a busy lesson, plus some shapes and labels.
+ */
+final class Boards {
+    static final int POINTS_PER_STROKE = 40;
+
+    private Boards() {
+    }
+
+    /** Side of the square the objects are spread over. */
+    static double extent(int objects) {
+        return Math.sqrt(objects) * 60;
+    }
+
+    static List<BoardObject> objects(int count, long seed) {
+        Random random = new Random(seed);
+        double extent = extent(count);
+        List<BoardObject> objects = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            float x = (float) (random.nextDouble() * extent);
+            float y = (float) (random.nextDouble() * extent);
+            int color = 0xFF000000 | random.nextInt(0x1000000);
+            int kind = random.nextInt(20);
+            if (kind == 0) {
+                objects.add(new ShapeObject(id, (byte) random.nextInt(3), x, y,
+                        x + 20 + random.nextInt(200), y + 20 + random.nextInt(200), color, 2));
+            } else if (kind == 1) {
+                objects.add(new TextObject(id, "Label " + id, "Arial", 16 + random.nextInt(24), x, y, color));
+            } else {
+                objects.add(stroke(id, x, y, color, random));
+            }
+        }
+        return objects;
+    }
+
+    static BoardModel model(int count, long seed) {
+        BoardModel model = new BoardModel();
+        for (BoardObject object : objects(count, seed)) {
+            model.add(object);
+        }
+        return model;
+    }
+
+    // A random walk with some momentum, like a pen
+    private static Stroke stroke(long id, float x, float y, int color, Random random) {
+        float[] xs = new float[POINTS_PER_STROKE];
+        float[] ys = new float[POINTS_PER_STROKE];
+        double angle = random.nextDouble() * Math.PI * 2;
+        for (int i = 0; i < POINTS_PER_STROKE; i++) {
+            angle += (random.nextDouble() - 0.5) * 0.6;
+            x += (float) Math.cos(angle) * 3;
+            y += (float) Math.sin(angle) * 3;
+            xs[i] = x;
+            ys[i] = y;
+        }
+        return new Stroke(id, color, 2 + random.nextInt(6), 0, xs, ys);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.interactivewhiteboard.benchmarks;
+
+import com.example.interactivewhiteboard.batch.BoardRasterizer;
+import com.example.interactivewhiteboard.components.ImageObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Drawing image objects through the rasterizer's decoded-image cache: the
+ * same image over and over, and more distinct images than the cache holds
+ * in turn, so every draw decodes the file again. The canvas's
+ * {@code MediaManager} needs the FX toolkit, which JMH forks do not have.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ImageCacheBenchmark {
+    // Twice what the rasterizer keeps, so cycling through them always misses
+    private static final int DISTINCT_IMAGES = 64;
+
+    @Param({"256", "1024"})
+    int imageSize;
+
+    private BoardRasterizer rasterizer;
+    private Path directory;
+    private ImageObject[] images;
+    private BufferedImage target;
+    private Graphics2D g;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        rasterizer = new BoardRasterizer();
+        directory = Files.createTempDirectory("whiteboard-images");
+        images = new ImageObject[DISTINCT_IMAGES];
+        for (int i = 0; i < DISTINCT_IMAGES; i++) {
+            BufferedImage image = new BufferedImage(imageSize, imageSize, BufferedImage.TYPE_INT_RGB);
+            Graphics2D painter = image.createGraphics();
+            painter.setPaint(new GradientPaint(0, 0, new Color(i * 4, 80, 160), imageSize, imageSize, Color.WHITE));
+            painter.fillRect(0, 0, imageSize, imageSize);
+            painter.dispose();
+            Path file = directory.resolve("image" + i + ".png");
+            ImageIO.write(image, "png", file.toFile());
+            images[i] = new ImageObject(i + 1, file.toUri().toString(), 0, 0, 128, 128);
+        }
+        target = new BufferedImage(128, 128, BufferedImage.TYPE_INT_RGB);
+        g = target.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        g.dispose();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void hit() {
+        rasterizer.draw(g, images[0], Color.WHITE, 1);
+    }
+
+    @Benchmark
+    public void miss() {
+        rasterizer.draw(g, images[next++ % DISTINCT_IMAGES], Color.WHITE, 1);
+    }
+}
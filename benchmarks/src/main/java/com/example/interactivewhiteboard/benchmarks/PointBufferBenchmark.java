@@ -0,0 +1,69 @@
+package com.example.interactivewhiteboard.benchmarks;
+
+import com.example.interactivewhiteboard.components.DrawingTools;
+import com.example.interactivewhiteboard.components.PointBuffer;
+import com.example.interactivewhiteboard.components.StrokeSimplifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Stroke ingestion: pointer samples into a {@link PointBuffer}, raw and thinned as they arrive. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointBufferBenchmark {
+    @Param({"100", "1000", "10000"})
+    int samples;
+
+    private double[] xs, ys;
+    private final PointBuffer buffer = new PointBuffer();
+    private final StrokeSimplifier simplifier = new StrokeSimplifier();
+
+    @Setup
+    public void setUp() {
+        xs = new double[samples];
+        ys = new double[samples];
+        double x = 0, y = 0, angle = 0;
+        Random random = new Random(1);
+        for (int i = 0; i < samples; i++) {
+            angle += (random.nextDouble() - 0.5) * 0.3;
+            x += Math.cos(angle) * 2;
+            y += Math.sin(angle) * 2;
+            xs[i] = x;
+            ys[i] = y;
+        }
+    }
+
+    @Benchmark
+    public int append() {
+        buffer.clear();
+        for (int i = 0; i < samples; i++) {
+            buffer.add(xs[i], ys[i], 1.0, i * 8_000_000L);
+        }
+        return buffer.size();
+    }
+
+    @Benchmark
+    public int appendSimplified() {
+        simplifier.begin(buffer, xs[0], ys[0], 1.0, 0, DrawingTools.SIMPLIFY_TOLERANCE_PIXELS);
+        for (int i = 1; i < samples; i++) {
+            simplifier.add(xs[i], ys[i], 1.0, i * 8_000_000L);
+        }
+        simplifier.finish();
+        return buffer.size();
+    }
+}
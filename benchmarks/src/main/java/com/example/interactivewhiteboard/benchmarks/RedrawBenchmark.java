@@ -0,0 +1,92 @@
+package com.example.interactivewhiteboard.benchmarks;
+
+import com.example.interactivewhiteboard.batch.BoardRasterizer;
+import com.example.interactivewhiteboard.components.BoardModel;
+import com.example.interactivewhiteboard.components.BoardObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repainting a 1920x1080 view of the board, all of it or just a 256 pixel
+ * square as after a stroke is added. The canvas needs a running FX toolkit,
+ * which JMH forks do not have, so this goes through the Java2D rasterizer
+ * with the same query-then-draw loop as {@code BoardRenderer}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RedrawBenchmark {
+    private static final int WIDTH = 1920, HEIGHT = 1080, DIRTY = 256;
+
+    @Param({"1000", "10000", "100000"})
+    int objects;
+
+    private final BoardRasterizer rasterizer = new BoardRasterizer();
+    private BoardModel model;
+    private BufferedImage image;
+    private Graphics2D g;
+    private double viewX, viewY;
+
+    @Setup
+    public void setUp() {
+        model = Boards.model(objects, 42);
+        // Centre the view on the board
+        viewX = Boards.extent(objects) / 2 - WIDTH / 2.0;
+        viewY = Boards.extent(objects) / 2 - HEIGHT / 2.0;
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public int fullRedraw() {
+        return redraw(0, 0, WIDTH, HEIGHT);
+    }
+
+    @Benchmark
+    public int dirtyRegionRedraw() {
+        return redraw((WIDTH - DIRTY) / 2, (HEIGHT - DIRTY) / 2, DIRTY, DIRTY);
+    }
+
+    private int redraw(int x, int y, int width, int height) {
+        Graphics2D region = (Graphics2D) g.create();
+        try {
+            region.clipRect(x, y, width, height);
+            region.setColor(Color.WHITE);
+            region.fillRect(x, y, width, height);
+            region.translate(-viewX, -viewY);
+            int drawn = 0;
+            for (BoardObject object : model.query(viewX + x, viewY + y, viewX + x + width, viewY + y + height)) {
+                rasterizer.draw(region, object, Color.WHITE, 1);
+                drawn++;
+            }
+            return drawn;
+        } finally {
+            region.dispose();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.interactivewhiteboard.benchmarks;
+
+import com.example.interactivewhiteboard.components.BoardMetadata;
+import com.example.interactivewhiteboard.components.BoardObject;
+import com.example.interactivewhiteboard.components.FileManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** The board file format in memory: encoding as saving does, decoding as loading does, and both. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int objects;
+
+    @Param({"true", "false"})
+    boolean compress;
+
+    private List<BoardObject> board;
+    private byte[] encoded;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() throws IOException {
+        board = Boards.objects(objects, 42);
+        out = new ByteArrayOutputStream();
+        FileManager.write(out, BoardMetadata.DEFAULT, board, compress);
+        encoded = out.toByteArray();
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        out.reset();
+        FileManager.write(out, BoardMetadata.DEFAULT, board, compress);
+        return out.size();
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) throws IOException {
+        FileManager.read(new ByteArrayInputStream(encoded), blackhole::consume);
+    }
+
+    @Benchmark
+    public void roundTrip(Blackhole blackhole) throws IOException {
+        out.reset();
+        FileManager.write(out, BoardMetadata.DEFAULT, board, compress);
+        FileManager.read(new ByteArrayInputStream(out.toByteArray()), blackhole::consume);
+    }
+}
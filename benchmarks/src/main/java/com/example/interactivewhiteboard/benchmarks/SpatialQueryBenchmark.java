@@ -0,0 +1,66 @@
+package com.example.interactivewhiteboard.benchmarks;
+
+import com.example.interactivewhiteboard.components.BoardModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** {@link BoardModel} lookups: a screenful of objects for repainting, and the object under the pointer. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialQueryBenchmark {
+    private static final int POSITIONS = 1024;
+
+    @Param({"1000", "10000", "100000"})
+    int objects;
+
+    private BoardModel model;
+    private double[] xs, ys;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        model = Boards.model(objects, 42);
+        double extent = Boards.extent(objects);
+        Random random = new Random(7);
+        xs = new double[POSITIONS];
+        ys = new double[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            xs[i] = random.nextDouble() * extent;
+            ys[i] = random.nextDouble() * extent;
+        }
+    }
+
+    @Benchmark
+    public int queryViewport() {
+        int i = next++ & (POSITIONS - 1);
+        return model.query(xs[i], ys[i], xs[i] + 1920, ys[i] + 1080).size();
+    }
+
+    @Benchmark
+    public int queryDirtyRegion() {
+        int i = next++ & (POSITIONS - 1);
+        return model.query(xs[i], ys[i], xs[i] + 64, ys[i] + 64).size();
+    }
+
+    @Benchmark
+    public Object hitTest() {
+        int i = next++ & (POSITIONS - 1);
+        return model.hitTest(xs[i], ys[i], 4);
+    }
+}
@@ -1,22 +1,67 @@
 package com.example.interactivewhiteboard;
 
+import com.example.interactivewhiteboard.batch.PosterRenderer;
+import com.example.interactivewhiteboard.collab.CollabProtocol;
+import com.example.interactivewhiteboard.collab.CollabSession;
+import com.example.interactivewhiteboard.components.AutosaveService;
+import com.example.interactivewhiteboard.components.BoardEdit;
+import com.example.interactivewhiteboard.components.BoardMetadata;
+import com.example.interactivewhiteboard.components.BoardModel;
+import com.example.interactivewhiteboard.components.BoardObject;
+import com.example.interactivewhiteboard.components.BoardRenderer;
+import com.example.interactivewhiteboard.components.DocumentService;
+import com.example.interactivewhiteboard.components.DrawingTools;
+import com.example.interactivewhiteboard.components.ExportService;
+import com.example.interactivewhiteboard.components.FileManager;
+import com.example.interactivewhiteboard.components.FrameMetrics;
+import com.example.interactivewhiteboard.components.ImageObject;
+import com.example.interactivewhiteboard.components.LazyBoardLoader;
+import com.example.interactivewhiteboard.components.MappedBoard;
+import com.example.interactivewhiteboard.components.MetricsExporter;
+import com.example.interactivewhiteboard.components.ObjectEraser;
+import com.example.interactivewhiteboard.components.OverlayLayer;
+import com.example.interactivewhiteboard.components.PanZoomHandler;
+import com.example.interactivewhiteboard.components.PointBuffer;
+import com.example.interactivewhiteboard.components.PointerQueue;
+import com.example.interactivewhiteboard.components.ReplayEngine;
+import com.example.interactivewhiteboard.components.SessionJournal;
+import com.example.interactivewhiteboard.components.SessionRecording;
+import com.example.interactivewhiteboard.components.ShapeObject;
+import com.example.interactivewhiteboard.components.Stroke;
+import com.example.interactivewhiteboard.components.StrokeSimplifier;
+import com.example.interactivewhiteboard.components.TextLayout;
+import com.example.interactivewhiteboard.components.TextObject;
+import com.example.interactivewhiteboard.components.UndoManager;
+import com.example.interactivewhiteboard.components.Viewport;
+import com.example.interactivewhiteboard.workspace.Page;
+import com.example.interactivewhiteboard.workspace.PageCell;
+import com.example.interactivewhiteboard.workspace.Workspace;
 import javafx.application.Application;
+import javafx.beans.binding.Bindings;
+import javafx.collections.ListChangeListener;
+import javafx.concurrent.Task;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
-import javafx.scene.image.WritableImage;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
-import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import javafx.embed.swing.SwingFXUtils;
+import javafx.geometry.Dimension2D;
 import javafx.geometry.Insets;
-import javax.imageio.ImageIO;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import javafx.scene.shape.StrokeLineCap;
 import javafx.scene.shape.StrokeLineJoin;
 
@@ -30,9 +75,45 @@ public class Main extends Application {
     private Color currentColor = Color.BLACK;
     private double brushSize = 3.0;
     private boolean gridEnabled = false;
+    private final BoardModel model = new BoardModel();
+    private final UndoManager undoManager = new UndoManager(model);
+    private final ExportService exportService = new ExportService();
+    private final PosterRenderer posterRenderer = new PosterRenderer();
+    private final DocumentService documentService = new DocumentService();
+    private ToggleButton gridBtn;
+    private boolean loading = false;
+    // Bumped by every board or page load, so callbacks of one that was replaced drop what they bring
+    private int loadGeneration;
+    private Task<?> loadTask;
+    private ProgressBar exportProgress;
+    private Button cancelExportBtn;
+    private BoardRenderer renderer;
+    private LazyBoardLoader lazyLoader;
+    private OverlayLayer overlay;
+    private CollabSession collabSession;
+    private MetricsExporter metricsExporter;
+    private Label statusLabel;
+    private SessionJournal journal;
+    private final AutosaveService autosave = new AutosaveService(AutosaveService.DEFAULT_DIRECTORY);
+    private final Workspace workspace = new Workspace();
+    private ListView<Page> pageList;
+    private ToggleButton recordBtn;
+    private ReplayEngine replay;
+    private HBox replayBar;
+    private Button replayPlayBtn;
+    private Slider replaySlider;
+    private Label replayTime;
+    private ComboBox<String> replaySpeed;
+    private boolean updatingReplayBar;
+    private final PointBuffer strokePoints = new PointBuffer();
+    private final PointerQueue pointerQueue = new PointerQueue();
+    private final StrokeSimplifier strokeSimplifier = new StrokeSimplifier();
+    private ObjectEraser objectEraser;
 
     @Override
     public void start(Stage stage) {
+        // Labels are measured as the canvas draws them, before any are loaded
+        TextLayout.useCanvasFonts();
         stage.setTitle("Interactive Digital Whiteboard - Limkokwing University");
 
         // Main layout
@@ -44,14 +125,22 @@ public class Main extends Application {
         gc = drawingCanvas.getGraphicsContext2D();
         setupCanvas();
 
-        // Center area with canvas
-        StackPane centerPane = new StackPane(drawingCanvas);
+        // Center area with canvas; the canvas is a window onto an unbounded board,
+        // with previews and the brush cursor on a transparent layer above it
+        StackPane centerPane = new StackPane(drawingCanvas, overlay.getCanvas());
         centerPane.getStyleClass().add("center-pane");
+        centerPane.setMinSize(0, 0);
         root.setCenter(centerPane);
+        drawingCanvas.widthProperty().bind(Bindings.max(0, centerPane.widthProperty().subtract(40)));
+        drawingCanvas.heightProperty().bind(Bindings.max(0, centerPane.heightProperty().subtract(40)));
+        drawingCanvas.widthProperty().addListener((obs, oldVal, newVal) -> renderer.redraw());
+        drawingCanvas.heightProperty().addListener((obs, oldVal, newVal) -> renderer.redraw());
 
         // Create toolbars
         root.setTop(createTopToolbar());
         root.setLeft(createLeftToolbar());
+        root.setRight(createPagePanel());
+        root.setBottom(createReplayBar());
 
         // Setup event handlers
         setupMouseEvents();
@@ -59,6 +148,12 @@ public class Main extends Application {
         // Scene with CSS
         Scene scene = new Scene(root, 1200, 800);
         scene.getStylesheets().add(getClass().getResource("/style.css").toExternalForm());
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN), this::undo);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN), this::redo);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.PAGE_DOWN), () -> stepPage(1));
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.PAGE_UP), () -> stepPage(-1));
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN,
+                KeyCombination.SHIFT_DOWN), this::redo);
 
 
         // Make window resizable
@@ -66,12 +161,55 @@ public class Main extends Application {
         stage.setMinHeight(700);
         stage.setScene(scene);
         stage.show();
+        restoreAutosave();
+    }
+
+    @Override
+    public void stop() {
+        workspace.close();
+        try {
+            autosave.close();
+        } catch (IOException e) {
+            System.err.println("Autosave failed: " + e.getMessage());
+        }
+    }
+
+    // The deck is brought back as it was when the last run ended, crash or not
+    private void restoreAutosave() {
+        int generation = startLoad();
+        autosave.setOnError(error -> showError("Autosave stopped: " + error.getMessage()));
+        Task<AutosaveService.Restored> task = autosave.start();
+        task.setOnSucceeded(e -> {
+            if (generation != loadGeneration) return;
+            AutosaveService.Restored restored = task.getValue();
+            if (restored != null) {
+                // Still loading, so the list selection moving with the new deck switches nothing
+                workspace.restoreDeck(restored.shown(), restored.pages());
+                pageList.getSelectionModel().select(workspace.getActive());
+                restored.objects().forEach(model::add);
+                applyMetadata(restored.metadata());
+                updateStatus("Restored " + restored.pages().size() + " pages from autosave");
+            }
+            loading = false;
+        });
+        task.setOnFailed(e -> {
+            if (generation == loadGeneration) {
+                loading = false;
+            }
+            showError("Autosave is off: " + task.getException().getMessage());
+        });
     }
 
     private void setupCanvas() {
-        // Set white background
-        gc.setFill(Color.WHITE);
-        gc.fillRect(0, 0, drawingCanvas.getWidth(), drawingCanvas.getHeight());
+        // Paint the (empty) board with its white background
+        renderer = new BoardRenderer(drawingCanvas, model);
+        renderer.setOnViewportChanged(() -> {
+            pageInVisible();
+            autosave.setMetadata(currentMetadata());
+        });
+        renderer.redraw();
+        overlay = new OverlayLayer(new Canvas(), renderer, drawingCanvas);
+        overlay.setOnPulse(this::drainPointerQueue);
 
         // Set initial drawing settings
         gc.setStroke(currentColor);
@@ -91,25 +229,81 @@ public class Main extends Application {
 
         Button saveBtn = createButton("💾 Save", "save-btn");
         Button loadBtn = createButton("📁 Load", "load-btn");
+        Button posterBtn = createButton("🖨 Poster", "poster-btn");
         Button addImageBtn = createButton("🖼️ Add Image", "image-btn");
         Button addTextBtn = createButton("📝 Add Text", "text-btn");
+        Button undoBtn = createButton("↶ Undo", "undo-btn");
+        Button redoBtn = createButton("↷ Redo", "redo-btn");
         Button clearBtn = createButton("🗑️ Clear", "clear-btn");
-        ToggleButton gridBtn = createToggleButton("📊 Grid");
+        Button resetViewBtn = createButton("🎯 Reset View", "view-btn");
+        Button collaborateBtn = createButton("🌐 Collaborate", "collab-btn");
+        gridBtn = createToggleButton("📊 Grid");
+        ToggleButton metricsBtn = createToggleButton("📈 Metrics");
+        recordBtn = createToggleButton("⏺ Record");
+        Button replayBtn = createButton("▶ Replay", "replay-btn");
+        statusLabel = new Label();
+        statusLabel.getStyleClass().add("status-label");
+
+        // Shown only while an export is running
+        exportProgress = new ProgressBar();
+        exportProgress.setPrefWidth(120);
+        cancelExportBtn = createButton("✖ Cancel Save", "cancel-btn");
+        setExportControlsVisible(false);
 
         // Button actions
         saveBtn.setOnAction(e -> saveCanvas());
         loadBtn.setOnAction(e -> loadImage());
+        posterBtn.setOnAction(e -> exportPoster());
         addImageBtn.setOnAction(e -> addImage());
         addTextBtn.setOnAction(e -> addText());
+        undoBtn.setOnAction(e -> undo());
+        redoBtn.setOnAction(e -> redo());
         clearBtn.setOnAction(e -> clearCanvas());
         gridBtn.setOnAction(e -> toggleGrid(gridBtn.isSelected()));
+        resetViewBtn.setOnAction(e -> renderer.resetView());
+        collaborateBtn.setOnAction(e -> toggleCollaboration());
+        metricsBtn.setOnAction(e -> toggleMetrics(metricsBtn.isSelected()));
+        recordBtn.setOnAction(e -> toggleRecording(recordBtn.isSelected()));
+        replayBtn.setOnAction(e -> openReplay());
 
-        toolbar.getChildren().addAll(saveBtn, loadBtn, createSeparator(),
+        toolbar.getChildren().addAll(saveBtn, loadBtn, posterBtn, createSeparator(),
                 addImageBtn, addTextBtn, createSeparator(),
-                clearBtn, gridBtn);
+                undoBtn, redoBtn, clearBtn, gridBtn, resetViewBtn, collaborateBtn, metricsBtn, createSeparator(),
+                recordBtn, replayBtn, createSeparator(),
+                statusLabel, exportProgress, cancelExportBtn);
         return toolbar;
     }
 
+    private VBox createPagePanel() {
+        VBox panel = new VBox(10);
+        panel.getStyleClass().add("left-toolbar");
+        panel.setPadding(new Insets(15));
+        panel.setPrefWidth(170);
+
+        Label pagesLabel = new Label("Pages");
+        pagesLabel.getStyleClass().add("section-label");
+        pageList = new ListView<>(workspace.getPages());
+        pageList.setCellFactory(list -> new PageCell());
+        pageList.getSelectionModel().select(workspace.getActive());
+        pageList.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) {
+                showPage(newVal);
+            }
+        });
+        VBox.setVgrow(pageList, Priority.ALWAYS);
+        workspace.setOnError(error -> showError("Error putting a page away: " + error.getMessage()));
+        workspace.getPages().addListener((ListChangeListener<Page>) change ->
+                autosave.setPages(workspace.getPages().stream().map(Page::getId).toList()));
+
+        Button addPageBtn = createButton("➕ Page", "page-btn");
+        Button deletePageBtn = createButton("➖ Page", "page-btn");
+        addPageBtn.setOnAction(e -> addPage());
+        deletePageBtn.setOnAction(e -> deletePage());
+
+        panel.getChildren().addAll(pagesLabel, pageList, new HBox(10, addPageBtn, deletePageBtn));
+        return panel;
+    }
+
     private VBox createLeftToolbar() {
         VBox toolbar = new VBox(15);
         toolbar.getStyleClass().add("left-toolbar");
@@ -128,6 +322,7 @@ public class Main extends Application {
         ToggleButton circleBtn = createToolToggleButton("⭕ Circle", "circle", toolGroup, false);
         ToggleButton textBtn = createToolToggleButton("🔤 Text", "text", toolGroup, false);
         ToggleButton eraserBtn = createToolToggleButton("🧽 Eraser", "eraser", toolGroup, false);
+        ToggleButton objectEraserBtn = createToolToggleButton("🧹 Object Eraser", "objecteraser", toolGroup, false);
 
         // Tool buttons layout
         HBox toolRow1 = new HBox(5);
@@ -136,7 +331,7 @@ public class Main extends Application {
         toolRow2.getChildren().addAll(rectBtn, circleBtn);
 
         VBox toolsBox = new VBox(10);
-        toolsBox.getChildren().addAll(toolRow1, toolRow2, textBtn, eraserBtn);
+        toolsBox.getChildren().addAll(toolRow1, toolRow2, textBtn, eraserBtn, objectEraserBtn);
 
         // Color picker
         Label colorLabel = new Label("Color");
@@ -187,6 +382,40 @@ public class Main extends Application {
         return toolbar;
     }
 
+    // Shown only while a recording is replayed
+    private HBox createReplayBar() {
+        replayBar = new HBox(10);
+        replayBar.getStyleClass().add("top-toolbar");
+        replayBar.setPadding(new Insets(10));
+        replayPlayBtn = createButton("▶", "replay-btn");
+        replaySlider = new Slider(0, 1, 0);
+        HBox.setHgrow(replaySlider, Priority.ALWAYS);
+        replayTime = new Label();
+        replayTime.getStyleClass().add("status-label");
+        replaySpeed = new ComboBox<>();
+        replaySpeed.getItems().addAll("0.5x", "1x", "2x", "4x", "8x", "16x");
+        replaySpeed.setValue("1x");
+        Button closeBtn = createButton("✖ Close Replay", "cancel-btn");
+
+        replayPlayBtn.setOnAction(e -> toggleReplayPlaying());
+        replaySlider.valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (!updatingReplayBar && replay != null) {
+                replay.seek(newVal.longValue());
+            }
+        });
+        replaySpeed.setOnAction(e -> {
+            if (replay != null) {
+                replay.setSpeed(Double.parseDouble(replaySpeed.getValue().replace("x", "")));
+            }
+        });
+        closeBtn.setOnAction(e -> closeReplay());
+
+        replayBar.getChildren().addAll(replayPlayBtn, replaySlider, replayTime, replaySpeed, closeBtn);
+        replayBar.setVisible(false);
+        replayBar.setManaged(false);
+        return replayBar;
+    }
+
     private Separator createSeparator() {
         Separator separator = new Separator();
         separator.setPadding(new Insets(5, 0, 5, 0));
@@ -232,95 +461,366 @@ public class Main extends Application {
         drawingCanvas.setOnMousePressed(this::handleMousePressed);
         drawingCanvas.setOnMouseDragged(this::handleMouseDragged);
         drawingCanvas.setOnMouseReleased(this::handleMouseReleased);
+        drawingCanvas.setOnMouseMoved(this::updateCursor);
+        drawingCanvas.setOnMouseExited(e -> overlay.hideCursor());
+        PanZoomHandler.install(drawingCanvas, renderer);
     }
 
     private void handleMousePressed(MouseEvent event) {
-        startX = event.getX();
-        startY = event.getY();
+        // Other buttons pan the view; the board is read-only while a file loads or a recording plays
+        if (event.getButton() != MouseButton.PRIMARY || loading || replay != null) return;
+
+        startX = renderer.toWorldX(event.getX());
+        startY = renderer.toWorldY(event.getY());
         drawing = true;
 
         if (currentTool.equals("text")) {
-            addTextAtPosition(startX, startY);
-            drawing = false;
-        } else {
-            gc.beginPath();
-            gc.moveTo(startX, startY);
-
-            if (currentTool.equals("rectangle") || currentTool.equals("circle")) {
-                // For shapes, we'll draw on release
+            if (model.hitTest(startX, startY, 0) instanceof TextObject label) {
+                editText(label);
             } else {
-                gc.stroke();
+                addTextAtPosition(startX, startY);
             }
+            drawing = false;
+        } else if (currentTool.equals("objecteraser")) {
+            objectEraser = new ObjectEraser(model, strokeWidth() / 2, startX, startY);
+            showErased(objectEraser.moveTo(startX, startY));
+        } else if (currentTool.equals("pencil") || currentTool.equals("eraser")) {
+            // Redundant samples are dropped as they arrive, within a pixel at the current zoom
+            strokeSimplifier.begin(strokePoints, startX, startY, 1.0, System.nanoTime(),
+                    DrawingTools.SIMPLIFY_TOLERANCE_PIXELS / renderer.getViewport().getScale());
+            overlay.hideCursor();
+            overlay.setStroke(strokePoints,
+                    currentTool.equals("eraser") ? renderer.getBackground() : currentColor, strokeWidth());
+        }
+    }
+
+    private void updateCursor(MouseEvent event) {
+        if (currentTool.equals("pencil") || currentTool.endsWith("eraser")) {
+            overlay.showCursor(event.getX(), event.getY(), strokeWidth());
+        } else {
+            overlay.hideCursor();
         }
     }
 
     private void handleMouseDragged(MouseEvent event) {
         if (!drawing || currentTool.equals("text")) return;
 
-        double x = event.getX();
-        double y = event.getY();
+        // Samples are only queued here and handled together on the next pulse
+        pointerQueue.add(event.getX(), event.getY(), 1.0, System.nanoTime());
+    }
 
+    // Runs once per frame, however many drag events arrived since the last one
+    private void drainPointerQueue() {
+        if (pointerQueue.isEmpty()) return;
+        renderer.getMetrics().inputHandled(pointerQueue);
+        int last = pointerQueue.size() - 1;
         switch (currentTool) {
             case "pencil":
-                gc.lineTo(x, y);
-                gc.stroke();
-                break;
             case "eraser":
-                Color originalColor = currentColor;
-                gc.setStroke(Color.WHITE);
-                gc.setLineWidth(brushSize * 3);
-                gc.lineTo(x, y);
-                gc.stroke();
-                gc.setStroke(originalColor);
-                gc.setLineWidth(brushSize);
+                if (strokePoints.isEmpty()) break;
+                for (int i = 0; i <= last; i++) {
+                    strokeSimplifier.add(renderer.toWorldX(pointerQueue.x(i)), renderer.toWorldY(pointerQueue.y(i)),
+                            pointerQueue.pressure(i), pointerQueue.nanos(i));
+                }
+                overlay.strokeChanged();
                 break;
-            case "line":
-                // Redraw canvas to show temporary line
-                redrawTemporaryShape(x, y);
+            case "objecteraser":
+                if (objectEraser == null) break;
+                for (int i = 0; i <= last; i++) {
+                    showErased(objectEraser.moveTo(renderer.toWorldX(pointerQueue.x(i)),
+                            renderer.toWorldY(pointerQueue.y(i))));
+                }
+                overlay.showCursor(pointerQueue.x(last), pointerQueue.y(last), strokeWidth());
                 break;
+            case "line":
             case "rectangle":
             case "circle":
-                // Redraw canvas to show temporary shape
-                redrawTemporaryShape(x, y);
+                // Only the newest position matters for a rubber band
+                overlay.setPreview(createShape(0, renderer.toWorldX(pointerQueue.x(last)),
+                        renderer.toWorldY(pointerQueue.y(last))));
                 break;
         }
+        pointerQueue.clear();
     }
 
     private void handleMouseReleased(MouseEvent event) {
-        if (!drawing) return;
+        if (!drawing || event.getButton() != MouseButton.PRIMARY) return;
+        drainPointerQueue();
 
-        double endX = event.getX();
-        double endY = event.getY();
+        double endX = renderer.toWorldX(event.getX());
+        double endY = renderer.toWorldY(event.getY());
 
         switch (currentTool) {
-            case "line":
-                gc.strokeLine(startX, startY, endX, endY);
+            case "pencil":
+            case "eraser":
+                if (!strokePoints.isEmpty()) {
+                    strokeSimplifier.finish();
+                    int flags = currentTool.equals("eraser") ? Stroke.FLAG_ERASER : 0;
+                    addObject(strokePoints.toStroke(model.nextId(), DrawingTools.toArgb(currentColor),
+                            (float) strokeWidth(), flags));
+                    strokePoints.clear();
+                }
+                overlay.clearStroke();
                 break;
-            case "rectangle":
-                double width = endX - startX;
-                double height = endY - startY;
-                gc.strokeRect(startX, startY, width, height);
+            case "objecteraser":
+                BoardEdit erased = objectEraser != null ? objectEraser.finish() : null;
+                objectEraser = null;
+                if (erased != null) {
+                    // Already on the board; recorded once so the whole gesture undoes in one step
+                    undoManager.record(erased);
+                    publish(erased);
+                }
                 break;
+            case "line":
+            case "rectangle":
             case "circle":
-                double radiusX = Math.abs(endX - startX) / 2;
-                double radiusY = Math.abs(endY - startY) / 2;
-                double centerX = (startX + endX) / 2;
-                double centerY = (startY + endY) / 2;
-                gc.strokeOval(centerX - radiusX, centerY - radiusY, radiusX * 2, radiusY * 2);
+                addObject(createShape(model.nextId(), endX, endY));
+                // Replace the preview with the committed shape
+                overlay.setPreview(null);
                 break;
         }
 
         drawing = false;
     }
 
-    private void redrawTemporaryShape(double currentX, double currentY) {
-        // This would require maintaining a drawing history for proper implementation
-        // For simplicity, we'll just draw directly in the drag handler
+    private void addObject(BoardObject object) {
+        applyEdit(new BoardEdit(List.of(), List.of(object)));
+    }
+
+    // Every change to the board goes through here so it can be undone
+    private void applyEdit(BoardEdit edit) {
+        if (replay != null) return;
+        edit.applyTo(model);
+        undoManager.record(edit);
+        renderer.invalidate(edit);
+        renderer.render();
+        publish(edit);
+        journal(edit);
+    }
+
+    private void undo() {
+        BoardEdit edit = undoManager.undo();
+        if (edit != null) {
+            renderer.invalidate(edit);
+            renderer.render();
+            publish(edit);
+            journal(edit);
+        }
+    }
+
+    private void redo() {
+        BoardEdit edit = undoManager.redo();
+        if (edit != null) {
+            renderer.invalidate(edit);
+            renderer.render();
+            publish(edit);
+            journal(edit);
+        }
+    }
+
+    // The object eraser changes the model as it moves and records the gesture on release
+    private void showErased(BoardEdit edit) {
+        if (edit == null) return;
+        renderer.invalidate(edit);
+        renderer.render();
+        journal(edit);
+    }
+
+    private void publish(BoardEdit edit) {
+        if (collabSession != null) {
+            collabSession.publish(edit);
+        }
+    }
+
+    private void toggleCollaboration() {
+        if (collabSession != null) {
+            leaveSession();
+            showAlert("Collaboration", "Left the shared board");
+            return;
+        }
+        TextInputDialog dialog = new TextInputDialog(String.valueOf(CollabProtocol.DEFAULT_PORT));
+        dialog.setTitle("Collaborate");
+        dialog.setHeaderText("Enter a port to host this board, or host:port to join another one:");
+        dialog.setContentText("Address:");
+        dialog.showAndWait().ifPresent(address -> {
+            closeReplay();
+            // The whole board is shared, so a lazily opened file is read in first
+            if (!ensureFullyLoaded()) return;
+            try {
+                collabSession = CollabSession.open(address, renderer);
+                collabSession.setOnStatus(this::updateStatus);
+                collabSession.setOnRemoteEdit(this::journal);
+                if (collabSession.isHost()) {
+                    showAlert("Collaboration", "Hosting on port " + collabSession.getPort());
+                } else {
+                    // The shared board replaces this one
+                    undoManager.clear();
+                    if (journal != null) {
+                        journal.reset(model.objects());
+                    }
+                    autosave.reset(model.objects());
+                }
+            } catch (IOException e) {
+                showError("Could not start collaboration: " + e.getMessage());
+            }
+        });
+    }
+
+    private void toggleRecording(boolean record) {
+        if (!record) {
+            stopRecording();
+            return;
+        }
+        recordBtn.setSelected(false);
+        // The recording starts from the whole board, so a lazily opened file is read in first
+        if (!ensureFullyLoaded()) return;
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Record Session");
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Whiteboard recordings (*.wbj)", "*." + SessionJournal.EXTENSION));
+        File file = fileChooser.showSaveDialog(drawingCanvas.getScene().getWindow());
+        if (file == null) return;
+        try {
+            journal = SessionJournal.create(file.toPath(), model.objects());
+            recordBtn.setSelected(true);
+            updateStatus("Recording to " + file.getName());
+        } catch (IOException e) {
+            showError("Could not start recording: " + e.getMessage());
+        }
+    }
+
+    private void stopRecording() {
+        if (journal == null) return;
+        recordBtn.setSelected(false);
+        try {
+            journal.close();
+            updateStatus("Recording saved");
+        } catch (IOException e) {
+            showError("Could not save the recording: " + e.getMessage());
+        }
+        journal = null;
+    }
+
+    private void journal(BoardEdit edit) {
+        if (journal != null) {
+            journal.record(edit);
+        }
+        autosave.record(edit);
+    }
+
+    private void openReplay() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Replay Session");
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Whiteboard recordings (*.wbj)", "*." + SessionJournal.EXTENSION));
+        File file = fileChooser.showOpenDialog(drawingCanvas.getScene().getWindow());
+        if (file == null) return;
+        SessionRecording recording;
+        try {
+            recording = SessionRecording.open(file.toPath());
+        } catch (IOException e) {
+            showError("Error opening recording: " + e.getMessage());
+            return;
+        }
+        // The replay takes over the board, as opening a file does
+        closeReplay();
+        leaveSession();
+        stopRecording();
+        closeLazyLoader();
+        undoManager.clear();
+        replay = new ReplayEngine(recording, renderer);
+        replay.setOnPositionChanged(this::updateReplayBar);
+        replay.setOnError(e -> showError("Error reading recording: " + e.getMessage()));
+        replaySlider.setMax(replay.getDurationMillis());
+        replaySpeed.setValue("1x");
+        replayBar.setVisible(true);
+        replayBar.setManaged(true);
+        replay.play();
+        updateStatus("Replaying " + file.getName());
+    }
+
+    // The board is left as the replay last showed it, to be drawn on as a new document
+    private void closeReplay() {
+        if (replay == null) return;
+        replay.dispose();
+        try {
+            replay.getRecording().close();
+        } catch (IOException ignored) {
+            // Only read from
+        }
+        replay = null;
+        replayBar.setVisible(false);
+        replayBar.setManaged(false);
+        autosave.reset(model.objects());
+    }
+
+    private void toggleReplayPlaying() {
+        if (replay.isPlaying()) {
+            replay.pause();
+        } else {
+            replay.play();
+        }
+        updateReplayBar();
+    }
+
+    private void updateReplayBar() {
+        updatingReplayBar = true;
+        replaySlider.setValue(replay.getPositionMillis());
+        updatingReplayBar = false;
+        replayTime.setText(ReplayEngine.formatTime(replay.getPositionMillis()) + " / "
+                + ReplayEngine.formatTime(replay.getDurationMillis()));
+        replayPlayBtn.setText(replay.isPlaying() ? "⏸" : "▶");
+    }
+
+    private void leaveSession() {
+        if (collabSession != null) {
+            try {
+                collabSession.close();
+            } catch (IOException ignored) {
+                // Leaving anyway
+            }
+            collabSession = null;
+        }
+    }
+
+    // Shows frame timings in place of the status until turned off, logging them to a file meanwhile
+    private void toggleMetrics(boolean show) {
+        FrameMetrics metrics = renderer.getMetrics();
+        if (!show) {
+            metrics.setHud(null);
+            try {
+                metricsExporter.close();
+                updateStatus("Metrics saved to " + metricsExporter.getFile());
+            } catch (IOException e) {
+                showError("Could not write metrics: " + e.getMessage());
+            }
+            metricsExporter = null;
+            return;
+        }
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path file = Path.of(System.getProperty("java.io.tmpdir"), "whiteboard-metrics-" + stamp + ".csv");
+        metricsExporter = new MetricsExporter(metrics, file, MetricsExporter.DEFAULT_PERIOD_SECONDS);
+        metrics.setHud(this::updateStatus);
+    }
+
+    private double strokeWidth() {
+        return currentTool.endsWith("eraser") ? brushSize * 3 : brushSize;
+    }
+
+    private ShapeObject createShape(long id, double endX, double endY) {
+        byte kind;
+        switch (currentTool) {
+            case "rectangle": kind = ShapeObject.RECTANGLE; break;
+            case "circle": kind = ShapeObject.OVAL; break;
+            default: kind = ShapeObject.LINE; break;
+        }
+        return new ShapeObject(id, kind, (float) startX, (float) startY, (float) endX, (float) endY,
+                DrawingTools.toArgb(currentColor), (float) brushSize);
     }
 
     private void setCurrentTool(String tool) {
         currentTool = tool;
-        System.out.println("Tool set to: " + tool);
+        updateStatus("Active Tool: " + tool);
     }
 
     private void addImage() {
@@ -333,11 +833,15 @@ public class Main extends Application {
         File file = fileChooser.showOpenDialog(drawingCanvas.getScene().getWindow());
         if (file != null) {
             try {
-                Image image = new Image(file.toURI().toString());
-                // Draw image at center of canvas
-                double x = (drawingCanvas.getWidth() - image.getWidth() / 2) / 2;
-                double y = (drawingCanvas.getHeight() - image.getHeight() / 2) / 2;
-                gc.drawImage(image, x, y, image.getWidth() / 2, image.getHeight() / 2);
+                String source = file.toURI().toString();
+                // Only the header is read here; pixels are decoded in the background at display size
+                Dimension2D size = renderer.getMedia().probe(source);
+                // Draw image at center of the visible area
+                double x = renderer.toWorldX(drawingCanvas.getWidth() / 2) - size.getWidth() / 4;
+                double y = renderer.toWorldY(drawingCanvas.getHeight() / 2) - size.getHeight() / 4;
+                BoardObject object = new ImageObject(model.nextId(), source, (float) x, (float) y,
+                        (float) size.getWidth() / 2, (float) size.getHeight() / 2);
+                addObject(object);
                 showAlert("Success", "Image added successfully!");
             } catch (Exception e) {
                 showError("Error loading image: " + e.getMessage());
@@ -357,101 +861,366 @@ public class Main extends Application {
 
         dialog.showAndWait().ifPresent(text -> {
             if (!text.trim().isEmpty()) {
-                gc.setFont(Font.font("Arial", brushSize * 4));
-                gc.fillText(text, x, y);
+                BoardObject object = new TextObject(model.nextId(), text, "Arial", (float) brushSize * 4,
+                        (float) x, (float) y, DrawingTools.toArgb(currentColor));
+                addObject(object);
             }
         });
     }
 
+    // Labels stay objects, so one can be reworded, or removed by clearing its text
+    private void editText(TextObject label) {
+        TextInputDialog dialog = new TextInputDialog(label.text());
+        dialog.setTitle("Edit Text");
+        dialog.setHeaderText("Edit the text, or clear it to remove the label:");
+        dialog.setContentText("Text:");
+
+        dialog.showAndWait().ifPresent(text -> {
+            if (text.equals(label.text())) return;
+            // Replaced under the same id, so it keeps its place in the paint order
+            applyEdit(new BoardEdit(List.of(label),
+                    text.trim().isEmpty() ? List.of() : List.of(label.withText(text))));
+        });
+    }
+
     private void clearCanvas() {
-        gc.setFill(Color.WHITE);
-        gc.fillRect(0, 0, drawingCanvas.getWidth(), drawingCanvas.getHeight());
+        if (!ensureFullyLoaded()) return;
+        // Repaint only where there was something to clear
+        applyEdit(new BoardEdit(new ArrayList<>(model.objects()), List.of()));
         gc.setStroke(currentColor);
         gc.setFill(currentColor);
-
-        if (gridEnabled) {
-            drawGrid();
-        }
     }
 
     private void toggleGrid(boolean show) {
         gridEnabled = show;
-        if (show) {
-            drawGrid();
-            showAlert("Grid", "Grid enabled");
-        } else {
-            clearCanvas();
-            showAlert("Grid", "Grid disabled");
-        }
-    }
-
-    private void drawGrid() {
-        double spacing = 20;
-        Color originalColor = currentColor;
-        double originalWidth = brushSize;
-
-        gc.setStroke(Color.LIGHTGRAY);
-        gc.setLineWidth(0.5);
-
-        // Draw vertical lines
-        for (double x = 0; x < drawingCanvas.getWidth(); x += spacing) {
-            gc.strokeLine(x, 0, x, drawingCanvas.getHeight());
-        }
-
-        // Draw horizontal lines
-        for (double y = 0; y < drawingCanvas.getHeight(); y += spacing) {
-            gc.strokeLine(0, y, drawingCanvas.getWidth(), y);
-        }
-
-        // Restore original settings
-        gc.setStroke(originalColor);
-        gc.setLineWidth(originalWidth);
+        // The grid sits under the drawing, so toggling it keeps the content
+        renderer.setGridEnabled(show);
+        renderer.render();
+        autosave.setMetadata(currentMetadata());
+        showAlert("Grid", show ? "Grid enabled" : "Grid disabled");
     }
 
     private void saveCanvas() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Whiteboard");
         fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Whiteboard files (*.wbd)", "*." + FileManager.EXTENSION),
                 new FileChooser.ExtensionFilter("PNG files (*.png)", "*.png"),
                 new FileChooser.ExtensionFilter("JPEG files (*.jpg)", "*.jpg"),
                 new FileChooser.ExtensionFilter("All Files", "*.*")
         );
 
         File file = fileChooser.showSaveDialog(drawingCanvas.getScene().getWindow());
-        if (file != null) {
-            try {
-                WritableImage writableImage = new WritableImage((int) drawingCanvas.getWidth(),
-                        (int) drawingCanvas.getHeight());
-                drawingCanvas.snapshot(null, writableImage);
+        if (file != null && FileManager.isBoardFile(file.toPath())) {
+            saveBoard(file.toPath());
+        } else if (file != null) {
+            // Encoding and writing happen in the background; drawing carries on
+            Task<Path> task = exportService.export(drawingCanvas, file.toPath());
+            exportProgress.progressProperty().bind(task.progressProperty());
+            cancelExportBtn.setOnAction(e -> task.cancel());
+            setExportControlsVisible(true);
+
+            task.setOnSucceeded(e -> {
+                setExportControlsVisible(false);
+                showAlert("Success", "Canvas saved successfully!");
+            });
+            task.setOnFailed(e -> {
+                setExportControlsVisible(false);
+                showError("Error saving file: " + task.getException().getMessage());
+            });
+            task.setOnCancelled(e -> setExportControlsVisible(false));
+        }
+    }
+
+    // The whole board at print size, rendered off the FX thread from a copy of the object list
+    private void exportPoster() {
+        if (!ensureFullyLoaded()) return;
+        ChoiceDialog<Integer> dialog = new ChoiceDialog<>(PosterRenderer.MAX_SIZE, 2048, 4096, 8192,
+                PosterRenderer.MAX_SIZE);
+        dialog.setTitle("Export Poster");
+        dialog.setHeaderText("Render the whole board as a PNG poster");
+        dialog.setContentText("Pixels on the longer side:");
+        dialog.showAndWait().ifPresent(size -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Export Poster");
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PNG files (*.png)", "*.png"));
+            File file = fileChooser.showSaveDialog(drawingCanvas.getScene().getWindow());
+            if (file == null) return;
+            Task<Path> task = posterRenderer.export(currentMetadata(), new ArrayList<>(model.objects()), size,
+                    file.toPath());
+            exportProgress.progressProperty().bind(task.progressProperty());
+            cancelExportBtn.setOnAction(e -> task.cancel());
+            setExportControlsVisible(true);
+            updateStatus("Rendering " + file.getName() + "...");
+
+            task.setOnSucceeded(e -> {
+                setExportControlsVisible(false);
+                showAlert("Success", "Poster exported: " + file.getName());
+            });
+            task.setOnFailed(e -> {
+                setExportControlsVisible(false);
+                showError("Error exporting poster: " + task.getException().getMessage());
+            });
+            task.setOnCancelled(e -> setExportControlsVisible(false));
+        });
+    }
 
-                String filename = file.getName().toLowerCase();
-                String format = "png"; // default
+    private void saveBoard(Path target) {
+        if (!ensureFullyLoaded()) return;
+        BoardMetadata metadata = currentMetadata();
+        // Objects are immutable, so a copy of the list is a consistent snapshot
+        Task<Path> task = documentService.save(target, metadata, new ArrayList<>(model.objects()));
+        task.setOnSucceeded(e -> showAlert("Success", "Board saved successfully!"));
+        task.setOnFailed(e -> showError("Error saving file: " + task.getException().getMessage()));
+    }
 
-                if (filename.endsWith(".jpg") || filename.endsWith(".jpeg")) {
-                    format = "jpg";
-                }
+    private void addPage() {
+        showPage(workspace.addPage());
+    }
 
-                ImageIO.write(SwingFXUtils.fromFXImage(writableImage, null), format, file);
-                showAlert("Success", "Canvas saved successfully!");
-            } catch (Exception e) {
-                showError("Error saving file: " + e.getMessage());
+    private void deletePage() {
+        List<Page> pages = workspace.getPages();
+        if (pages.size() == 1) {
+            showAlert("Pages", "A workspace keeps at least one page");
+            return;
+        }
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, "Delete this page and everything on it?");
+        confirm.setTitle("Delete Page");
+        confirm.setHeaderText(null);
+        if (confirm.showAndWait().filter(ButtonType.OK::equals).isEmpty()) return;
+        Page doomed = workspace.getActive();
+        int index = pages.indexOf(doomed);
+        Page next = pages.get(index > 0 ? index - 1 : 1);
+        showPage(next);
+        if (workspace.getActive() == next) {
+            workspace.removePage(doomed);
+        }
+    }
+
+    private void stepPage(int step) {
+        List<Page> pages = workspace.getPages();
+        int index = pages.indexOf(workspace.getActive()) + step;
+        if (index >= 0 && index < pages.size()) {
+            showPage(pages.get(index));
+        }
+    }
+
+    // Another page replaces the board, as opening a board does, so the switch is not undoable or shared
+    private void showPage(Page page) {
+        if (page == workspace.getActive()) return;
+        if (loading || !ensureFullyLoaded()) {
+            pageList.getSelectionModel().select(workspace.getActive());
+            return;
+        }
+        closeReplay();
+        leaveSession();
+        Page from = workspace.getActive();
+        BoardMetadata left = currentMetadata();
+        Page.Contents contents = workspace.switchTo(page, left, new ArrayList<>(model.objects()));
+        autosave.showPage(page.getId(), left);
+        model.clear();
+        undoManager.clear();
+        pageList.getSelectionModel().select(page);
+        pageList.scrollTo(page);
+        if (contents != null) {
+            showPageContents(contents);
+            return;
+        }
+        // Pages far from the last one shown are decoded in the background first
+        renderer.redraw();
+        int generation = startLoad();
+        Task<Page.Contents> task = workspace.restore(page);
+        task.setOnSucceeded(e -> {
+            if (generation != loadGeneration) return;
+            loading = false;
+            showPageContents(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            if (generation != loadGeneration) return;
+            loading = false;
+            showError("Error loading page: " + task.getException().getMessage());
+            // The page keeps what it held, for another try later
+            if (workspace.getPages().contains(from)) {
+                showPage(from);
             }
+        });
+    }
+
+    private void showPageContents(Page.Contents contents) {
+        contents.objects().forEach(model::add);
+        applyMetadata(contents.metadata());
+        if (journal != null) {
+            journal.reset(model.objects());
         }
     }
 
+    private BoardMetadata currentMetadata() {
+        Viewport viewport = renderer.getViewport();
+        return new BoardMetadata(DrawingTools.toArgb(renderer.getBackground()), renderer.isGridEnabled(),
+                viewport.getX(), viewport.getY(), viewport.getScale());
+    }
+
+    private void openBoard(Path source) {
+        // Opening a board starts a new document, so it is not undoable, shared or recorded
+        closeReplay();
+        leaveSession();
+        stopRecording();
+        closeLazyLoader();
+        int generation = startLoad();
+        model.clear();
+        undoManager.clear();
+        renderer.getMedia().clear();
+        renderer.redraw();
+        autosave.opened(source);
+
+        // Indexed files are mapped and decoded only where the view is
+        Task<MappedBoard> task = documentService.map(source);
+        task.setOnSucceeded(e -> {
+            MappedBoard board = task.getValue();
+            if (generation != loadGeneration) {
+                closeQuietly(board);
+                return;
+            }
+            if (board == null) {
+                streamBoard(source, generation);
+                return;
+            }
+            applyMetadata(board.getMetadata());
+            lazyLoader = new LazyBoardLoader(board, renderer);
+            lazyLoader.setOnError(error -> showError("Error loading file: " + error.getMessage()));
+            lazyLoader.requestVisible();
+            loading = false;
+            showAlert("Success", "Board loaded successfully!");
+        });
+        task.setOnFailed(e -> {
+            if (generation != loadGeneration) return;
+            loading = false;
+            showError("Error loading file: " + task.getException().getMessage());
+        });
+    }
+
+    private void streamBoard(Path source, int generation) {
+        Task<BoardMetadata> task = documentService.open(source, metadata -> {
+            if (generation == loadGeneration) {
+                applyMetadata(metadata);
+            }
+        }, batch -> {
+            // Batches queued before a newer load began belong to the board it replaced
+            if (generation != loadGeneration) return;
+            for (BoardObject object : batch) {
+                model.add(object);
+                renderer.invalidate(object);
+            }
+            renderer.render();
+        });
+        loadTask = task;
+        task.setOnSucceeded(e -> {
+            if (generation != loadGeneration) return;
+            loading = false;
+            showAlert("Success", "Board loaded successfully!");
+        });
+        task.setOnFailed(e -> {
+            if (generation != loadGeneration) return;
+            loading = false;
+            showError("Error loading file: " + task.getException().getMessage());
+        });
+    }
+
+    /**
+     * Starts a board or page load in place of any still running. A replaced
+     * file read is cancelled; anything else runs to the end, as mapping hands
+     * back a file to close and restores also keep the workspace and the log
+     * in order, and only what it brings back is dropped.
+     */
+    private int startLoad() {
+        if (loadTask != null) {
+            loadTask.cancel(false);
+            loadTask = null;
+        }
+        loading = true;
+        return ++loadGeneration;
+    }
+
+    private static void closeQuietly(MappedBoard board) {
+        if (board == null) return;
+        try {
+            board.close();
+        } catch (IOException ignored) {
+            // Only read from, and no longer wanted
+        }
+    }
+
+    private void pageInVisible() {
+        if (lazyLoader == null) return;
+        if (lazyLoader.isComplete()) {
+            lazyLoader = null;
+        } else {
+            lazyLoader.requestVisible();
+        }
+    }
+
+    /** Decodes whatever a lazily opened board has not loaded yet. */
+    private boolean ensureFullyLoaded() {
+        if (lazyLoader == null) return true;
+        try {
+            lazyLoader.loadAll();
+            lazyLoader = null;
+            return true;
+        } catch (IOException e) {
+            showError("Error loading file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void closeLazyLoader() {
+        if (lazyLoader != null) {
+            lazyLoader.close();
+            lazyLoader = null;
+        }
+    }
+
+    private void applyMetadata(BoardMetadata metadata) {
+        gridEnabled = metadata.gridEnabled();
+        gridBtn.setSelected(gridEnabled);
+        renderer.setGridEnabled(gridEnabled);
+        renderer.setBackground(DrawingTools.toColor(metadata.background()));
+        renderer.getViewport().set(metadata.viewX(), metadata.viewY(), metadata.viewScale());
+        renderer.redraw();
+    }
+
+    private void setExportControlsVisible(boolean visible) {
+        if (!visible) {
+            exportProgress.progressProperty().unbind();
+        }
+        exportProgress.setVisible(visible);
+        exportProgress.setManaged(visible);
+        cancelExportBtn.setVisible(visible);
+        cancelExportBtn.setManaged(visible);
+    }
+
     private void loadImage() {
         FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Load Image to Canvas");
+        fileChooser.setTitle("Load Whiteboard or Image");
         fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Whiteboard files (*.wbd)", "*." + FileManager.EXTENSION),
                 new FileChooser.ExtensionFilter("Image Files", "*.png", "*.jpg", "*.jpeg", "*.gif", "*.bmp")
         );
 
         File file = fileChooser.showOpenDialog(drawingCanvas.getScene().getWindow());
-        if (file != null) {
+        if (file != null && FileManager.isBoardFile(file.toPath())) {
+            openBoard(file.toPath());
+        } else if (file != null) {
+            if (!ensureFullyLoaded()) return;
             try {
-                Image image = new Image(file.toURI().toString());
-                clearCanvas();
-                gc.drawImage(image, 0, 0, drawingCanvas.getWidth(), drawingCanvas.getHeight());
+                String source = file.toURI().toString();
+                renderer.getMedia().probe(source);
+                // Stretch the image over the visible area
+                double scale = renderer.getViewport().getScale();
+                BoardObject object = new ImageObject(model.nextId(), source,
+                        (float) renderer.toWorldX(0), (float) renderer.toWorldY(0),
+                        (float) (drawingCanvas.getWidth() / scale), (float) (drawingCanvas.getHeight() / scale));
+                // Replaces the board, but as an undoable edit
+                applyEdit(new BoardEdit(new ArrayList<>(model.objects()), List.of(object)));
                 showAlert("Success", "Image loaded successfully!");
             } catch (Exception e) {
                 showError("Error loading image: " + e.getMessage());
@@ -459,6 +1228,10 @@ public class Main extends Application {
         }
     }
 
+    private void updateStatus(String message) {
+        statusLabel.setText(message);
+    }
+
     private void showError(String message) {
         Alert alert = new Alert(Alert.AlertType.ERROR);
         alert.setTitle("Error");
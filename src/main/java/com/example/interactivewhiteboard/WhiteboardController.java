@@ -1,57 +1,182 @@
 package com.example.interactivewhiteboard;
 
+import com.example.interactivewhiteboard.batch.PosterRenderer;
+import com.example.interactivewhiteboard.collab.CollabProtocol;
+import com.example.interactivewhiteboard.collab.CollabSession;
+import com.example.interactivewhiteboard.components.AutosaveService;
+import com.example.interactivewhiteboard.components.BoardEdit;
+import com.example.interactivewhiteboard.components.BoardMetadata;
+import com.example.interactivewhiteboard.components.BoardModel;
+import com.example.interactivewhiteboard.components.BoardObject;
+import com.example.interactivewhiteboard.components.BoardRenderer;
+import com.example.interactivewhiteboard.components.DocumentService;
+import com.example.interactivewhiteboard.components.DrawingTools;
+import com.example.interactivewhiteboard.components.ExportService;
+import com.example.interactivewhiteboard.components.FileManager;
+import com.example.interactivewhiteboard.components.FrameMetrics;
+import com.example.interactivewhiteboard.components.ImageObject;
+import com.example.interactivewhiteboard.components.LazyBoardLoader;
+import com.example.interactivewhiteboard.components.MappedBoard;
+import com.example.interactivewhiteboard.components.MetricsExporter;
+import com.example.interactivewhiteboard.components.ObjectEraser;
+import com.example.interactivewhiteboard.components.OverlayLayer;
+import com.example.interactivewhiteboard.components.PanZoomHandler;
+import com.example.interactivewhiteboard.components.PointBuffer;
+import com.example.interactivewhiteboard.components.PointerQueue;
+import com.example.interactivewhiteboard.components.ReplayEngine;
+import com.example.interactivewhiteboard.components.SessionJournal;
+import com.example.interactivewhiteboard.components.SessionRecording;
+import com.example.interactivewhiteboard.components.ShapeObject;
+import com.example.interactivewhiteboard.components.Stroke;
+import com.example.interactivewhiteboard.components.StrokeSimplifier;
+import com.example.interactivewhiteboard.components.TextLayout;
+import com.example.interactivewhiteboard.components.TextObject;
+import com.example.interactivewhiteboard.components.UndoManager;
+import com.example.interactivewhiteboard.components.Viewport;
+import com.example.interactivewhiteboard.workspace.Page;
+import com.example.interactivewhiteboard.workspace.PageCell;
+import com.example.interactivewhiteboard.workspace.Workspace;
+import javafx.collections.ListChangeListener;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.geometry.Dimension2D;
 import javafx.fxml.Initializable;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
-import javafx.scene.image.WritableImage;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.stage.FileChooser;
-import javafx.embed.swing.SwingFXUtils;
-import javax.imageio.ImageIO;
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
 
 public class WhiteboardController implements Initializable {
 
     // FXML Components
     @FXML private Canvas drawingCanvas;
+    @FXML private Canvas overlayCanvas;
     @FXML private BorderPane mainPane;
     @FXML private VBox leftToolbar;
     @FXML private HBox topToolbar;
     @FXML private ColorPicker colorPicker;
     @FXML private Slider brushSizeSlider;
     @FXML private ComboBox<String> toolSelector;
-    @FXML private Button pencilBtn, lineBtn, rectangleBtn, circleBtn, textBtn, eraserBtn;
-    @FXML private Button addImageBtn, addTextBtn, clearBtn, saveBtn, loadBtn;
-    @FXML private Label brushSizeLabel, statusLabel;
-    @FXML private ToggleButton gridToggle;
+    @FXML private Button pencilBtn, lineBtn, rectangleBtn, circleBtn, textBtn, eraserBtn, objectEraserBtn;
+    @FXML private Button addImageBtn, addTextBtn, clearBtn, saveBtn, loadBtn, undoBtn, redoBtn, cancelExportBtn, collabBtn;
+    @FXML private Button replayBtn, replayPlayBtn, closeReplayBtn, posterBtn;
+    @FXML private ProgressBar exportProgress;
+    @FXML private Label brushSizeLabel, statusLabel, replayTimeLabel;
+    @FXML private ToggleButton gridToggle, metricsToggle, recordToggle;
+    @FXML private HBox replayBar;
+    @FXML private Slider replaySlider;
+    @FXML private ComboBox<String> replaySpeed;
+    @FXML private VBox pagePanel;
+    @FXML private ListView<Page> pageList;
+    @FXML private Button addPageBtn, deletePageBtn;
 
     private GraphicsContext gc;
     private double startX, startY;
     private boolean drawing = false;
     private String currentTool = "PENCIL";
     private Color canvasBackground = Color.WHITE;
+    private final BoardModel model = new BoardModel();
+    private final UndoManager undoManager = new UndoManager(model);
+    private final ExportService exportService = new ExportService();
+    private final PosterRenderer posterRenderer = new PosterRenderer();
+    private final DocumentService documentService = new DocumentService();
+    private boolean loading = false;
+    // Bumped by every board or page load, so callbacks of one that was replaced drop what they bring
+    private int loadGeneration;
+    private Task<?> loadTask;
+    private BoardRenderer renderer;
+    private LazyBoardLoader lazyLoader;
+    private OverlayLayer overlay;
+    private CollabSession collabSession;
+    private MetricsExporter metricsExporter;
+    private SessionJournal journal;
+    private final AutosaveService autosave = new AutosaveService(AutosaveService.DEFAULT_DIRECTORY);
+    private final Workspace workspace = new Workspace();
+    private ReplayEngine replay;
+    private boolean updatingReplayBar;
+    private final PointBuffer strokePoints = new PointBuffer();
+    private final PointerQueue pointerQueue = new PointerQueue();
+    private final StrokeSimplifier strokeSimplifier = new StrokeSimplifier();
+    private ObjectEraser objectEraser;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
+        // Labels are measured as the canvas draws them, before any are loaded
+        TextLayout.useCanvasFonts();
         initializeCanvas();
         setupEventHandlers();
         setupToolbar();
         updateStatus("Ready - Select a tool to start drawing");
+        restoreAutosave();
+    }
+
+    /** Called as the application stops, to put the last autosaved edits on disk. */
+    public void shutdown() {
+        workspace.close();
+        try {
+            autosave.close();
+        } catch (IOException e) {
+            System.err.println("Autosave failed: " + e.getMessage());
+        }
+    }
+
+    // The deck is brought back as it was when the last run ended, crash or not
+    private void restoreAutosave() {
+        int generation = startLoad();
+        autosave.setOnError(error -> showError("Autosave stopped: " + error.getMessage()));
+        Task<AutosaveService.Restored> task = autosave.start();
+        task.setOnSucceeded(e -> {
+            if (generation != loadGeneration) return;
+            AutosaveService.Restored restored = task.getValue();
+            if (restored != null) {
+                // Still loading, so the list selection moving with the new deck switches nothing
+                workspace.restoreDeck(restored.shown(), restored.pages());
+                pageList.getSelectionModel().select(workspace.getActive());
+                restored.objects().forEach(model::add);
+                applyMetadata(restored.metadata());
+                updateStatus("Restored " + restored.pages().size() + " pages from autosave");
+            }
+            loading = false;
+        });
+        task.setOnFailed(e -> {
+            if (generation == loadGeneration) {
+                loading = false;
+            }
+            showError("Autosave is off: " + task.getException().getMessage());
+        });
     }
 
     private void initializeCanvas() {
         gc = drawingCanvas.getGraphicsContext2D();
+        renderer = new BoardRenderer(drawingCanvas, model);
+        renderer.setBackground(canvasBackground);
+        renderer.setOnViewportChanged(() -> {
+            pageInVisible();
+            autosave.setMetadata(currentMetadata());
+        });
+        // Previews and the brush cursor go on a transparent layer above the board
+        overlay = new OverlayLayer(overlayCanvas, renderer, drawingCanvas);
+        overlay.setOnPulse(this::drainPointerQueue);
         clearCanvas();
 
         // Make canvas responsive
-        drawingCanvas.widthProperty().bind(mainPane.widthProperty().subtract(leftToolbar.getWidth() + 20));
+        drawingCanvas.widthProperty().bind(mainPane.widthProperty().subtract(leftToolbar.getWidth() + pagePanel.getPrefWidth() + 20));
         drawingCanvas.heightProperty().bind(mainPane.heightProperty().subtract(topToolbar.getHeight() + 20));
 
         // Redraw when resized
@@ -64,6 +189,9 @@ public class WhiteboardController implements Initializable {
         drawingCanvas.setOnMousePressed(this::handleMousePressed);
         drawingCanvas.setOnMouseDragged(this::handleMouseDragged);
         drawingCanvas.setOnMouseReleased(this::handleMouseReleased);
+        drawingCanvas.setOnMouseMoved(this::updateCursor);
+        drawingCanvas.setOnMouseExited(e -> overlay.hideCursor());
+        PanZoomHandler.install(drawingCanvas, renderer);
 
         // Color picker
         colorPicker.valueProperty().addListener((obs, oldVal, newVal) -> {
@@ -77,6 +205,18 @@ public class WhiteboardController implements Initializable {
             brushSizeLabel.setText(String.format("Size: %.1f", newVal));
         });
 
+        // Undo/redo shortcuts once the canvas is in a scene
+        drawingCanvas.sceneProperty().addListener((obs, oldScene, scene) -> {
+            if (scene != null) {
+                scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN), this::undo);
+                scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN), this::redo);
+                scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN,
+                        KeyCombination.SHIFT_DOWN), this::redo);
+                scene.getAccelerators().put(new KeyCodeCombination(KeyCode.PAGE_DOWN), () -> stepPage(1));
+                scene.getAccelerators().put(new KeyCodeCombination(KeyCode.PAGE_UP), () -> stepPage(-1));
+            }
+        });
+
         // Tool selector
         toolSelector.getSelectionModel().selectedItemProperty().addListener(
                 (obs, oldVal, newVal) -> setCurrentTool(newVal)
@@ -85,7 +225,7 @@ public class WhiteboardController implements Initializable {
 
     private void setupToolbar() {
         // Initialize tool selector
-        toolSelector.getItems().addAll("Pencil", "Line", "Rectangle", "Circle", "Text", "Eraser");
+        toolSelector.getItems().addAll("Pencil", "Line", "Rectangle", "Circle", "Text", "Eraser", "Object Eraser");
         toolSelector.setValue("Pencil");
 
         // Set button actions
@@ -95,75 +235,414 @@ public class WhiteboardController implements Initializable {
         circleBtn.setOnAction(e -> setCurrentTool("Circle"));
         textBtn.setOnAction(e -> setCurrentTool("Text"));
         eraserBtn.setOnAction(e -> setCurrentTool("Eraser"));
+        objectEraserBtn.setOnAction(e -> setCurrentTool("Object Eraser"));
 
         addImageBtn.setOnAction(e -> addImage());
         addTextBtn.setOnAction(e -> addTextDialog());
         clearBtn.setOnAction(e -> clearCanvas());
+        undoBtn.setOnAction(e -> undo());
+        redoBtn.setOnAction(e -> redo());
         saveBtn.setOnAction(e -> saveCanvas());
         loadBtn.setOnAction(e -> loadImage());
+        posterBtn.setOnAction(e -> exportPoster());
         gridToggle.setOnAction(e -> toggleGrid());
+        collabBtn.setOnAction(e -> toggleCollaboration());
+        metricsToggle.setOnAction(e -> toggleMetrics(metricsToggle.isSelected()));
+        recordToggle.setOnAction(e -> toggleRecording(recordToggle.isSelected()));
+        replayBtn.setOnAction(e -> openReplay());
+
+        // Pages, each its own board
+        pageList.setItems(workspace.getPages());
+        pageList.setCellFactory(list -> new PageCell());
+        pageList.getSelectionModel().select(workspace.getActive());
+        pageList.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) {
+                showPage(newVal);
+            }
+        });
+        workspace.setOnError(error -> showError("Error putting a page away: " + error.getMessage()));
+        workspace.getPages().addListener((ListChangeListener<Page>) change ->
+                autosave.setPages(workspace.getPages().stream().map(Page::getId).toList()));
+        addPageBtn.setOnAction(e -> addPage());
+        deletePageBtn.setOnAction(e -> deletePage());
+
+        // Replay controls, shown only while a recording is replayed
+        replaySpeed.getItems().addAll("0.5x", "1x", "2x", "4x", "8x", "16x");
+        replaySpeed.setValue("1x");
+        replayPlayBtn.setOnAction(e -> toggleReplayPlaying());
+        replaySlider.valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (!updatingReplayBar && replay != null) {
+                replay.seek(newVal.longValue());
+            }
+        });
+        replaySpeed.setOnAction(e -> {
+            if (replay != null) {
+                replay.setSpeed(Double.parseDouble(replaySpeed.getValue().replace("x", "")));
+            }
+        });
+        closeReplayBtn.setOnAction(e -> closeReplay());
+        setExportControlsVisible(false);
     }
 
     private void handleMousePressed(MouseEvent event) {
-        startX = event.getX();
-        startY = event.getY();
+        // Other buttons pan the view; the board is read-only while a file loads or a recording plays
+        if (event.getButton() != MouseButton.PRIMARY || loading || replay != null) return;
+
+        startX = renderer.toWorldX(event.getX());
+        startY = renderer.toWorldY(event.getY());
         drawing = true;
 
         if (currentTool.equals("Text")) {
-            addTextAtPosition(startX, startY);
+            if (model.hitTest(startX, startY, 0) instanceof TextObject label) {
+                editText(label);
+            } else {
+                addTextAtPosition(startX, startY);
+            }
+        } else if (currentTool.equals("Object Eraser")) {
+            objectEraser = new ObjectEraser(model, strokeWidth() / 2, startX, startY);
+            showErased(objectEraser.moveTo(startX, startY));
+        } else if (currentTool.equals("Pencil") || currentTool.equals("Eraser")) {
+            // Redundant samples are dropped as they arrive, within a pixel at the current zoom
+            strokeSimplifier.begin(strokePoints, startX, startY, 1.0, System.nanoTime(),
+                    DrawingTools.SIMPLIFY_TOLERANCE_PIXELS / renderer.getViewport().getScale());
+            overlay.hideCursor();
+            overlay.setStroke(strokePoints,
+                    currentTool.equals("Eraser") ? canvasBackground : colorPicker.getValue(), strokeWidth());
+        }
+    }
+
+    private void updateCursor(MouseEvent event) {
+        if (currentTool.equals("Pencil") || currentTool.contains("Eraser")) {
+            overlay.showCursor(event.getX(), event.getY(), strokeWidth());
         } else {
-            gc.beginPath();
-            gc.moveTo(startX, startY);
+            overlay.hideCursor();
         }
     }
 
     private void handleMouseDragged(MouseEvent event) {
         if (!drawing) return;
 
-        double currentX = event.getX();
-        double currentY = event.getY();
+        // Samples are only queued here and handled together on the next pulse
+        pointerQueue.add(event.getX(), event.getY(), 1.0, System.nanoTime());
+    }
 
+    // Runs once per frame, however many drag events arrived since the last one
+    private void drainPointerQueue() {
+        if (pointerQueue.isEmpty()) return;
+        renderer.getMetrics().inputHandled(pointerQueue);
+        int last = pointerQueue.size() - 1;
         switch (currentTool) {
             case "Pencil":
-                gc.lineTo(currentX, currentY);
-                gc.stroke();
-                break;
             case "Eraser":
-                gc.setStroke(canvasBackground);
-                gc.setLineWidth(brushSizeSlider.getValue() * 2);
-                gc.lineTo(currentX, currentY);
-                gc.stroke();
-                gc.setStroke(colorPicker.getValue());
-                gc.setLineWidth(brushSizeSlider.getValue());
+                if (strokePoints.isEmpty()) break;
+                for (int i = 0; i <= last; i++) {
+                    strokeSimplifier.add(renderer.toWorldX(pointerQueue.x(i)), renderer.toWorldY(pointerQueue.y(i)),
+                            pointerQueue.pressure(i), pointerQueue.nanos(i));
+                }
+                overlay.strokeChanged();
+                break;
+            case "Object Eraser":
+                if (objectEraser == null) break;
+                for (int i = 0; i <= last; i++) {
+                    showErased(objectEraser.moveTo(renderer.toWorldX(pointerQueue.x(i)),
+                            renderer.toWorldY(pointerQueue.y(i))));
+                }
+                overlay.showCursor(pointerQueue.x(last), pointerQueue.y(last), strokeWidth());
+                break;
+            case "Line":
+            case "Rectangle":
+            case "Circle":
+                // Only the newest position matters for a rubber band
+                overlay.setPreview(createShape(0, renderer.toWorldX(pointerQueue.x(last)),
+                        renderer.toWorldY(pointerQueue.y(last))));
                 break;
         }
+        pointerQueue.clear();
     }
 
     private void handleMouseReleased(MouseEvent event) {
-        if (!drawing) return;
+        if (!drawing || event.getButton() != MouseButton.PRIMARY) return;
+        drainPointerQueue();
 
-        double endX = event.getX();
-        double endY = event.getY();
+        double endX = renderer.toWorldX(event.getX());
+        double endY = renderer.toWorldY(event.getY());
 
         switch (currentTool) {
-            case "Line":
-                gc.strokeLine(startX, startY, endX, endY);
+            case "Pencil":
+            case "Eraser":
+                if (!strokePoints.isEmpty()) {
+                    strokeSimplifier.finish();
+                    int flags = currentTool.equals("Eraser") ? Stroke.FLAG_ERASER : 0;
+                    addObject(strokePoints.toStroke(model.nextId(), DrawingTools.toArgb(colorPicker.getValue()),
+                            (float) strokeWidth(), flags));
+                    strokePoints.clear();
+                }
+                overlay.clearStroke();
                 break;
-            case "Rectangle":
-                double width = Math.abs(endX - startX);
-                double height = Math.abs(endY - startY);
-                double x = Math.min(startX, endX);
-                double y = Math.min(startY, endY);
-                gc.strokeRect(x, y, width, height);
+            case "Object Eraser":
+                BoardEdit erased = objectEraser != null ? objectEraser.finish() : null;
+                objectEraser = null;
+                if (erased != null) {
+                    // Already on the board; recorded once so the whole gesture undoes in one step
+                    undoManager.record(erased);
+                    publish(erased);
+                    updateStatus("Erased " + erased.removed().size() + " object(s)");
+                }
                 break;
+            case "Line":
+            case "Rectangle":
             case "Circle":
-                double radius = Math.sqrt(Math.pow(endX - startX, 2) + Math.pow(endY - startY, 2));
-                gc.strokeOval(startX - radius, startY - radius, radius * 2, radius * 2);
+                addObject(createShape(model.nextId(), endX, endY));
+                // Replace the preview with the committed shape
+                overlay.setPreview(null);
                 break;
         }
 
         drawing = false;
-        gc.beginPath();
+    }
+
+    private void addObject(BoardObject object) {
+        applyEdit(new BoardEdit(List.of(), List.of(object)));
+    }
+
+    // Every change to the board goes through here so it can be undone
+    private void applyEdit(BoardEdit edit) {
+        if (replay != null) return;
+        edit.applyTo(model);
+        undoManager.record(edit);
+        renderer.invalidate(edit);
+        renderer.render();
+        publish(edit);
+        journal(edit);
+    }
+
+    private void undo() {
+        BoardEdit edit = undoManager.undo();
+        if (edit != null) {
+            renderer.invalidate(edit);
+            renderer.render();
+            publish(edit);
+            journal(edit);
+            updateStatus("Undo");
+        }
+    }
+
+    private void redo() {
+        BoardEdit edit = undoManager.redo();
+        if (edit != null) {
+            renderer.invalidate(edit);
+            renderer.render();
+            publish(edit);
+            journal(edit);
+            updateStatus("Redo");
+        }
+    }
+
+    // The object eraser changes the model as it moves and records the gesture on release
+    private void showErased(BoardEdit edit) {
+        if (edit == null) return;
+        renderer.invalidate(edit);
+        renderer.render();
+        journal(edit);
+    }
+
+    private void publish(BoardEdit edit) {
+        if (collabSession != null) {
+            collabSession.publish(edit);
+        }
+    }
+
+    private void toggleCollaboration() {
+        if (collabSession != null) {
+            leaveSession();
+            updateStatus("Left the shared board");
+            return;
+        }
+        TextInputDialog dialog = new TextInputDialog(String.valueOf(CollabProtocol.DEFAULT_PORT));
+        dialog.setTitle("Collaborate");
+        dialog.setHeaderText("Enter a port to host this board, or host:port to join another one:");
+        dialog.setContentText("Address:");
+        dialog.showAndWait().ifPresent(address -> {
+            closeReplay();
+            // The whole board is shared, so a lazily opened file is read in first
+            if (!ensureFullyLoaded()) return;
+            try {
+                collabSession = CollabSession.open(address, renderer);
+                collabSession.setOnStatus(this::updateStatus);
+                collabSession.setOnRemoteEdit(this::journal);
+                if (collabSession.isHost()) {
+                    updateStatus("Hosting on port " + collabSession.getPort());
+                } else {
+                    // The shared board replaces this one
+                    undoManager.clear();
+                    if (journal != null) {
+                        journal.reset(model.objects());
+                    }
+                    autosave.reset(model.objects());
+                    updateStatus("Joining " + address.trim() + "...");
+                }
+            } catch (IOException e) {
+                showError("Could not start collaboration: " + e.getMessage());
+            }
+        });
+    }
+
+    private void toggleRecording(boolean record) {
+        if (!record) {
+            stopRecording();
+            return;
+        }
+        recordToggle.setSelected(false);
+        // The recording starts from the whole board, so a lazily opened file is read in first
+        if (!ensureFullyLoaded()) return;
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Record Session");
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Whiteboard recordings (*.wbj)", "*." + SessionJournal.EXTENSION));
+        File file = fileChooser.showSaveDialog(drawingCanvas.getScene().getWindow());
+        if (file == null) return;
+        try {
+            journal = SessionJournal.create(file.toPath(), model.objects());
+            recordToggle.setSelected(true);
+            updateStatus("Recording to " + file.getName());
+        } catch (IOException e) {
+            showError("Could not start recording: " + e.getMessage());
+        }
+    }
+
+    private void stopRecording() {
+        if (journal == null) return;
+        recordToggle.setSelected(false);
+        try {
+            journal.close();
+            updateStatus("Recording saved");
+        } catch (IOException e) {
+            showError("Could not save the recording: " + e.getMessage());
+        }
+        journal = null;
+    }
+
+    private void journal(BoardEdit edit) {
+        if (journal != null) {
+            journal.record(edit);
+        }
+        autosave.record(edit);
+    }
+
+    private void openReplay() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Replay Session");
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Whiteboard recordings (*.wbj)", "*." + SessionJournal.EXTENSION));
+        File file = fileChooser.showOpenDialog(drawingCanvas.getScene().getWindow());
+        if (file == null) return;
+        SessionRecording recording;
+        try {
+            recording = SessionRecording.open(file.toPath());
+        } catch (IOException e) {
+            showError("Error opening recording: " + e.getMessage());
+            return;
+        }
+        // The replay takes over the board, as opening a file does
+        closeReplay();
+        leaveSession();
+        stopRecording();
+        closeLazyLoader();
+        undoManager.clear();
+        replay = new ReplayEngine(recording, renderer);
+        replay.setOnPositionChanged(this::updateReplayBar);
+        replay.setOnError(e -> showError("Error reading recording: " + e.getMessage()));
+        replaySlider.setMax(replay.getDurationMillis());
+        replaySpeed.setValue("1x");
+        replayBar.setVisible(true);
+        replayBar.setManaged(true);
+        replay.play();
+        updateStatus("Replaying " + file.getName());
+    }
+
+    // The board is left as the replay last showed it, to be drawn on as a new document
+    private void closeReplay() {
+        if (replay == null) return;
+        replay.dispose();
+        try {
+            replay.getRecording().close();
+        } catch (IOException ignored) {
+            // Only read from
+        }
+        replay = null;
+        replayBar.setVisible(false);
+        replayBar.setManaged(false);
+        autosave.reset(model.objects());
+    }
+
+    private void toggleReplayPlaying() {
+        if (replay.isPlaying()) {
+            replay.pause();
+        } else {
+            replay.play();
+        }
+        updateReplayBar();
+    }
+
+    private void updateReplayBar() {
+        updatingReplayBar = true;
+        replaySlider.setValue(replay.getPositionMillis());
+        updatingReplayBar = false;
+        replayTimeLabel.setText(ReplayEngine.formatTime(replay.getPositionMillis()) + " / "
+                + ReplayEngine.formatTime(replay.getDurationMillis()));
+        replayPlayBtn.setText(replay.isPlaying() ? "⏸" : "▶");
+    }
+
+    private void leaveSession() {
+        if (collabSession != null) {
+            try {
+                collabSession.close();
+            } catch (IOException ignored) {
+                // Leaving anyway
+            }
+            collabSession = null;
+        }
+    }
+
+    // Shows frame timings in place of the status until turned off, logging them to a file meanwhile
+    private void toggleMetrics(boolean show) {
+        FrameMetrics metrics = renderer.getMetrics();
+        if (!show) {
+            metrics.setHud(null);
+            try {
+                metricsExporter.close();
+                updateStatus("Metrics saved to " + metricsExporter.getFile());
+            } catch (IOException e) {
+                showError("Could not write metrics: " + e.getMessage());
+            }
+            metricsExporter = null;
+            return;
+        }
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path file = Path.of(System.getProperty("java.io.tmpdir"), "whiteboard-metrics-" + stamp + ".csv");
+        metricsExporter = new MetricsExporter(metrics, file, MetricsExporter.DEFAULT_PERIOD_SECONDS);
+        metrics.setHud(this::updateStatus);
+    }
+
+    private double strokeWidth() {
+        return currentTool.contains("Eraser") ? brushSizeSlider.getValue() * 2 : brushSizeSlider.getValue();
+    }
+
+    private ShapeObject createShape(long id, double endX, double endY) {
+        int color = DrawingTools.toArgb(colorPicker.getValue());
+        float width = (float) brushSizeSlider.getValue();
+        switch (currentTool) {
+            case "Rectangle":
+                return new ShapeObject(id, ShapeObject.RECTANGLE, (float) startX, (float) startY,
+                        (float) endX, (float) endY, color, width);
+            case "Circle":
+                double radius = Math.sqrt(Math.pow(endX - startX, 2) + Math.pow(endY - startY, 2));
+                return new ShapeObject(id, ShapeObject.OVAL, (float) (startX - radius), (float) (startY - radius),
+                        (float) (startX + radius), (float) (startY + radius), color, width);
+            default:
+                return new ShapeObject(id, ShapeObject.LINE, (float) startX, (float) startY,
+                        (float) endX, (float) endY, color, width);
+        }
     }
 
     private void setCurrentTool(String tool) {
@@ -178,6 +657,7 @@ public class WhiteboardController implements Initializable {
         circleBtn.getStyleClass().remove("active-tool");
         textBtn.getStyleClass().remove("active-tool");
         eraserBtn.getStyleClass().remove("active-tool");
+        objectEraserBtn.getStyleClass().remove("active-tool");
 
         switch (tool) {
             case "Pencil": pencilBtn.getStyleClass().add("active-tool"); break;
@@ -186,6 +666,7 @@ public class WhiteboardController implements Initializable {
             case "Circle": circleBtn.getStyleClass().add("active-tool"); break;
             case "Text": textBtn.getStyleClass().add("active-tool"); break;
             case "Eraser": eraserBtn.getStyleClass().add("active-tool"); break;
+            case "Object Eraser": objectEraserBtn.getStyleClass().add("active-tool"); break;
         }
     }
 
@@ -199,8 +680,13 @@ public class WhiteboardController implements Initializable {
         File file = fileChooser.showOpenDialog(drawingCanvas.getScene().getWindow());
         if (file != null) {
             try {
-                Image image = new Image(file.toURI().toString());
-                gc.drawImage(image, 50, 50, image.getWidth() / 2, image.getHeight() / 2);
+                String source = file.toURI().toString();
+                // Only the header is read here; pixels are decoded in the background at display size
+                Dimension2D size = renderer.getMedia().probe(source);
+                BoardObject object = new ImageObject(model.nextId(), source,
+                        (float) renderer.toWorldX(50), (float) renderer.toWorldY(50),
+                        (float) size.getWidth() / 2, (float) size.getHeight() / 2);
+                addObject(object);
                 updateStatus("Image added successfully");
             } catch (Exception e) {
                 showError("Error loading image: " + e.getMessage());
@@ -209,16 +695,7 @@ public class WhiteboardController implements Initializable {
     }
 
     private void addTextDialog() {
-        TextInputDialog dialog = new TextInputDialog();
-        dialog.setTitle("Add Text");
-        dialog.setHeaderText("Enter your text:");
-        dialog.setContentText("Text:");
-
-        dialog.showAndWait().ifPresent(text -> {
-            if (!text.trim().isEmpty()) {
-                addTextAtPosition(100, 100); // Default position
-            }
-        });
+        addTextAtPosition(100, 100); // Default position
     }
 
     private void addTextAtPosition(double x, double y) {
@@ -228,22 +705,40 @@ public class WhiteboardController implements Initializable {
 
         dialog.showAndWait().ifPresent(text -> {
             if (!text.trim().isEmpty()) {
-                gc.setFont(new javafx.scene.text.Font("Arial", brushSizeSlider.getValue() * 3));
-                gc.fillText(text, x, y);
+                BoardObject object = new TextObject(model.nextId(), text, "Arial",
+                        (float) brushSizeSlider.getValue() * 3, (float) x, (float) y,
+                        DrawingTools.toArgb(colorPicker.getValue()));
+                addObject(object);
                 updateStatus("Text added");
             }
         });
     }
 
+    // Labels stay objects, so one can be reworded, or removed by clearing its text
+    private void editText(TextObject label) {
+        TextInputDialog dialog = new TextInputDialog(label.text());
+        dialog.setTitle("Edit Text");
+        dialog.setHeaderText("Edit the text, or clear it to remove the label:");
+        dialog.setContentText("Text:");
+
+        dialog.showAndWait().ifPresent(text -> {
+            if (text.equals(label.text())) return;
+            // Replaced under the same id, so it keeps its place in the paint order
+            applyEdit(new BoardEdit(List.of(label),
+                    text.trim().isEmpty() ? List.of() : List.of(label.withText(text))));
+            updateStatus("Text edited");
+        });
+    }
+
     private void clearCanvas() {
-        gc.setFill(canvasBackground);
-        gc.fillRect(0, 0, drawingCanvas.getWidth(), drawingCanvas.getHeight());
+        if (!ensureFullyLoaded()) return;
+        // Repaint only where there was something to clear
+        applyEdit(new BoardEdit(new ArrayList<>(model.objects()), List.of()));
         updateStatus("Canvas cleared");
     }
 
     private void redrawCanvas() {
-        // This would redraw all elements if you had a drawing history
-        // For now, just clear and notify
+        renderer.redraw();
         updateStatus("Canvas resized");
     }
 
@@ -251,39 +746,331 @@ public class WhiteboardController implements Initializable {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Whiteboard");
         fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Whiteboard files (*.wbd)", "*." + FileManager.EXTENSION),
                 new FileChooser.ExtensionFilter("PNG files (*.png)", "*.png"),
                 new FileChooser.ExtensionFilter("JPEG files (*.jpg)", "*.jpg")
         );
 
         File file = fileChooser.showSaveDialog(drawingCanvas.getScene().getWindow());
-        if (file != null) {
-            try {
-                WritableImage writableImage = new WritableImage((int) drawingCanvas.getWidth(),
-                        (int) drawingCanvas.getHeight());
-                drawingCanvas.snapshot(null, writableImage);
+        if (file != null && FileManager.isBoardFile(file.toPath())) {
+            saveBoard(file.toPath());
+        } else if (file != null) {
+            // Encoding and writing happen in the background; drawing carries on
+            Task<Path> task = exportService.export(drawingCanvas, file.toPath());
+            exportProgress.progressProperty().bind(task.progressProperty());
+            cancelExportBtn.setOnAction(e -> task.cancel());
+            setExportControlsVisible(true);
+            updateStatus("Saving " + file.getName() + "...");
 
-                String extension = file.getName().substring(file.getName().lastIndexOf(".") + 1);
-                ImageIO.write(SwingFXUtils.fromFXImage(writableImage, null), extension, file);
+            task.setOnSucceeded(e -> {
+                setExportControlsVisible(false);
                 updateStatus("Canvas saved successfully: " + file.getName());
-            } catch (Exception e) {
-                showError("Error saving file: " + e.getMessage());
+            });
+            task.setOnFailed(e -> {
+                setExportControlsVisible(false);
+                showError("Error saving file: " + task.getException().getMessage());
+            });
+            task.setOnCancelled(e -> {
+                setExportControlsVisible(false);
+                updateStatus("Save cancelled");
+            });
+        }
+    }
+
+    // The whole board at print size, rendered off the FX thread from a copy of the object list
+    private void exportPoster() {
+        if (!ensureFullyLoaded()) return;
+        ChoiceDialog<Integer> dialog = new ChoiceDialog<>(PosterRenderer.MAX_SIZE, 2048, 4096, 8192,
+                PosterRenderer.MAX_SIZE);
+        dialog.setTitle("Export Poster");
+        dialog.setHeaderText("Render the whole board as a PNG poster");
+        dialog.setContentText("Pixels on the longer side:");
+        dialog.showAndWait().ifPresent(size -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Export Poster");
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PNG files (*.png)", "*.png"));
+            File file = fileChooser.showSaveDialog(drawingCanvas.getScene().getWindow());
+            if (file == null) return;
+            Task<Path> task = posterRenderer.export(currentMetadata(), new ArrayList<>(model.objects()), size,
+                    file.toPath());
+            exportProgress.progressProperty().bind(task.progressProperty());
+            cancelExportBtn.setOnAction(e -> task.cancel());
+            setExportControlsVisible(true);
+            updateStatus("Rendering " + file.getName() + "...");
+
+            task.setOnSucceeded(e -> {
+                setExportControlsVisible(false);
+                updateStatus("Poster exported: " + file.getName());
+            });
+            task.setOnFailed(e -> {
+                setExportControlsVisible(false);
+                showError("Error exporting poster: " + task.getException().getMessage());
+            });
+            task.setOnCancelled(e -> {
+                setExportControlsVisible(false);
+                updateStatus("Poster cancelled");
+            });
+        });
+    }
+
+    private void saveBoard(Path target) {
+        if (!ensureFullyLoaded()) return;
+        BoardMetadata metadata = currentMetadata();
+        // Objects are immutable, so a copy of the list is a consistent snapshot
+        Task<Path> task = documentService.save(target, metadata, new ArrayList<>(model.objects()));
+        updateStatus("Saving " + target.getFileName() + "...");
+        task.setOnSucceeded(e -> updateStatus("Board saved successfully: " + target.getFileName()));
+        task.setOnFailed(e -> showError("Error saving file: " + task.getException().getMessage()));
+    }
+
+    private void addPage() {
+        showPage(workspace.addPage());
+    }
+
+    private void deletePage() {
+        List<Page> pages = workspace.getPages();
+        if (pages.size() == 1) {
+            updateStatus("A workspace keeps at least one page");
+            return;
+        }
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, "Delete this page and everything on it?");
+        confirm.setTitle("Delete Page");
+        confirm.setHeaderText(null);
+        if (confirm.showAndWait().filter(ButtonType.OK::equals).isEmpty()) return;
+        Page doomed = workspace.getActive();
+        int index = pages.indexOf(doomed);
+        Page next = pages.get(index > 0 ? index - 1 : 1);
+        showPage(next);
+        if (workspace.getActive() == next) {
+            workspace.removePage(doomed);
+        }
+    }
+
+    private void stepPage(int step) {
+        List<Page> pages = workspace.getPages();
+        int index = pages.indexOf(workspace.getActive()) + step;
+        if (index >= 0 && index < pages.size()) {
+            showPage(pages.get(index));
+        }
+    }
+
+    // Another page replaces the board, as opening a board does, so the switch is not undoable or shared
+    private void showPage(Page page) {
+        if (page == workspace.getActive()) return;
+        if (loading || !ensureFullyLoaded()) {
+            pageList.getSelectionModel().select(workspace.getActive());
+            return;
+        }
+        closeReplay();
+        leaveSession();
+        Page from = workspace.getActive();
+        BoardMetadata left = currentMetadata();
+        Page.Contents contents = workspace.switchTo(page, left, new ArrayList<>(model.objects()));
+        autosave.showPage(page.getId(), left);
+        model.clear();
+        undoManager.clear();
+        pageList.getSelectionModel().select(page);
+        pageList.scrollTo(page);
+        if (contents != null) {
+            showPageContents(contents);
+            return;
+        }
+        // Pages far from the last one shown are decoded in the background first
+        renderer.redraw();
+        int generation = startLoad();
+        Task<Page.Contents> task = workspace.restore(page);
+        task.setOnSucceeded(e -> {
+            if (generation != loadGeneration) return;
+            loading = false;
+            showPageContents(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            if (generation != loadGeneration) return;
+            loading = false;
+            showError("Error loading page: " + task.getException().getMessage());
+            // The page keeps what it held, for another try later
+            if (workspace.getPages().contains(from)) {
+                showPage(from);
             }
+        });
+    }
+
+    private void showPageContents(Page.Contents contents) {
+        contents.objects().forEach(model::add);
+        applyMetadata(contents.metadata());
+        if (journal != null) {
+            journal.reset(model.objects());
+        }
+    }
+
+    private BoardMetadata currentMetadata() {
+        Viewport viewport = renderer.getViewport();
+        return new BoardMetadata(DrawingTools.toArgb(canvasBackground), renderer.isGridEnabled(),
+                viewport.getX(), viewport.getY(), viewport.getScale());
+    }
+
+    private void openBoard(Path source) {
+        // Opening a board starts a new document, so it is not undoable, shared or recorded
+        closeReplay();
+        leaveSession();
+        stopRecording();
+        closeLazyLoader();
+        int generation = startLoad();
+        model.clear();
+        undoManager.clear();
+        renderer.getMedia().clear();
+        renderer.redraw();
+        autosave.opened(source);
+        updateStatus("Loading " + source.getFileName() + "...");
+
+        // Indexed files are mapped and decoded only where the view is
+        Task<MappedBoard> task = documentService.map(source);
+        task.setOnSucceeded(e -> {
+            MappedBoard board = task.getValue();
+            if (generation != loadGeneration) {
+                closeQuietly(board);
+                return;
+            }
+            if (board == null) {
+                streamBoard(source, generation);
+                return;
+            }
+            applyMetadata(board.getMetadata());
+            lazyLoader = new LazyBoardLoader(board, renderer);
+            lazyLoader.setOnError(error -> showError("Error loading file: " + error.getMessage()));
+            lazyLoader.requestVisible();
+            loading = false;
+            updateStatus("Board loaded successfully: " + source.getFileName());
+        });
+        task.setOnFailed(e -> {
+            if (generation != loadGeneration) return;
+            loading = false;
+            showError("Error loading file: " + task.getException().getMessage());
+        });
+    }
+
+    private void streamBoard(Path source, int generation) {
+        Task<BoardMetadata> task = documentService.open(source, metadata -> {
+            if (generation == loadGeneration) {
+                applyMetadata(metadata);
+            }
+        }, batch -> {
+            // Batches queued before a newer load began belong to the board it replaced
+            if (generation != loadGeneration) return;
+            for (BoardObject object : batch) {
+                model.add(object);
+                renderer.invalidate(object);
+            }
+            renderer.render();
+        });
+        loadTask = task;
+        task.setOnSucceeded(e -> {
+            if (generation != loadGeneration) return;
+            loading = false;
+            updateStatus("Board loaded successfully: " + source.getFileName());
+        });
+        task.setOnFailed(e -> {
+            if (generation != loadGeneration) return;
+            loading = false;
+            showError("Error loading file: " + task.getException().getMessage());
+        });
+    }
+
+    /**
+     * Starts a board or page load in place of any still running. A replaced
+     * file read is cancelled; anything else runs to the end, as mapping hands
+     * back a file to close and restores also keep the workspace and the log
+     * in order, and only what it brings back is dropped.
+     */
+    private int startLoad() {
+        if (loadTask != null) {
+            loadTask.cancel(false);
+            loadTask = null;
+        }
+        loading = true;
+        return ++loadGeneration;
+    }
+
+    private static void closeQuietly(MappedBoard board) {
+        if (board == null) return;
+        try {
+            board.close();
+        } catch (IOException ignored) {
+            // Only read from, and no longer wanted
         }
     }
 
+    private void pageInVisible() {
+        if (lazyLoader == null) return;
+        if (lazyLoader.isComplete()) {
+            lazyLoader = null;
+        } else {
+            lazyLoader.requestVisible();
+        }
+    }
+
+    /** Decodes whatever a lazily opened board has not loaded yet. */
+    private boolean ensureFullyLoaded() {
+        if (lazyLoader == null) return true;
+        try {
+            lazyLoader.loadAll();
+            lazyLoader = null;
+            return true;
+        } catch (IOException e) {
+            showError("Error loading file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void closeLazyLoader() {
+        if (lazyLoader != null) {
+            lazyLoader.close();
+            lazyLoader = null;
+        }
+    }
+
+    private void applyMetadata(BoardMetadata metadata) {
+        canvasBackground = DrawingTools.toColor(metadata.background());
+        gridToggle.setSelected(metadata.gridEnabled());
+        renderer.setGridEnabled(metadata.gridEnabled());
+        renderer.setBackground(canvasBackground);
+        renderer.getViewport().set(metadata.viewX(), metadata.viewY(), metadata.viewScale());
+        renderer.redraw();
+    }
+
+    private void setExportControlsVisible(boolean visible) {
+        if (!visible) {
+            exportProgress.progressProperty().unbind();
+        }
+        exportProgress.setVisible(visible);
+        exportProgress.setManaged(visible);
+        cancelExportBtn.setVisible(visible);
+        cancelExportBtn.setManaged(visible);
+    }
+
     private void loadImage() {
         FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Load Image to Canvas");
+        fileChooser.setTitle("Load Whiteboard or Image");
         fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Whiteboard files (*.wbd)", "*." + FileManager.EXTENSION),
                 new FileChooser.ExtensionFilter("Image Files", "*.png", "*.jpg", "*.jpeg", "*.gif")
         );
 
         File file = fileChooser.showOpenDialog(drawingCanvas.getScene().getWindow());
-        if (file != null) {
+        if (file != null && FileManager.isBoardFile(file.toPath())) {
+            openBoard(file.toPath());
+        } else if (file != null) {
+            if (!ensureFullyLoaded()) return;
             try {
-                Image image = new Image(file.toURI().toString());
-                clearCanvas();
-                gc.drawImage(image, 0, 0, drawingCanvas.getWidth(), drawingCanvas.getHeight());
+                String source = file.toURI().toString();
+                renderer.getMedia().probe(source);
+                // Stretch the image over the visible area
+                double scale = renderer.getViewport().getScale();
+                BoardObject object = new ImageObject(model.nextId(), source,
+                        (float) renderer.toWorldX(0), (float) renderer.toWorldY(0),
+                        (float) (drawingCanvas.getWidth() / scale), (float) (drawingCanvas.getHeight() / scale));
+                // Replaces the board, but as an undoable edit
+                applyEdit(new BoardEdit(new ArrayList<>(model.objects()), List.of(object)));
                 updateStatus("Image loaded successfully");
             } catch (Exception e) {
                 showError("Error loading image: " + e.getMessage());
@@ -292,29 +1079,11 @@ public class WhiteboardController implements Initializable {
     }
 
     private void toggleGrid() {
-        if (gridToggle.isSelected()) {
-            drawGrid();
-            updateStatus("Grid enabled");
-        } else {
-            clearCanvas();
-            updateStatus("Grid disabled");
-        }
-    }
-
-    private void drawGrid() {
-        double spacing = 20;
-        gc.setStroke(Color.LIGHTGRAY);
-        gc.setLineWidth(0.5);
-
-        for (double x = 0; x < drawingCanvas.getWidth(); x += spacing) {
-            gc.strokeLine(x, 0, x, drawingCanvas.getHeight());
-        }
-        for (double y = 0; y < drawingCanvas.getHeight(); y += spacing) {
-            gc.strokeLine(0, y, drawingCanvas.getWidth(), y);
-        }
-
-        gc.setStroke(colorPicker.getValue());
-        gc.setLineWidth(brushSizeSlider.getValue());
+        // The grid sits under the drawing, so toggling it keeps the content
+        renderer.setGridEnabled(gridToggle.isSelected());
+        renderer.render();
+        autosave.setMetadata(currentMetadata());
+        updateStatus(gridToggle.isSelected() ? "Grid enabled" : "Grid disabled");
     }
 
     private void updateStatus(String message) {
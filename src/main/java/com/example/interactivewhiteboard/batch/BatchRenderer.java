@@ -0,0 +1,219 @@
+package com.example.interactivewhiteboard.batch;
+
+import com.example.interactivewhiteboard.components.BoardMetadata;
+import com.example.interactivewhiteboard.components.BoardObject;
+import com.example.interactivewhiteboard.components.FileManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Renders saved boards to PNG or PDF thumbnails without starting the UI:
+ * <pre>
+ * BatchRenderer [--format png|pdf] [--size pixels] [--threads n] [--out dir] board.wbd|dir ...
+ * </pre>
+ * Directories are searched for board files, and their layout is kept under
+ * the output directory. Boards are split across a fork-join pool, one task
+ * per board, and a summary with throughput is printed at the end. Boards
+ * that fail are reported and skipped; the exit status is 1 if any did.
+ */
+public class BatchRenderer {
+    private static final int DEFAULT_SIZE = 512;
+
+    private final BoardRasterizer rasterizer = new BoardRasterizer();
+    private final String format;
+    private final int size;
+    private final Path outputDir;
+
+    private final LongAdder boards = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder objects = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder renderNanos = new LongAdder();
+    private final LongAccumulator slowestNanos = new LongAccumulator(Math::max, 0);
+
+    public BatchRenderer(String format, int size, Path outputDir) {
+        this.format = format;
+        this.size = size;
+        this.outputDir = outputDir;
+    }
+
+    /** A board to render and where its output goes, relative to the output directory. */
+    record Job(Path source, Path target) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        String format = "png";
+        int size = DEFAULT_SIZE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path outputDir = Path.of(".");
+        List<Path> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--format":
+                        format = args[++i].toLowerCase();
+                        break;
+                    case "--size":
+                        size = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--out":
+                        outputDir = Path.of(args[++i]);
+                        break;
+                    default:
+                        inputs.add(Path.of(args[i]));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            inputs.clear();
+        }
+        if (inputs.isEmpty() || size < 1 || threads < 1 || !(format.equals("png") || format.equals("pdf"))) {
+            System.err.println("Usage: BatchRenderer [--format png|pdf] [--size pixels] [--threads n]"
+                    + " [--out dir] board.wbd|dir ...");
+            System.exit(2);
+            return;
+        }
+
+        BatchRenderer renderer = new BatchRenderer(format, size, outputDir);
+        List<Job> jobs = renderer.collect(inputs);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            pool.invoke(renderer.new RenderTask(jobs, 0, jobs.size()));
+        } finally {
+            pool.shutdown();
+        }
+        renderer.printSummary(System.nanoTime() - start, threads);
+        System.exit(renderer.failures.sum() > 0 ? 1 : 0);
+    }
+
+    List<Job> collect(List<Path> inputs) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> files = Files.walk(input)) {
+                    files.filter(FileManager::isBoardFile)
+                            .sorted()
+                            .forEach(file -> jobs.add(new Job(file, targetFor(input.relativize(file)))));
+                }
+            } else {
+                jobs.add(new Job(input, targetFor(input.getFileName())));
+            }
+        }
+        return jobs;
+    }
+
+    private Path targetFor(Path relative) {
+        String name = relative.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return relative.resolveSibling(base + "." + format);
+    }
+
+    /** Splits the jobs in half until one is left, so idle workers can steal the other half. */
+    private final class RenderTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Job> jobs;
+        private final int from, to;
+
+        RenderTask(List<Job> jobs, int from, int to) {
+            this.jobs = jobs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                render(jobs.get(from));
+            } else if (to > from) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RenderTask(jobs, from, middle), new RenderTask(jobs, middle, to));
+            }
+        }
+    }
+
+    void render(Job job) {
+        long start = System.nanoTime();
+        try {
+            List<BoardObject> loaded = new ArrayList<>();
+            BoardMetadata metadata;
+            try (InputStream in = Files.newInputStream(job.source())) {
+                metadata = FileManager.read(in, loaded::addAll);
+            }
+            // Chunks are grouped by area, so restore the paint order
+            loaded.sort(Comparator.comparingLong(BoardObject::id));
+            BufferedImage image = rasterizer.renderThumbnail(metadata, loaded, size);
+
+            Path target = outputDir.resolve(job.target());
+            write(image, target);
+            bytesRead.add(Files.size(job.source()));
+            bytesWritten.add(Files.size(target));
+            objects.add(loaded.size());
+            boards.increment();
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            System.err.println(job.source() + ": " + e.getMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+        renderNanos.add(elapsed);
+        slowestNanos.accumulate(elapsed);
+    }
+
+    // Through a temporary file so a failed render never leaves a partial thumbnail behind
+    private void write(BufferedImage image, Path target) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, ".render-", ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+                if (format.equals("pdf")) {
+                    PdfWriter.write(image, out);
+                } else if (!ImageIO.write(image, format, out)) {
+                    throw new IOException("No writer for " + format);
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void printSummary(long elapsedNanos, int threads) {
+        double seconds = elapsedNanos / 1e9;
+        long done = boards.sum();
+        long attempted = done + failures.sum();
+        System.out.printf("Rendered %d of %d boards in %.2f s on %d threads%n", done, attempted, seconds, threads);
+        System.out.printf("  %.1f boards/s, %.0f objects/s, %.1f MB/s read%n",
+                done / seconds, objects.sum() / seconds, bytesRead.sum() / 1e6 / seconds);
+        System.out.printf("  %.1f ms per board on average, %.1f ms slowest, %.1f MB written%n",
+                attempted > 0 ? renderNanos.sum() / 1e6 / attempted : 0, slowestNanos.get() / 1e6,
+                bytesWritten.sum() / 1e6);
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.interactivewhiteboard.batch;
+
+import com.example.interactivewhiteboard.components.BoardMetadata;
+import com.example.interactivewhiteboard.components.BoardObject;
+import com.example.interactivewhiteboard.components.ImageObject;
+import com.example.interactivewhiteboard.components.ShapeObject;
+import com.example.interactivewhiteboard.components.Stroke;
+import com.example.interactivewhiteboard.components.TextLayout;
+import com.example.interactivewhiteboard.components.TextObject;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Paints boards with Java2D, so they can be rendered without the FX toolkit.
+ * Objects are drawn the way {@link com.example.interactivewhiteboard.components.DrawingTools}
+ * draws them on the canvas, strokes included as Catmull-Rom curves. Safe to
+ * share between threads; decoded images are kept in a small shared cache.
+ */
+public class BoardRasterizer {
+    // Empty space around the content of a thumbnail, in world units
+    private static final double MARGIN = 20;
+    private static final double LOD_MIN_PIXELS = 2;
+    private static final double GRID_SPACING = 20;
+    // Grid lines closer than this in the output are thinned out, as on screen
+    private static final double MIN_GRID_PIXELS = 8;
+    private static final Color GRID_COLOR = new Color(211, 211, 211);
+    private static final int MAX_CACHED_IMAGES = 32;
+
+    private final Map<String, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+            return size() > MAX_CACHED_IMAGES;
+        }
+    };
+
+    /**
+     * Renders everything on the board, scaled to fit {@code maxSize} pixels
+     * on the longer side. {@code objects} must be in paint (id) order.
+     */
+    public BufferedImage renderThumbnail(BoardMetadata metadata, List<BoardObject> objects, int maxSize) {
+        Rectangle2D bounds = contentBounds(objects, maxSize);
+        double minX = bounds.getMinX(), minY = bounds.getMinY();
+        double scale = maxSize / Math.max(bounds.getWidth(), bounds.getHeight());
+        int width = Math.max(1, (int) Math.ceil(bounds.getWidth() * scale));
+        int height = Math.max(1, (int) Math.ceil(bounds.getHeight() * scale));
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            Color background = toColor(metadata.background());
+            g.setColor(background);
+            g.fillRect(0, 0, width, height);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.scale(scale, scale);
+            g.translate(-minX, -minY);
+            for (BoardObject object : objects) {
+                draw(g, object, background, scale);
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * The area around everything on the board, with a margin, in world
+     * units; {@code emptySize} square for an empty board.
+     */
+    public static Rectangle2D contentBounds(List<BoardObject> objects, double emptySize) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (BoardObject object : objects) {
+            minX = Math.min(minX, object.minX());
+            minY = Math.min(minY, object.minY());
+            maxX = Math.max(maxX, object.maxX());
+            maxY = Math.max(maxY, object.maxY());
+        }
+        if (objects.isEmpty()) {
+            minX = minY = 0;
+            maxX = maxY = emptySize;
+        }
+        return new Rectangle2D.Double(minX - MARGIN, minY - MARGIN,
+                maxX - minX + 2 * MARGIN, maxY - minY + 2 * MARGIN);
+    }
+
+    /** Draws the grid over a world-space area the way the canvas shows it at {@code scale}. */
+    public static void drawGrid(Graphics2D g, double x0, double y0, double x1, double y1, double scale) {
+        double spacing = GRID_SPACING;
+        while (spacing * scale < MIN_GRID_PIXELS) {
+            spacing *= 2;
+        }
+        g.setColor(GRID_COLOR);
+        g.setStroke(new BasicStroke((float) (0.5 / scale)));
+        // Multiples of the spacing, so separately drawn areas line up
+        for (double x = Math.floor(x0 / spacing) * spacing; x < x1; x += spacing) {
+            g.draw(new Line2D.Double(x, y0, x, y1));
+        }
+        for (double y = Math.floor(y0 / spacing) * spacing; y < y1; y += spacing) {
+            g.draw(new Line2D.Double(x0, y, x1, y));
+        }
+    }
+
+    /** Draws one object; {@code g} already maps world coordinates to pixels at {@code scale}. */
+    public void draw(Graphics2D g, BoardObject object, Color background, double scale) {
+        if (object instanceof Stroke stroke) {
+            drawStroke(g, stroke, background, scale);
+        } else if (object instanceof ShapeObject shape) {
+            drawShape(g, shape);
+        } else if (object instanceof TextObject text) {
+            g.setColor(toColor(text.color()));
+            g.setFont(TextLayout.font(text.family(), text.size()));
+            g.drawString(text.text(), text.x(), text.y());
+        } else if (object instanceof ImageObject image) {
+            BufferedImage decoded = image(image.source());
+            if (decoded != null) {
+                g.drawImage(decoded, Math.round(image.x()), Math.round(image.y()),
+                        Math.round(image.width()), Math.round(image.height()), null);
+            }
+        }
+    }
+
+    public static Color toColor(int argb) {
+        return new Color(argb, true);
+    }
+
+    private static void drawStroke(Graphics2D g, Stroke stroke, Color background, double scale) {
+        g.setColor(stroke.isEraser() ? background : toColor(stroke.color()));
+        double extent = Math.max(stroke.maxX() - stroke.minX(), stroke.maxY() - stroke.minY()) * scale;
+        if (extent < LOD_MIN_PIXELS) {
+            g.fill(new Rectangle2D.Float(stroke.minX(), stroke.minY(),
+                    stroke.maxX() - stroke.minX(), stroke.maxY() - stroke.minY()));
+            return;
+        }
+        g.setStroke(new BasicStroke(stroke.width(), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+
+        double minStep = 1 / scale;
+        double minStepSq = minStep * minStep;
+        int last = stroke.pointCount() - 1;
+        Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, Math.max(2, last * 3));
+        path.moveTo(stroke.x(0), stroke.y(0));
+        if (last == 0) {
+            path.lineTo(stroke.x(0), stroke.y(0));
+        }
+
+        // Same spans as DrawingTools.drawStroke, with the ends repeated at either side
+        double p0x = stroke.x(0), p0y = stroke.y(0);
+        double p1x = p0x, p1y = p0y;
+        double p2x = Double.NaN, p2y = Double.NaN;
+        for (int i = 1; i <= last; i++) {
+            double x = stroke.x(i), y = stroke.y(i);
+            double fromX = Double.isNaN(p2x) ? p1x : p2x, fromY = Double.isNaN(p2x) ? p1y : p2y;
+            double dx = x - fromX, dy = y - fromY;
+            if (i != last && dx * dx + dy * dy < minStepSq) {
+                continue;
+            }
+            if (Double.isNaN(p2x)) {
+                p2x = x;
+                p2y = y;
+                continue;
+            }
+            curveSpan(path, p0x, p0y, p1x, p1y, p2x, p2y, x, y);
+            p0x = p1x;
+            p0y = p1y;
+            p1x = p2x;
+            p1y = p2y;
+            p2x = x;
+            p2y = y;
+        }
+        if (!Double.isNaN(p2x)) {
+            curveSpan(path, p0x, p0y, p1x, p1y, p2x, p2y, p2x, p2y);
+        }
+        g.draw(path);
+    }
+
+    private static void curveSpan(Path2D path, double p0x, double p0y, double p1x, double p1y,
+                                  double p2x, double p2y, double p3x, double p3y) {
+        path.curveTo(p1x + (p2x - p0x) / 6, p1y + (p2y - p0y) / 6,
+                p2x - (p3x - p1x) / 6, p2y - (p3y - p1y) / 6, p2x, p2y);
+    }
+
+    private static void drawShape(Graphics2D g, ShapeObject shape) {
+        g.setColor(toColor(shape.color()));
+        g.setStroke(new BasicStroke(shape.width()));
+        float x = Math.min(shape.x1(), shape.x2());
+        float y = Math.min(shape.y1(), shape.y2());
+        float w = Math.abs(shape.x2() - shape.x1());
+        float h = Math.abs(shape.y2() - shape.y1());
+        switch (shape.kind()) {
+            case ShapeObject.LINE:
+                g.draw(new Line2D.Float(shape.x1(), shape.y1(), shape.x2(), shape.y2()));
+                break;
+            case ShapeObject.RECTANGLE:
+                g.draw(new Rectangle2D.Float(x, y, w, h));
+                break;
+            case ShapeObject.OVAL:
+                g.draw(new Ellipse2D.Float(x, y, w, h));
+                break;
+        }
+    }
+
+    // Missing or unreadable images are skipped, as the canvas skips images that fail to load
+    private BufferedImage image(String source) {
+        synchronized (images) {
+            BufferedImage cached = images.get(source);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        BufferedImage decoded;
+        try {
+            decoded = ImageIO.read(new URL(source));
+        } catch (IOException | IllegalArgumentException e) {
+            decoded = null;
+        }
+        if (decoded != null) {
+            synchronized (images) {
+                images.put(source, decoded);
+            }
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.interactivewhiteboard.batch;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a raster as a one-page PDF: the page is the image, one point per
+ * pixel, stored as a Flate-compressed RGB image. Just enough of the format
+ * for thumbnails, with no dependency on a PDF library.
+ */
+public final class PdfWriter {
+
+    private PdfWriter() {
+    }
+
+    public static void write(BufferedImage image, OutputStream stream) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        ByteArrayOutputStream pixels = new ByteArrayOutputStream(width * height);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(pixels, deflater, 1 << 16)) {
+            int[] row = new int[width];
+            byte[] rgb = new byte[width * 3];
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    rgb[x * 3] = (byte) (row[x] >> 16);
+                    rgb[x * 3 + 1] = (byte) (row[x] >> 8);
+                    rgb[x * 3 + 2] = (byte) row[x];
+                }
+                out.write(rgb);
+            }
+        } finally {
+            deflater.end();
+        }
+        byte[] content = ("q " + width + " 0 0 " + height + " 0 0 cm /Im0 Do Q\n").getBytes(StandardCharsets.US_ASCII);
+
+        Output out = new Output(stream);
+        long[] offsets = new long[6];
+        out.ascii("%PDF-1.4\n");
+        offsets[1] = out.object(1, "<< /Type /Catalog /Pages 2 0 R >>");
+        offsets[2] = out.object(2, "<< /Type /Pages /Kids [3 0 R] /Count 1 >>");
+        offsets[3] = out.object(3, "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 " + width + " " + height + "]"
+                + " /Resources << /XObject << /Im0 4 0 R >> >> /Contents 5 0 R >>");
+        offsets[4] = out.stream(4, "/Type /XObject /Subtype /Image /Width " + width + " /Height " + height
+                + " /ColorSpace /DeviceRGB /BitsPerComponent 8 /Filter /FlateDecode", pixels);
+        ByteArrayOutputStream contentStream = new ByteArrayOutputStream(content.length);
+        contentStream.write(content);
+        offsets[5] = out.stream(5, "", contentStream);
+
+        long xref = out.position;
+        out.ascii("xref\n0 6\n0000000000 65535 f \n");
+        for (int i = 1; i < offsets.length; i++) {
+            out.ascii(String.format("%010d 00000 n \n", offsets[i]));
+        }
+        out.ascii("trailer\n<< /Size 6 /Root 1 0 R >>\nstartxref\n" + xref + "\n%%EOF\n");
+        stream.flush();
+    }
+
+    /** Tracks the byte offset of each object for the cross-reference table. */
+    private static final class Output {
+        final OutputStream stream;
+        long position;
+
+        Output(OutputStream stream) {
+            this.stream = stream;
+        }
+
+        void ascii(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+            stream.write(bytes);
+            position += bytes.length;
+        }
+
+        long object(int number, String dictionary) throws IOException {
+            long start = position;
+            ascii(number + " 0 obj\n" + dictionary + "\nendobj\n");
+            return start;
+        }
+
+        long stream(int number, String entries, ByteArrayOutputStream data) throws IOException {
+            long start = position;
+            ascii(number + " 0 obj\n<< " + entries + " /Length " + data.size() + " >>\nstream\n");
+            data.writeTo(stream);
+            position += data.size();
+            ascii("\nendstream\nendobj\n");
+            return start;
+        }
+    }
+}
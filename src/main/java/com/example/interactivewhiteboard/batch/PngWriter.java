@@ -0,0 +1,175 @@
+package com.example.interactivewhiteboard.batch;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.DoubleConsumer;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes an opaque RGB raster as a PNG, compressing bands of rows in
+ * parallel. Each band is deflated on its own and ends on a byte boundary,
+ * so the bands join up into the single zlib stream the format asks for;
+ * each goes out as its own IDAT chunk, in order, while later bands are
+ * still being compressed. Rows use the Sub filter, which turns the flat
+ * areas of a board into runs of zeros.
+ */
+public final class PngWriter {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int BAND_ROWS = 64;
+    private static final int ADLER_BASE = 65521;
+
+    private PngWriter() {
+    }
+
+    /** A compressed band: an IDAT chunk's data and CRC, and the Adler-32 of what went into it. */
+    private record Band(byte[] data, int length, int crc, int adler, long rawLength) {
+    }
+
+    /**
+     * Writes {@code pixels}, one int per pixel in 0xRRGGBB form, row after
+     * row. {@code progress} hears the fraction written so far and may throw
+     * to stop.
+     */
+    public static void write(IntBuffer pixels, int width, int height, OutputStream stream, ForkJoinPool pool,
+                             DoubleConsumer progress) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.write(SIGNATURE);
+        // 8 bits per channel, truecolour, no interlacing
+        writeChunk(out, "IHDR", ByteBuffer.allocate(13).putInt(width).putInt(height).put((byte) 8).put((byte) 2)
+                .array());
+        writeChunk(out, "IDAT", new byte[] {0x78, (byte) 0x9C});
+
+        // Enough bands in flight to keep every worker busy, without holding the whole image compressed
+        int bands = (height + BAND_ROWS - 1) / BAND_ROWS;
+        ArrayDeque<Future<Band>> pending = new ArrayDeque<>();
+        int next = 0;
+        int adler = 1;
+        try {
+            for (int written = 0; written < bands; written++) {
+                while (next < bands && pending.size() < pool.getParallelism() * 2) {
+                    int band = next++;
+                    pending.add(pool.submit(() -> compress(pixels, width, height, band, band == bands - 1)));
+                }
+                Band band = pending.remove().get();
+                writeChunk(out, band.data(), band.length(), band.crc());
+                adler = combineAdler(adler, band.adler(), band.rawLength());
+                progress.accept((written + 1) / (double) bands);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing PNG", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            pending.forEach(future -> future.cancel(false));
+        }
+
+        writeChunk(out, "IDAT", ByteBuffer.allocate(4).putInt(adler).array());
+        writeChunk(out, "IEND", new byte[0]);
+        out.flush();
+    }
+
+    private static Band compress(IntBuffer pixels, int width, int height, int band, boolean last) {
+        int y0 = band * BAND_ROWS;
+        int rows = Math.min(BAND_ROWS, height - y0);
+        int stride = 1 + width * 3;
+        byte[] raw = new byte[rows * stride];
+        int[] row = new int[width];
+        for (int r = 0; r < rows; r++) {
+            pixels.get((y0 + r) * width, row, 0, width);
+            int at = r * stride;
+            raw[at++] = 1;  // Sub: each byte less the same channel of the pixel to its left
+            int previous = 0;
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                raw[at++] = (byte) ((rgb >> 16) - (previous >> 16));
+                raw[at++] = (byte) ((rgb >> 8) - (previous >> 8));
+                raw[at++] = (byte) (rgb - previous);
+                previous = rgb;
+            }
+        }
+        Adler32 adler = new Adler32();
+        adler.update(raw);
+
+        // Room for the chunk type in front, so the CRC can be taken over the array as it is
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        byte[] data = new byte[4 + raw.length / 8 + 64];
+        int length = 4;
+        try {
+            deflater.setInput(raw);
+            if (last) {
+                deflater.finish();
+            }
+            while (true) {
+                if (length == data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+                int count = last
+                        ? deflater.deflate(data, length, data.length - length)
+                        : deflater.deflate(data, length, data.length - length, Deflater.SYNC_FLUSH);
+                length += count;
+                if (last ? deflater.finished() : length < data.length) {
+                    break;
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        System.arraycopy("IDAT".getBytes(StandardCharsets.US_ASCII), 0, data, 0, 4);
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return new Band(data, length, (int) crc.getValue(), (int) adler.getValue(), raw.length);
+    }
+
+    // zlib's adler32_combine: the checksum of two pieces back to back, from each piece's checksum
+    private static int combineAdler(int first, int second, long secondLength) {
+        long remainder = secondLength % ADLER_BASE;
+        long sum1 = first & 0xFFFF;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (second & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((first >>> 16) & 0xFFFF) + ((second >>> 16) & 0xFFFF) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= 2L * ADLER_BASE) {
+            sum2 -= 2L * ADLER_BASE;
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return (int) (sum1 | sum2 << 16);
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] body) throws IOException {
+        byte[] data = new byte[4 + body.length];
+        System.arraycopy(type.getBytes(StandardCharsets.US_ASCII), 0, data, 0, 4);
+        System.arraycopy(body, 0, data, 4, body.length);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        writeChunk(out, data, data.length, (int) crc.getValue());
+    }
+
+    // The chunk type is the first four bytes of data
+    private static void writeChunk(DataOutputStream out, byte[] data, int length, int crc) throws IOException {
+        out.writeInt(length - 4);
+        out.write(data, 0, length);
+        out.writeInt(crc);
+    }
+}
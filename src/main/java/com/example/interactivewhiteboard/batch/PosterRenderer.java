@@ -0,0 +1,241 @@
+package com.example.interactivewhiteboard.batch;
+
+import com.example.interactivewhiteboard.components.BoardMetadata;
+import com.example.interactivewhiteboard.components.BoardObject;
+import javafx.concurrent.Task;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Renders a whole board at poster size, up to {@value #MAX_SIZE} pixels a
+ * side, which is far beyond what a canvas snapshot can capture. The image is
+ * cut into bands of rows that are painted in parallel on a fork-join pool,
+ * each by {@link BoardRasterizer} with anti-aliasing, into a small band
+ * image per worker that is then copied into one off-heap buffer. Only the
+ * objects that reach into a band are drawn there. The PNG is compressed in
+ * parallel bands too, by {@link PngWriter}.
+ */
+public class PosterRenderer {
+    public static final int MAX_SIZE = 16384;
+    private static final int BAND_ROWS = 256;
+
+    private final BoardRasterizer rasterizer = new BoardRasterizer();
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("whiteboard-poster-" + thread.getPoolIndex());
+        return thread;
+    }, null, false);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "whiteboard-poster");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** A rendered board: {@code width * height} pixels in 0xRRGGBB form, row after row. */
+    public record Poster(int width, int height, IntBuffer pixels, double scale) {
+    }
+
+    /**
+     * Starts rendering everything on the board, fitted into {@code maxSize}
+     * pixels on the longer side, and writing it to {@code target} as a PNG.
+     * {@code objects} must be in paint (id) order and stay unchanged.
+     */
+    public Task<Path> export(BoardMetadata metadata, List<BoardObject> objects, int maxSize, Path target) {
+        Task<Path> task = new Task<>() {
+            @Override
+            protected Path call() throws Exception {
+                updateProgress(0, 1);
+                Poster poster = render(metadata, objects, maxSize, done -> report(done / 2));
+                write(poster, target, done -> report(0.5 + done / 2));
+                updateProgress(1, 1);
+                return target;
+            }
+
+            // Throwing from the workers is what stops them once cancelled
+            private void report(double done) {
+                if (isCancelled()) {
+                    throw new CancellationException();
+                }
+                updateProgress(done, 1);
+            }
+        };
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Renders everything on the board, fitted into {@code maxSize} pixels on
+     * the longer side. {@code progress} hears the fraction of bands done, from
+     * any worker, and may throw to stop.
+     */
+    public Poster render(BoardMetadata metadata, List<BoardObject> objects, int maxSize, DoubleConsumer progress)
+            throws IOException {
+        if (maxSize < 1 || maxSize > MAX_SIZE) {
+            throw new IllegalArgumentException("Poster size must be between 1 and " + MAX_SIZE + ": " + maxSize);
+        }
+        Rectangle2D bounds = BoardRasterizer.contentBounds(objects, maxSize);
+        double scale = maxSize / Math.max(bounds.getWidth(), bounds.getHeight());
+        int width = Math.max(1, Math.min(maxSize, (int) Math.ceil(bounds.getWidth() * scale)));
+        int height = Math.max(1, Math.min(maxSize, (int) Math.ceil(bounds.getHeight() * scale)));
+
+        IntBuffer pixels;
+        try {
+            pixels = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        } catch (OutOfMemoryError e) {
+            throw new IOException("Not enough memory for a " + width + " x " + height + " poster", e);
+        }
+        Poster poster = new Poster(width, height, pixels, scale);
+        int bands = (height + BAND_ROWS - 1) / BAND_ROWS;
+        AtomicInteger done = new AtomicInteger();
+        pool.invoke(new BandTask(poster, bounds, metadata, objects, 0, bands, () ->
+                progress.accept(done.incrementAndGet() / (double) bands)));
+        return poster;
+    }
+
+    /** Writes a poster as a PNG, through a temporary file so a failed export leaves nothing behind. */
+    public void write(Poster poster, Path target, DoubleConsumer progress) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, "." + target.getFileName(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+                PngWriter.write(poster.pixels(), poster.width(), poster.height(), out, pool, progress);
+                out.flush();
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Splits the bands in half until a worker's share is left, narrowing the
+     * objects to those that reach into each half on the way down.
+     */
+    private final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Poster poster;
+        private final Rectangle2D bounds;
+        private final BoardMetadata metadata;
+        private final List<BoardObject> objects;
+        private final int from, to;
+        private final Runnable bandDone;
+
+        BandTask(Poster poster, Rectangle2D bounds, BoardMetadata metadata, List<BoardObject> objects,
+                 int from, int to, Runnable bandDone) {
+            this.poster = poster;
+            this.bounds = bounds;
+            this.metadata = metadata;
+            this.objects = objects;
+            this.from = from;
+            this.to = to;
+            this.bandDone = bandDone;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 2) {
+                paintBands();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BandTask(poster, bounds, metadata, within(from, middle), from, middle, bandDone),
+                    new BandTask(poster, bounds, metadata, within(middle, to), middle, to, bandDone));
+        }
+
+        // Anti-aliasing reaches a pixel beyond an object's bounds
+        private List<BoardObject> within(int fromBand, int toBand) {
+            double y0 = worldY(fromBand * BAND_ROWS) - 1 / poster.scale();
+            double y1 = worldY(Math.min(toBand * BAND_ROWS, poster.height())) + 1 / poster.scale();
+            List<BoardObject> inside = new ArrayList<>();
+            for (BoardObject object : objects) {
+                if (object.minY() <= y1 && object.maxY() >= y0) {
+                    inside.add(object);
+                }
+            }
+            return inside;
+        }
+
+        private double worldY(int row) {
+            return bounds.getMinY() + row / poster.scale();
+        }
+
+        private void paintBands() {
+            int width = poster.width();
+            double scale = poster.scale();
+            Color background = BoardRasterizer.toColor(metadata.background());
+            BufferedImage band = new BufferedImage(width, BAND_ROWS, BufferedImage.TYPE_INT_RGB);
+            int[] data = ((DataBufferInt) band.getRaster().getDataBuffer()).getData();
+            for (int index = from; index < to; index++) {
+                int y0 = index * BAND_ROWS;
+                int rows = Math.min(BAND_ROWS, poster.height() - y0);
+                Graphics2D g = band.createGraphics();
+                try {
+                    g.setColor(background);
+                    g.fillRect(0, 0, width, rows);
+                    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                            RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                            RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                    g.clipRect(0, 0, width, rows);
+                    g.translate(0, -y0);
+                    g.scale(scale, scale);
+                    g.translate(-bounds.getMinX(), -bounds.getMinY());
+                    if (metadata.gridEnabled()) {
+                        BoardRasterizer.drawGrid(g, bounds.getMinX(), worldY(y0), bounds.getMaxX(),
+                                worldY(y0 + rows), scale);
+                    }
+                    for (BoardObject object : within(index, index + 1)) {
+                        rasterizer.draw(g, object, background, scale);
+                    }
+                } finally {
+                    g.dispose();
+                }
+                poster.pixels().put(y0 * width, data, 0, rows * width);
+                bandDone.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.interactivewhiteboard.collab;
+
+import com.example.interactivewhiteboard.components.BoardOperation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * One connection to a {@link CollabServer} board. Edits are sent from a
+ * writer thread, which drains everything queued since its last write into a
+ * single flush, and incoming edits are decoded on a reader thread and handed
+ * to the {@link Listener} there. Edits this client sent come back from the
+ * server and are skipped.
+ */
+public class CollabClient implements Closeable {
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final ByteBuffer CLOSE = ByteBuffer.allocate(0);
+
+    public interface Listener {
+        /** An edit made by another replica. */
+        void onOperation(int replica, BoardOperation operation);
+
+        /** The snapshot delivered so far covers every tag up to these counters. */
+        void onSeen(Map<Integer, Long> counters);
+
+        /** Everything on the board before this client joined has been delivered. */
+        void onSynced();
+
+        /** The connection ended; {@code cause} is null after {@link #close()}. */
+        void onClosed(IOException cause);
+    }
+
+    private final Socket socket;
+    private final int replica;
+    private final Listener listener;
+    private final BlockingQueue<ByteBuffer> outgoing = new LinkedBlockingQueue<>();
+    private volatile boolean closed;
+
+    private CollabClient(Socket socket, int replica, Listener listener) {
+        this.socket = socket;
+        this.replica = replica;
+        this.listener = listener;
+    }
+
+    /** Connects and joins {@code board}, blocking until the server has assigned a replica number. */
+    public static CollabClient connect(InetSocketAddress address, String board, Listener listener)
+            throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+            OutputStream out = socket.getOutputStream();
+            ByteBuffer hello = CollabProtocol.hello(board);
+            out.write(hello.array(), 0, hello.limit());
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            int length = in.readInt();
+            if (length != 3 || in.readByte() != CollabProtocol.WELCOME) {
+                throw new IOException("Unexpected reply from collaboration server");
+            }
+            CollabClient client = new CollabClient(socket, in.readUnsignedShort(), listener);
+            client.startThreads(in);
+            return client;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /** This client's replica number, for {@link com.example.interactivewhiteboard.components.BoardModel#setReplica}. */
+    public int getReplica() {
+        return replica;
+    }
+
+    /** Queues an edit for sending; never blocks. */
+    public void send(BoardOperation operation) {
+        if (!closed) {
+            outgoing.add(CollabProtocol.edit(operation.encode()));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            outgoing.add(CLOSE);
+            socket.close();
+        }
+    }
+
+    private void startThreads(DataInputStream in) {
+        Thread reader = new Thread(() -> readLoop(in), "collab-reader-" + replica);
+        reader.setDaemon(true);
+        reader.start();
+        Thread writer = new Thread(this::writeLoop, "collab-writer-" + replica);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void readLoop(DataInputStream in) {
+        IOException cause = null;
+        try {
+            while (true) {
+                int length = in.readInt();
+                if (length < 1 || length > CollabProtocol.MAX_FRAME) {
+                    throw new IOException("Bad frame length " + length);
+                }
+                byte type = in.readByte();
+                byte[] body = in.readNBytes(length - 1);
+                if (body.length < length - 1) {
+                    throw new EOFException("Connection closed mid-frame");
+                }
+                if (type == CollabProtocol.EDIT && body.length >= 2) {
+                    int from = ((body[0] & 0xFF) << 8) | (body[1] & 0xFF);
+                    if (from != replica) {
+                        listener.onOperation(from, BoardOperation.decode(body, 2, body.length - 2));
+                    }
+                } else if (type == CollabProtocol.SEEN) {
+                    listener.onSeen(CollabProtocol.readSeen(ByteBuffer.wrap(body)));
+                } else if (type == CollabProtocol.SYNCED) {
+                    listener.onSynced();
+                }
+            }
+        } catch (IOException e) {
+            cause = closed ? null : e;
+        } finally {
+            try {
+                close();
+            } catch (IOException ignored) {
+                // Already closing
+            }
+            listener.onClosed(cause);
+        }
+    }
+
+    private void writeLoop() {
+        List<ByteBuffer> batch = new ArrayList<>();
+        try (OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 1 << 16)) {
+            while (!closed) {
+                batch.add(outgoing.take());
+                outgoing.drainTo(batch);
+                for (ByteBuffer frame : batch) {
+                    if (frame == CLOSE) {
+                        return;
+                    }
+                    out.write(frame.array(), 0, frame.limit());
+                }
+                batch.clear();
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The reader sees the broken connection and reports it
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
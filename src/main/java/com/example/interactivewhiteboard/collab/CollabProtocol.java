@@ -0,0 +1,87 @@
+package com.example.interactivewhiteboard.collab;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wire format shared by {@link CollabServer} and {@link CollabClient}.
+ *
+ * <pre>
+ * frame   := length:u32 type:u8 body[length - 1]
+ * HELLO   := version:u8 board:utf8          client to server, first frame
+ * WELCOME := replica:u16                    server to client
+ * EDIT    := operation                      client to server
+ * EDIT    := replica:u16 operation          server to clients
+ * SEEN    := count:u32 (replica:u16 counter:i64)*   server to client, after a snapshot
+ * SYNCED  := (empty)                        server to client, after the board so far
+ * </pre>
+ *
+ * An operation is a {@link com.example.interactivewhiteboard.components.BoardOperation}.
+ * The server relays EDIT frames to every client of the board, the sender
+ * included, stamped with the sender's replica number; a client skips its own.
+ * A joining client first gets the server's latest snapshot of the board as
+ * EDIT frames stamped with replica 0, then SEEN with the tags the snapshot
+ * covers (see {@link ReplicatedBoard#markSeen}), then the edits made since.
+ */
+public final class CollabProtocol {
+    public static final int VERSION = 1;
+    public static final int DEFAULT_PORT = 7410;
+    public static final int MAX_FRAME = 16 << 20;
+
+    public static final byte HELLO = 1;
+    public static final byte WELCOME = 2;
+    public static final byte EDIT = 3;
+    public static final byte SYNCED = 4;
+    public static final byte SEEN = 5;
+
+    private CollabProtocol() {
+    }
+
+    /** A complete frame with room for {@code bodyLength} bytes after the type, positioned after the type. */
+    static ByteBuffer frame(byte type, int bodyLength) {
+        ByteBuffer frame = ByteBuffer.allocate(5 + bodyLength);
+        frame.putInt(1 + bodyLength);
+        frame.put(type);
+        return frame;
+    }
+
+    static ByteBuffer hello(String board) {
+        byte[] name = board.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = frame(HELLO, 1 + name.length);
+        frame.put((byte) VERSION).put(name);
+        return frame.flip();
+    }
+
+    static ByteBuffer edit(byte[] operation) {
+        return frame(EDIT, operation.length).put(operation).flip();
+    }
+
+    /** An EDIT frame as the server sends it, stamped with {@code replica}. */
+    static ByteBuffer edit(int replica, byte[] operation) {
+        return frame(EDIT, 2 + operation.length).putShort((short) replica).put(operation).flip();
+    }
+
+    static ByteBuffer seen(Map<Integer, Long> counters) {
+        ByteBuffer frame = frame(SEEN, 4 + counters.size() * 10);
+        frame.putInt(counters.size());
+        for (Map.Entry<Integer, Long> counter : counters.entrySet()) {
+            frame.putShort(counter.getKey().shortValue()).putLong(counter.getValue());
+        }
+        return frame.flip();
+    }
+
+    static Map<Integer, Long> readSeen(ByteBuffer body) throws IOException {
+        int count = body.remaining() >= 4 ? body.getInt() : -1;
+        if (count < 0 || count * 10L != body.remaining()) {
+            throw new IOException("Corrupt SEEN frame");
+        }
+        Map<Integer, Long> counters = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            counters.put(body.getShort() & 0xFFFF, body.getLong());
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.interactivewhiteboard.collab;
+
+import com.example.interactivewhiteboard.components.BoardModel;
+import com.example.interactivewhiteboard.components.BoardOperation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Relays board edits between the clients of each board. A single thread
+ * runs a NIO selector over every connection, so hundreds of clients cost
+ * hundreds of sockets rather than hundreds of threads. Edits that arrive in
+ * the same round of the selector are appended to one buffer per board,
+ * which is then queued to every client of the board as a shared read-only
+ * view: one allocation per round however many clients there are.
+ * <p>
+ * The server also merges every edit into its own {@link ReplicatedBoard}.
+ * Once the edits relayed since the last snapshot outgrow half the snapshot,
+ * the board is snapshotted again and those edits dropped, so a client
+ * joining late gets the snapshot and a short tail of edits, in time that
+ * depends on what is on the board rather than how long the session has run.
+ * Compacting only once the tail has grown in proportion keeps its cost per
+ * edit constant.
+ * <p>
+ * A client whose unsent data, beyond what it was sent on joining, grows past
+ * {@value #MAX_QUEUED_BYTES} bytes is too slow to keep up and is disconnected.
+ */
+public class CollabServer implements Closeable {
+    private static final int MAX_QUEUED_BYTES = 32 << 20;
+    private static final int READ_BUFFER_SIZE = 64 << 10;
+    private static final int MAX_REPLICA = 0xFFFF;
+    private static final int MIN_COMPACT_BYTES = 256 << 10;
+    private static final int SNAPSHOT_OBJECTS_PER_FRAME = 256;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private final Map<String, Board> boards = new HashMap<>();
+    private final Set<Board> pending = new LinkedHashSet<>();
+    private volatile boolean running = true;
+
+    private CollabServer(Selector selector, ServerSocketChannel server) {
+        this.selector = selector;
+        this.server = server;
+        this.thread = new Thread(this::run, "collab-server");
+        this.thread.setDaemon(true);
+    }
+
+    /** Binds to {@code address}, port 0 picking a free one, and starts serving. */
+    public static CollabServer start(InetSocketAddress address) throws IOException {
+        Selector selector = Selector.open();
+        ServerSocketChannel server = ServerSocketChannel.open();
+        try {
+            server.bind(address);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        CollabServer collabServer = new CollabServer(selector, server);
+        collabServer.thread.start();
+        return collabServer;
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Client client = (Client) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(client);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(client);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // Whatever one client sends, only that client is dropped
+                        drop(client);
+                    }
+                }
+                for (Board board : pending) {
+                    fanOut(board);
+                }
+                pending.clear();
+            }
+        } catch (IOException e) {
+            System.err.println("Collaboration server stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(selector);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Client client = new Client(channel);
+        client.key = channel.register(selector, SelectionKey.OP_READ, client);
+    }
+
+    private void read(Client client) throws IOException {
+        if (client.channel.read(client.in) < 0) {
+            drop(client);
+            return;
+        }
+        ByteBuffer in = client.in.flip();
+        while (in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length < 1 || length > CollabProtocol.MAX_FRAME) {
+                throw new IOException("Bad frame length " + length);
+            }
+            if (in.remaining() < 4 + length) {
+                break;
+            }
+            int start = in.position() + 4;
+            handle(client, in.get(start), in, start + 1, length - 1);
+            if (!client.channel.isOpen()) {
+                return;
+            }
+            in.position(start + length);
+        }
+        in.compact();
+        // Make room for a frame larger than the buffer
+        if (in.position() >= 4) {
+            int needed = 4 + in.getInt(0);
+            if (needed > in.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(needed);
+                client.in = larger.put(in.flip());
+            }
+        }
+    }
+
+    private void handle(Client client, byte type, ByteBuffer in, int offset, int length) throws IOException {
+        if (client.board == null) {
+            if (type != CollabProtocol.HELLO || length < 1 || in.get(offset) != CollabProtocol.VERSION) {
+                throw new IOException("Expected HELLO");
+            }
+            byte[] name = new byte[length - 1];
+            in.get(offset + 1, name);
+            join(client, new String(name, StandardCharsets.UTF_8));
+        } else if (type == CollabProtocol.EDIT) {
+            Board board = client.board;
+            // Decoding also rejects malformed edits before anyone else sees them
+            board.state.merge(BoardOperation.decode(in.array(), in.arrayOffset() + offset, length));
+            int frameLength = 1 + 2 + length;
+            board.pending.write(frameLength >>> 24);
+            board.pending.write(frameLength >>> 16);
+            board.pending.write(frameLength >>> 8);
+            board.pending.write(frameLength);
+            board.pending.write(CollabProtocol.EDIT);
+            board.pending.write(client.replica >>> 8);
+            board.pending.write(client.replica);
+            if (in.hasArray()) {
+                board.pending.write(in.array(), in.arrayOffset() + offset, length);
+            } else {
+                byte[] body = new byte[length];
+                in.get(offset, body);
+                board.pending.write(body);
+            }
+            pending.add(board);
+        }
+        // Unknown frame types are ignored so newer clients can add some
+    }
+
+    private void join(Client client, String name) throws IOException {
+        Board board = boards.computeIfAbsent(name, key -> new Board());
+        if (board.nextReplica > MAX_REPLICA) {
+            throw new IOException("Board " + name + " has run out of replica numbers");
+        }
+        client.board = board;
+        client.replica = board.nextReplica++;
+
+        ByteBuffer welcome = CollabProtocol.frame(CollabProtocol.WELCOME, 2);
+        welcome.putShort((short) client.replica);
+        enqueue(client, welcome.flip());
+        // Edits still pending for this round reach the client through the fan-out
+        for (ByteBuffer frame : board.snapshot) {
+            client.catchUp += frame.remaining();
+            enqueue(client, frame.duplicate());
+        }
+        if (board.log.size() > 0) {
+            client.catchUp += board.log.size();
+            enqueue(client, ByteBuffer.wrap(board.log.toByteArray()));
+        }
+        enqueue(client, CollabProtocol.frame(CollabProtocol.SYNCED, 0).flip());
+        board.clients.add(client);
+    }
+
+    private void fanOut(Board board) {
+        byte[] batch = board.pending.toByteArray();
+        board.pending.reset();
+        board.log.write(batch, 0, batch.length);
+        if (board.log.size() > Math.max(MIN_COMPACT_BYTES, board.snapshotBytes / 2)) {
+            compact(board);
+        }
+        ByteBuffer shared = ByteBuffer.wrap(batch).asReadOnlyBuffer();
+        for (Client client : new ArrayList<>(board.clients)) {
+            try {
+                enqueue(client, shared.duplicate());
+            } catch (IOException e) {
+                drop(client);
+            }
+        }
+    }
+
+    private static void compact(Board board) {
+        List<ByteBuffer> snapshot = new ArrayList<>();
+        long bytes = 0;
+        for (BoardOperation operation : board.state.snapshot(SNAPSHOT_OBJECTS_PER_FRAME)) {
+            ByteBuffer frame = CollabProtocol.edit(0, operation.encode()).asReadOnlyBuffer();
+            snapshot.add(frame);
+            bytes += frame.remaining();
+        }
+        ByteBuffer seen = CollabProtocol.seen(board.state.getSeen()).asReadOnlyBuffer();
+        snapshot.add(seen);
+        board.snapshot = snapshot;
+        board.snapshotBytes = bytes + seen.remaining();
+        board.log.reset();
+    }
+
+    private void enqueue(Client client, ByteBuffer buffer) throws IOException {
+        client.out.add(buffer);
+        client.queued += buffer.remaining();
+        if (client.queued > MAX_QUEUED_BYTES + client.catchUp) {
+            throw new IOException("Client too slow");
+        }
+        flush(client);
+    }
+
+    private void flush(Client client) throws IOException {
+        ByteBuffer[] batch = new ByteBuffer[Math.min(16, client.out.size())];
+        while (!client.out.isEmpty()) {
+            int count = 0;
+            for (ByteBuffer buffer : client.out) {
+                if (count == batch.length) {
+                    break;
+                }
+                batch[count++] = buffer;
+            }
+            long written = client.channel.write(batch, 0, count);
+            client.queued -= written;
+            while (!client.out.isEmpty() && !client.out.peek().hasRemaining()) {
+                client.out.poll();
+            }
+            if (written == 0 || (!client.out.isEmpty() && client.out.peek().position() > 0)) {
+                break;
+            }
+        }
+        int ops = client.out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        if (client.key.interestOps() != ops) {
+            client.key.interestOps(ops);
+        }
+    }
+
+    private void drop(Client client) {
+        if (client.board != null) {
+            client.board.clients.remove(client);
+        }
+        client.key.cancel();
+        closeQuietly(client.channel);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Already going away
+        }
+    }
+
+    /** Runs a standalone server: {@code CollabServer [port]}. */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : CollabProtocol.DEFAULT_PORT;
+        CollabServer server = start(new InetSocketAddress(port));
+        System.out.println("Collaboration server listening on port " + server.getPort());
+        server.thread.join();
+    }
+
+    private static final class Board {
+        final List<Client> clients = new ArrayList<>();
+        final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+        final ReplicatedBoard state = new ReplicatedBoard(new BoardModel(), 0);
+        // Frames of the latest snapshot, shared read-only by every joiner
+        List<ByteBuffer> snapshot = List.of();
+        long snapshotBytes;
+        int nextReplica = 1;
+    }
+
+    private static final class Client {
+        final SocketChannel channel;
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        long queued;
+        long catchUp;
+        Board board;
+        int replica;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.interactivewhiteboard.collab;
+
+import com.example.interactivewhiteboard.components.BoardEdit;
+import com.example.interactivewhiteboard.components.BoardModel;
+import com.example.interactivewhiteboard.components.BoardOperation;
+import com.example.interactivewhiteboard.components.BoardRenderer;
+import javafx.application.Platform;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Ties a board on screen to a collaboration board: local edits are sent as
+ * they are made, and edits from other replicas are merged through a
+ * {@link ReplicatedBoard} and repainted on the FX thread. Hosting also runs
+ * the server in-process.
+ */
+public class CollabSession implements Closeable {
+    public static final String DEFAULT_BOARD = "classroom";
+
+    private final BoardRenderer renderer;
+    private final CollabServer server;
+    private CollabClient client;
+    private ReplicatedBoard replicated;
+    private Consumer<BoardEdit> onRemoteEdit = edit -> { };
+    private Consumer<String> onStatus = status -> { };
+    private boolean closed;
+
+    private CollabSession(BoardRenderer renderer, CollabServer server) {
+        this.renderer = renderer;
+        this.server = server;
+    }
+
+    /**
+     * Hosts when {@code address} is just a port number and joins when it is
+     * {@code host:port}.
+     */
+    public static CollabSession open(String address, BoardRenderer renderer) throws IOException {
+        String value = address.trim();
+        int colon = value.lastIndexOf(':');
+        try {
+            if (colon < 0) {
+                return host(Integer.parseInt(value), renderer);
+            }
+            return join(new InetSocketAddress(value.substring(0, colon), Integer.parseInt(value.substring(colon + 1))),
+                    renderer);
+        } catch (NumberFormatException e) {
+            throw new IOException("Not a port number: " + value, e);
+        }
+    }
+
+    /**
+     * Starts a server on {@code port} and joins it, sharing what is on the
+     * board now. Call on the FX thread.
+     */
+    public static CollabSession host(int port, BoardRenderer renderer) throws IOException {
+        CollabServer server = CollabServer.start(new InetSocketAddress(port));
+        CollabSession session = new CollabSession(renderer, server);
+        try {
+            session.connect(new InetSocketAddress("localhost", server.getPort()));
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        BoardModel model = renderer.getModel();
+        if (!model.isEmpty()) {
+            session.publish(new BoardEdit(List.of(), new ArrayList<>(model.objects())));
+        }
+        return session;
+    }
+
+    /**
+     * Joins a board on another machine. The local board is replaced by the
+     * shared one as it arrives. Call on the FX thread.
+     */
+    public static CollabSession join(InetSocketAddress address, BoardRenderer renderer) throws IOException {
+        CollabSession session = new CollabSession(renderer, null);
+        renderer.getModel().clear();
+        renderer.redraw();
+        session.connect(address);
+        return session;
+    }
+
+    public boolean isHost() {
+        return server != null;
+    }
+
+    public int getPort() {
+        return server != null ? server.getPort() : -1;
+    }
+
+    /** Called on the FX thread with the changes each remote edit made. */
+    public void setOnRemoteEdit(Consumer<BoardEdit> onRemoteEdit) {
+        this.onRemoteEdit = onRemoteEdit;
+    }
+
+    /** Called on the FX thread with a line for the status bar. */
+    public void setOnStatus(Consumer<String> onStatus) {
+        this.onStatus = onStatus;
+    }
+
+    /** Shares an edit already applied to the local board. */
+    public void publish(BoardEdit edit) {
+        if (client != null) {
+            BoardOperation operation = replicated.local(edit);
+            if (!operation.isEmpty()) {
+                client.send(operation);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        renderer.getModel().setReplica(0);
+        try {
+            client.close();
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private void connect(InetSocketAddress address) throws IOException {
+        client = CollabClient.connect(address, DEFAULT_BOARD, new CollabClient.Listener() {
+            @Override
+            public void onOperation(int replica, BoardOperation operation) {
+                Platform.runLater(() -> apply(operation));
+            }
+
+            @Override
+            public void onSeen(Map<Integer, Long> counters) {
+                Platform.runLater(() -> replicated.markSeen(counters));
+            }
+
+            @Override
+            public void onSynced() {
+                Platform.runLater(() -> onStatus.accept("Connected to shared board"));
+            }
+
+            @Override
+            public void onClosed(IOException cause) {
+                if (cause != null) {
+                    Platform.runLater(() -> onStatus.accept("Disconnected: " + cause.getMessage()));
+                }
+            }
+        });
+        renderer.getModel().setReplica(client.getReplica());
+        replicated = new ReplicatedBoard(renderer.getModel(), client.getReplica());
+    }
+
+    private void apply(BoardOperation operation) {
+        if (closed) {
+            return;
+        }
+        BoardEdit edit = replicated.merge(operation);
+        renderer.invalidate(edit);
+        renderer.render();
+        onRemoteEdit.accept(edit);
+    }
+}
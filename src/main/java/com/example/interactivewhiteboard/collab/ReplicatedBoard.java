@@ -0,0 +1,281 @@
+package com.example.interactivewhiteboard.collab;
+
+import com.example.interactivewhiteboard.components.BoardEdit;
+import com.example.interactivewhiteboard.components.BoardModel;
+import com.example.interactivewhiteboard.components.BoardObject;
+import com.example.interactivewhiteboard.components.BoardOperation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The board as an add-wins set of immutable objects, so replicas that apply
+ * the same operations in any order, any number of times, end up with the
+ * same board. Each addition of an object gets a tag packing this replica's
+ * number under a counter, the same way {@link BoardModel} packs ids, and an
+ * object stays on the board while any tag added for it has not been removed.
+ * A removal only names the tags its replica had seen, so an object put back
+ * concurrently, say by an undo, survives a delete it raced with. When two
+ * replicas replace the same id concurrently, the object with the highest tag
+ * is shown.
+ * <p>
+ * The tags seen so far are summarized per replica as the highest counter
+ * below which nothing is missing, plus the few tags seen out of order. A tag
+ * removed before its addition arrived sits there as a tombstone and is
+ * collected as soon as the gap before it fills. Removed objects themselves
+ * are dropped at once, so merging an operation costs time in proportion to
+ * the operation, not the board.
+ */
+public class ReplicatedBoard {
+    private static final long REPLICA_MASK = (1L << BoardModel.REPLICA_BITS) - 1;
+
+    private final BoardModel model;
+    private final int replica;
+    private long clock;
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<Long, Long> tagIds = new HashMap<>();
+    private final Map<Integer, Long> seen = new HashMap<>();
+    private final Set<Long> seenOutOfOrder = new HashSet<>();
+
+    /**
+     * Takes over {@code model}, which should be empty or about to be shared
+     * with {@link #local}. Replica 0 only merges, as the server does.
+     */
+    public ReplicatedBoard(BoardModel model, int replica) {
+        if (replica < 0 || replica > REPLICA_MASK) {
+            throw new IllegalArgumentException("Replica out of range: " + replica);
+        }
+        this.model = model;
+        this.replica = replica;
+    }
+
+    public int getReplica() {
+        return replica;
+    }
+
+    /** Per replica, the counter up to which every tag has been seen. */
+    public Map<Integer, Long> getSeen() {
+        return Collections.unmodifiableMap(seen);
+    }
+
+    /**
+     * Notes that every tag up to the given counters has been seen, as after
+     * merging a {@link #snapshot}, so the tags it skipped are not kept as
+     * tombstones.
+     */
+    public void markSeen(Map<Integer, Long> counters) {
+        for (Map.Entry<Integer, Long> counter : counters.entrySet()) {
+            int from = counter.getKey();
+            long contiguous = Math.max(seen.getOrDefault(from, 0L), counter.getValue());
+            while (seenOutOfOrder.remove(((contiguous + 1) << BoardModel.REPLICA_BITS) | from)) {
+                contiguous++;
+            }
+            seen.put(from, contiguous);
+        }
+        seenOutOfOrder.removeIf(tag -> (tag >>> BoardModel.REPLICA_BITS)
+                <= seen.getOrDefault((int) (tag & REPLICA_MASK), 0L));
+    }
+
+    /** Tags seen out of order and not yet collected. */
+    public int getTombstoneCount() {
+        return seenOutOfOrder.size();
+    }
+
+    /**
+     * Turns an edit already applied to the model into the operation that
+     * repeats it elsewhere. Adding an object replaces whatever this replica
+     * had under its id, as it does in the model.
+     */
+    public BoardOperation local(BoardEdit edit) {
+        if (replica == 0) {
+            throw new IllegalStateException("Replica 0 cannot make edits");
+        }
+        List<Long> removedTags = new ArrayList<>();
+        for (BoardObject object : edit.removed()) {
+            removeObserved(object.id(), removedTags);
+        }
+        List<BoardObject> added = edit.added();
+        long[] addedTags = new long[added.size()];
+        for (int i = 0; i < addedTags.length; i++) {
+            removeObserved(added.get(i).id(), removedTags);
+            long tag = (++clock << BoardModel.REPLICA_BITS) | replica;
+            see(tag);
+            addTag(added.get(i), tag);
+            addedTags[i] = tag;
+        }
+        long[] removed = new long[removedTags.size()];
+        for (int i = 0; i < removed.length; i++) {
+            removed[i] = removedTags.get(i);
+        }
+        Arrays.sort(removed);
+        return new BoardOperation(removed, added, addedTags);
+    }
+
+    /**
+     * Merges an operation from another replica into the model and returns
+     * what changed on screen.
+     */
+    public BoardEdit merge(BoardOperation operation) {
+        Map<Long, BoardObject> before = new HashMap<>();
+        for (long tag : operation.removedTags()) {
+            Long id = tagIds.remove(tag);
+            if (id != null) {
+                Entry entry = entries.get(id);
+                before.putIfAbsent(id, entry.visible());
+                if (entry.remove(tag)) {
+                    entries.remove(id);
+                }
+            }
+            // Remembered so the addition is ignored if it arrives after this
+            see(tag);
+        }
+        List<BoardObject> added = operation.added();
+        long[] addedTags = operation.addedTags();
+        for (int i = 0; i < addedTags.length; i++) {
+            long tag = addedTags[i];
+            if (hasSeen(tag)) {
+                continue;
+            }
+            see(tag);
+            BoardObject object = added.get(i);
+            Entry entry = entries.get(object.id());
+            // Not putIfAbsent, which would overwrite an id first seen as absent when a snapshot adds it twice
+            if (!before.containsKey(object.id())) {
+                before.put(object.id(), entry != null ? entry.visible() : null);
+            }
+            addTag(object, tag);
+        }
+
+        List<BoardObject> gone = new ArrayList<>();
+        List<BoardObject> shown = new ArrayList<>();
+        for (Map.Entry<Long, BoardObject> change : before.entrySet()) {
+            BoardObject previous = change.getValue();
+            Entry entry = entries.get(change.getKey());
+            BoardObject current = entry != null ? entry.visible() : null;
+            if (previous == current) {
+                continue;
+            }
+            if (previous != null) {
+                model.remove(previous.id());
+                gone.add(previous);
+            }
+            if (current != null) {
+                model.add(current);
+                shown.add(current);
+            }
+        }
+        return new BoardEdit(gone, shown);
+    }
+
+    /**
+     * The board as additions of every live tag, at most {@code maxObjects}
+     * per operation. Merged into an empty board they rebuild this one, and
+     * later removals still find the tags they name.
+     */
+    public List<BoardOperation> snapshot(int maxObjects) {
+        List<BoardOperation> operations = new ArrayList<>();
+        List<BoardObject> objects = new ArrayList<>();
+        long[] tags = new long[maxObjects];
+        for (Entry entry : entries.values()) {
+            for (int i = 0; i < entry.tags.length; i++) {
+                tags[objects.size()] = entry.tags[i];
+                objects.add(entry.objects[i]);
+                if (objects.size() == maxObjects) {
+                    operations.add(new BoardOperation(new long[0], objects, tags.clone()));
+                    objects = new ArrayList<>();
+                }
+            }
+        }
+        if (!objects.isEmpty()) {
+            operations.add(new BoardOperation(new long[0], objects, Arrays.copyOf(tags, objects.size())));
+        }
+        return operations;
+    }
+
+    private void removeObserved(long id, List<Long> removedTags) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            for (long tag : entry.tags) {
+                tagIds.remove(tag);
+                removedTags.add(tag);
+            }
+        }
+    }
+
+    private void addTag(BoardObject object, long tag) {
+        Entry entry = entries.computeIfAbsent(object.id(), id -> new Entry());
+        entry.add(tag, object);
+        tagIds.put(tag, object.id());
+    }
+
+    private boolean hasSeen(long tag) {
+        long counter = tag >>> BoardModel.REPLICA_BITS;
+        return counter <= seen.getOrDefault((int) (tag & REPLICA_MASK), 0L) || seenOutOfOrder.contains(tag);
+    }
+
+    private void see(long tag) {
+        int from = (int) (tag & REPLICA_MASK);
+        long counter = tag >>> BoardModel.REPLICA_BITS;
+        long contiguous = seen.getOrDefault(from, 0L);
+        if (counter <= contiguous) {
+            return;
+        }
+        if (counter > contiguous + 1) {
+            seenOutOfOrder.add(tag);
+            return;
+        }
+        // Fills the gap, so the tags seen early that now follow on are collected
+        contiguous = counter;
+        while (seenOutOfOrder.remove(((contiguous + 1) << BoardModel.REPLICA_BITS) | from)) {
+            contiguous++;
+        }
+        seen.put(from, contiguous);
+    }
+
+    /** The live tags of one id, nearly always just one. */
+    private static final class Entry {
+        long[] tags = new long[0];
+        BoardObject[] objects = new BoardObject[0];
+
+        void add(long tag, BoardObject object) {
+            int n = tags.length;
+            tags = Arrays.copyOf(tags, n + 1);
+            objects = Arrays.copyOf(objects, n + 1);
+            tags[n] = tag;
+            objects[n] = object;
+        }
+
+        /** Returns true when no tags are left. */
+        boolean remove(long tag) {
+            int n = tags.length;
+            for (int i = 0; i < n; i++) {
+                if (tags[i] == tag) {
+                    tags[i] = tags[n - 1];
+                    objects[i] = objects[n - 1];
+                    tags = Arrays.copyOf(tags, n - 1);
+                    objects = Arrays.copyOf(objects, n - 1);
+                    break;
+                }
+            }
+            return tags.length == 0;
+        }
+
+        /** Deterministic across replicas: the object with the highest tag. */
+        BoardObject visible() {
+            int best = 0;
+            for (int i = 1; i < tags.length; i++) {
+                if (tags[i] > tags[best]) {
+                    best = i;
+                }
+            }
+            return objects[best];
+        }
+    }
+}
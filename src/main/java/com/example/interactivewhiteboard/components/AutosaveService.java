@@ -0,0 +1,712 @@
+package com.example.interactivewhiteboard.components;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the deck safe across a crash or power loss without a manual save.
+ * Every edit is appended to a write-ahead log, in the record format of
+ * {@link SessionJournal}, and the log is forced to disk a few times a
+ * second, so a burst of edits costs one sync. Switching pages and adding or
+ * removing them is logged as well. A page that was drawn on is written to a
+ * page file of its own as it is left. Every half minute, if anything
+ * changed, the log rolls over to a new generation and a second thread
+ * writes the page shown to a page file and a checkpoint listing the deck,
+ * which then replaces the older checkpoint, logs and page files. {@link
+ * #start} restores the newest checkpoint and the logs written after it,
+ * cutting a log torn by a crash at its last complete record. All file work
+ * happens on the two background threads, from a copy of the page shown
+ * kept there.
+ * <p>
+ * {@code checkpoint-N.wbk} holds the deck as of the start of
+ * {@code log-N.wbj}: the pages in order, the one shown and the page file
+ * each is in, if any. Page files are board files. Only one running
+ * application autosaves to a directory; any other finds it locked and fails
+ * to start.
+ */
+public class AutosaveService implements Closeable {
+    public static final Path DEFAULT_DIRECTORY =
+            Path.of(System.getProperty("user.home"), ".interactive-whiteboard", "autosave");
+
+    // The page was replaced by a board file; its settings and objects are the payload
+    private static final byte OPENED = 4;
+    // Another page was shown; its id and the settings of the page left are the payload
+    private static final byte PAGE = 5;
+    // Pages were added or removed; the ids in order are the payload
+    private static final byte PAGES = 6;
+    private static final int CHECKPOINT_MAGIC = 0x57424B31;
+    private static final long SYNC_INTERVAL_MILLIS = 250;
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 30_000;
+    private static final Pattern FILE_NAME = Pattern.compile("(checkpoint|log)-(\\d+)\\.wb[kj]");
+    private static final Pattern PAGE_FILE_NAME = Pattern.compile("page-(\\d+)\\.wbd");
+
+    private final Path directory;
+    private final long startNanos = System.nanoTime();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "whiteboard-autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService checkpointer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "whiteboard-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Page files handed to the checkpointer and not yet on disk, by number
+    private final Map<Long, List<BoardObject>> unwritten = new ConcurrentHashMap<>();
+    private volatile IOException failure;
+    private volatile Consumer<IOException> onError = error -> { };
+
+    // Writer thread only; a new workspace starts with page 1 shown
+    private final VarintBuffer payload = new VarintBuffer(4096);
+    private final TreeMap<Long, BoardObject> board = new TreeMap<>();
+    private final Map<Integer, PageFile> pageFiles = new HashMap<>();
+    private List<Integer> pages = List.of(1);
+    private int shown = 1;
+    private BoardMetadata metadata = BoardMetadata.DEFAULT;
+    // The page shown is read from its file only once something changes it
+    private boolean loaded;
+    // The page shown differs from its page file
+    private boolean dirty;
+    private long nextPageFile = 1;
+    private FileChannel lockChannel;
+    private JournalWriter log;
+    private long generation;
+    private boolean unsynced;
+    private boolean changed;
+    private boolean metadataChanged;
+
+    public AutosaveService(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * What {@link #start} found: the deck as last autosaved, with the
+     * settings and objects of the page shown.
+     */
+    public record Restored(BoardMetadata metadata, List<BoardObject> objects, int shown, List<SavedPage> pages) {
+    }
+
+    /** A page of a restored deck in the board file encoding; null for the page shown and for empty pages. */
+    public record SavedPage(int id, byte[] encoded) {
+    }
+
+    // A page file and the settings written into it
+    private record PageFile(long number, BoardMetadata metadata) {
+    }
+
+    // What replay made of a page
+    private record ReplayedPage(BoardMetadata metadata, TreeMap<Long, BoardObject> board) {
+    }
+
+    /** Called on the FX thread if autosaving stops because a write failed. */
+    public void setOnError(Consumer<IOException> onError) {
+        this.onError = onError != null ? onError : error -> { };
+    }
+
+    /**
+     * Locks the directory, restores what was autosaved there and starts
+     * logging from that deck. The task's value is null if nothing was
+     * saved. Edits recorded before the task finishes are logged after it.
+     */
+    public Task<Restored> start() {
+        Task<Restored> task = new Task<>() {
+            @Override
+            protected Restored call() throws Exception {
+                return restore();
+            }
+        };
+        start(task);
+        return task;
+    }
+
+    /** As {@link #start}, for callers without the FX toolkit. */
+    Future<Restored> startInBackground() {
+        FutureTask<Restored> task = new FutureTask<>(this::restore);
+        start(task);
+        return task;
+    }
+
+    /** Checkpoints now rather than at the next interval. */
+    void checkpointNow() {
+        writer.execute(() -> write(this::rollOver));
+    }
+
+    // The restore runs first, as the writer runs one thing at a time
+    private void start(Runnable restore) {
+        writer.execute(restore);
+        writer.scheduleWithFixedDelay(() -> write(this::sync), SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+        writer.scheduleWithFixedDelay(() -> write(this::rollOver), CHECKPOINT_INTERVAL_MILLIS,
+                CHECKPOINT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Settings of the page shown for the next checkpoint; between checkpoints they are not logged. */
+    public void setMetadata(BoardMetadata metadata) {
+        writer.execute(() -> {
+            this.metadata = metadata;
+            metadataChanged = true;
+        });
+    }
+
+    /** Logs the pages of the deck, by id in order, after one was added or removed. */
+    public void setPages(List<Integer> ids) {
+        int millis = elapsedMillis();
+        List<Integer> copy = List.copyOf(ids);
+        writer.execute(() -> write(() -> {
+            pages = copy;
+            pageFiles.keySet().retainAll(copy);
+            payload.reset();
+            payload.writeVarLong(copy.size());
+            copy.forEach(payload::writeVarLong);
+            append(PAGES, millis);
+        }));
+    }
+
+    /**
+     * Logs that page {@code id} replaced the page shown, which was left with
+     * the settings given. The page left is written to its page file first if
+     * it changed since it was last written.
+     */
+    public void showPage(int id, BoardMetadata left) {
+        int millis = elapsedMillis();
+        writer.execute(() -> write(() -> {
+            if (dirty || !left.equals(savedMetadata(shown))) {
+                load();
+                writePage(shown, left, new ArrayList<>(board.values()));
+            }
+            payload.reset();
+            payload.writeVarLong(id);
+            writeMetadata(payload, left);
+            append(PAGE, millis);
+            shown = id;
+            metadata = savedMetadata(id);
+            board.clear();
+            loaded = false;
+            dirty = false;
+        }));
+    }
+
+    /** Logs an edit that was just applied to the page shown. */
+    public void record(BoardEdit edit) {
+        int millis = elapsedMillis();
+        writer.execute(() -> write(() -> {
+            load();
+            for (BoardObject object : edit.removed()) {
+                board.remove(object.id());
+            }
+            for (BoardObject object : edit.added()) {
+                board.put(object.id(), object);
+            }
+            payload.reset();
+            SessionJournal.encodeEdit(payload, edit);
+            append(SessionJournal.EDIT, millis);
+        }));
+    }
+
+    /**
+     * Logs that the page shown was replaced wholesale, as when a shared
+     * board is joined. The next checkpoint folds it in like any other record.
+     */
+    public void reset(Collection<BoardObject> objects) {
+        int millis = elapsedMillis();
+        List<BoardObject> copy = new ArrayList<>(objects);
+        writer.execute(() -> write(() -> {
+            board.clear();
+            copy.forEach(object -> board.put(object.id(), object));
+            loaded = true;
+            payload.reset();
+            SessionJournal.encodeBoard(payload, copy);
+            append(SessionJournal.RESET, millis);
+        }));
+    }
+
+    /**
+     * Logs that the page shown was replaced by the contents of a board file. The
+     * file is read here in the background, since the board may only be
+     * paged in as it is looked at, and its contents go into the log, so a
+     * restore does not depend on the file still being there or unchanged.
+     */
+    public void opened(Path source) {
+        int millis = elapsedMillis();
+        writer.execute(() -> write(() -> {
+            board.clear();
+            BoardMetadata settings;
+            try (InputStream in = Files.newInputStream(source)) {
+                settings = FileManager.read(in, batch -> batch.forEach(object -> board.put(object.id(), object)));
+            }
+            loaded = true;
+            metadata = settings;
+            payload.reset();
+            writeMetadata(payload, settings);
+            SessionJournal.encodeBoard(payload, board.values());
+            append(OPENED, millis);
+        }));
+    }
+
+    /** Syncs the log and stops; throws if autosaving had failed. */
+    @Override
+    public void close() throws IOException {
+        writer.execute(() -> {
+            write(() -> {
+                log.sync();
+                log.close();
+            });
+            if (lockChannel != null) {
+                try {
+                    lockChannel.close();
+                } catch (IOException ignored) {
+                    // The lock goes with the process anyway
+                }
+            }
+        });
+        writer.shutdown();
+        try {
+            // A last roll-over may still hand the checkpointer a board
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+            checkpointer.shutdown();
+            checkpointer.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private int elapsedMillis() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private interface Write {
+        void run() throws IOException;
+    }
+
+    // A log with a hole in it would restore the wrong board, so a failure stops autosaving
+    private void write(Write write) {
+        if (failure != null || log == null) {
+            return;
+        }
+        try {
+            write.run();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+            Platform.runLater(() -> onError.accept(e));
+        }
+    }
+
+    private void append(byte type, int millis) throws IOException {
+        log.append(type, millis, payload);
+        unsynced = true;
+        changed = true;
+        dirty |= type != PAGE && type != PAGES;
+    }
+
+    private BoardMetadata savedMetadata(int page) {
+        PageFile file = pageFiles.get(page);
+        return file != null ? file.metadata() : BoardMetadata.DEFAULT;
+    }
+
+    // The page shown as its page file holds it, before the first change after it was shown
+    private void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        board.clear();
+        PageFile file = pageFiles.get(shown);
+        List<BoardObject> pending = file != null ? unwritten.get(file.number()) : null;
+        if (pending != null) {
+            pending.forEach(object -> board.put(object.id(), object));
+        } else if (file != null) {
+            try (InputStream in = Files.newInputStream(pageFile(file.number()))) {
+                FileManager.read(in, batch -> batch.forEach(object -> board.put(object.id(), object)));
+            }
+        }
+        loaded = true;
+    }
+
+    private Path pageFile(long number) {
+        return directory.resolve("page-" + number + "." + FileManager.EXTENSION);
+    }
+
+    // Written by the checkpointer, so before any checkpoint that lists it
+    private void writePage(int page, BoardMetadata settings, List<BoardObject> objects) {
+        long number = nextPageFile++;
+        pageFiles.put(page, new PageFile(number, settings));
+        unwritten.put(number, objects);
+        checkpointer.execute(() -> {
+            try {
+                writeDurably(pageFile(number), out -> FileManager.write(out, settings, objects, true));
+                unwritten.remove(number);
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+    }
+
+    private void sync() throws IOException {
+        if (unsynced) {
+            log.sync();
+            unsynced = false;
+        }
+    }
+
+    /** Starts the next log generation and checkpoints the deck as of its start. */
+    private void rollOver() throws IOException {
+        if (!changed && !metadataChanged) {
+            return;
+        }
+        log.sync();
+        log.close();
+        generation++;
+        log = new JournalWriter(directory.resolve("log-" + generation + ".wbj"));
+        unsynced = false;
+        changed = false;
+        metadataChanged = false;
+        if (dirty || !metadata.equals(savedMetadata(shown))) {
+            load();
+            writePage(shown, metadata, new ArrayList<>(board.values()));
+            dirty = false;
+        }
+        long checkpoint = generation;
+        int page = shown;
+        List<Integer> order = pages;
+        Map<Integer, PageFile> files = new HashMap<>(pageFiles);
+        long pageFilesWritten = nextPageFile;
+        checkpointer.execute(() -> {
+            try {
+                checkpoint(checkpoint, page, order, files, pageFilesWritten);
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+    }
+
+    private void checkpoint(long checkpoint, int page, List<Integer> order, Map<Integer, PageFile> files,
+                            long pageFilesWritten) throws IOException {
+        VarintBuffer out = new VarintBuffer(64 + order.size() * 48);
+        out.writeInt(CHECKPOINT_MAGIC);
+        out.writeVarLong(page);
+        out.writeVarLong(order.size());
+        for (int id : order) {
+            PageFile file = files.get(id);
+            out.writeVarLong(id);
+            out.writeVarLong(file != null ? file.number() : 0);
+            if (file != null) {
+                writeMetadata(out, file.metadata());
+            }
+        }
+        writeDurably(directory.resolve("checkpoint-" + checkpoint + ".wbk"),
+                stream -> stream.write(out.bytes(), 0, out.size()));
+        // Page files written since the checkpoint was taken are for the next one
+        Set<Long> kept = new HashSet<>();
+        files.values().forEach(file -> kept.add(file.number()));
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path file : entries) {
+                Matcher name = FILE_NAME.matcher(file.getFileName().toString());
+                Matcher pageName = PAGE_FILE_NAME.matcher(file.getFileName().toString());
+                if (name.matches() && Long.parseLong(name.group(2)) < checkpoint) {
+                    Files.deleteIfExists(file);
+                } else if (pageName.matches()) {
+                    long number = Long.parseLong(pageName.group(1));
+                    if (number < pageFilesWritten && !kept.contains(number)) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        }
+    }
+
+    private interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    // Synced before it replaces anything, so there is always a complete file to start from
+    private void writeDurably(Path target, Body body) throws IOException {
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            body.writeTo(out);
+            out.flush();
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory();
+    }
+
+    // Makes the rename itself durable; not every platform can open a directory for this
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // The rename is still atomic, only possibly not yet on disk
+        }
+    }
+
+    private Restored restore() throws IOException {
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("autosave.lock"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another window of this same process
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            lockChannel = null;
+            throw new IOException("Autosave is in use by another window");
+        }
+
+        long newestCheckpoint = -1;
+        TreeSet<Long> logs = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    // A checkpoint or page file that was never finished
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                Matcher name = FILE_NAME.matcher(file.getFileName().toString());
+                Matcher pageName = PAGE_FILE_NAME.matcher(file.getFileName().toString());
+                if (pageName.matches()) {
+                    nextPageFile = Math.max(nextPageFile, Long.parseLong(pageName.group(1)) + 1);
+                }
+                if (!name.matches()) {
+                    continue;
+                }
+                long number = Long.parseLong(name.group(2));
+                if (name.group(1).equals("checkpoint")) {
+                    newestCheckpoint = Math.max(newestCheckpoint, number);
+                } else {
+                    logs.add(number);
+                }
+            }
+        }
+        if (newestCheckpoint >= 0) {
+            readCheckpoint(directory.resolve("checkpoint-" + newestCheckpoint + ".wbk"));
+        }
+        Map<Integer, ReplayedPage> replayed = new HashMap<>();
+        boolean anyReplayed = false;
+        for (long number : logs.tailSet(Math.max(0, newestCheckpoint))) {
+            anyReplayed |= replay(directory.resolve("log-" + number + ".wbj"), replayed);
+        }
+
+        generation = Math.max(newestCheckpoint, logs.isEmpty() ? 0 : logs.last()) + 1;
+        log = new JournalWriter(directory.resolve("log-" + generation + ".wbj"));
+        if (newestCheckpoint < 0 && !anyReplayed) {
+            return null;
+        }
+        // Folds the logs just replayed into a checkpoint of their own
+        changed = anyReplayed;
+        dirty = replayed.containsKey(shown);
+        ReplayedPage current = dirty ? replayed.remove(shown) : readPage(shown);
+        metadata = current.metadata();
+        board.putAll(current.board());
+        loaded = true;
+        List<SavedPage> saved = new ArrayList<>();
+        for (int id : pages) {
+            ReplayedPage page = replayed.get(id);
+            PageFile file = pageFiles.get(id);
+            if (id == shown) {
+                saved.add(new SavedPage(id, null));
+            } else if (page != null) {
+                // Written out, so the logs it came from can go at the next checkpoint
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                List<BoardObject> objects = new ArrayList<>(page.board().values());
+                FileManager.write(out, page.metadata(), objects, true);
+                writePage(id, page.metadata(), objects);
+                saved.add(new SavedPage(id, out.toByteArray()));
+            } else if (file != null) {
+                saved.add(new SavedPage(id, Files.readAllBytes(pageFile(file.number()))));
+            } else {
+                saved.add(new SavedPage(id, null));
+            }
+        }
+        return new Restored(metadata, new ArrayList<>(board.values()), shown, saved);
+    }
+
+    private void readCheckpoint(Path file) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        VarintReader in = new VarintReader(data, 0, data.length);
+        if (in.readInt() != CHECKPOINT_MAGIC) {
+            throw new IOException("Not an autosave checkpoint: " + file.getFileName());
+        }
+        shown = checkedId(in);
+        long count = in.readVarLong();
+        if (count < 0 || count > in.remaining()) {
+            throw new IOException("Corrupt autosave checkpoint");
+        }
+        List<Integer> order = new ArrayList<>();
+        for (long i = 0; i < count; i++) {
+            int id = checkedId(in);
+            long number = in.readVarLong();
+            if (number != 0) {
+                pageFiles.put(id, new PageFile(number, readMetadata(in)));
+            }
+            order.add(id);
+        }
+        pages = List.copyOf(order);
+    }
+
+    private ReplayedPage readPage(int id) throws IOException {
+        TreeMap<Long, BoardObject> objects = new TreeMap<>();
+        PageFile file = pageFiles.get(id);
+        if (file == null) {
+            return new ReplayedPage(BoardMetadata.DEFAULT, objects);
+        }
+        try (InputStream in = Files.newInputStream(pageFile(file.number()))) {
+            BoardMetadata settings = FileManager.read(in, batch -> batch.forEach(object -> objects.put(object.id(), object)));
+            return new ReplayedPage(settings, objects);
+        }
+    }
+
+    private static void writeMetadata(VarintBuffer out, BoardMetadata settings) {
+        out.writeInt(settings.background());
+        out.writeByte(settings.gridEnabled() ? 1 : 0);
+        out.writeDouble(settings.viewX());
+        out.writeDouble(settings.viewY());
+        out.writeDouble(settings.viewScale());
+    }
+
+    private static BoardMetadata readMetadata(VarintReader in) throws IOException {
+        return new BoardMetadata(in.readInt(), in.readByte() != 0, in.readDouble(), in.readDouble(), in.readDouble());
+    }
+
+    private static int checkedId(VarintReader in) throws IOException {
+        long id = in.readVarLong();
+        if (id <= 0 || id > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt autosave page id " + id);
+        }
+        return (int) id;
+    }
+
+    /** Applies a log to the deck; a log cut short by a crash ends at its last complete record. */
+    private boolean replay(Path file, Map<Integer, ReplayedPage> replayed) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (data.limit() < SessionJournal.HEADER_BYTES || data.getInt(0) != SessionJournal.MAGIC) {
+            return false;
+        }
+        boolean any = false;
+        int position = SessionJournal.HEADER_BYTES;
+        while (data.limit() - position >= SessionJournal.RECORD_HEADER_BYTES) {
+            byte type = data.get(position);
+            int length = data.getInt(position + 5);
+            int start = position + SessionJournal.RECORD_HEADER_BYTES;
+            if (length < 0 || length > data.limit() - start) {
+                break;
+            }
+            VarintReader in = new VarintReader(data.array(), start, length);
+            switch (type) {
+                case SessionJournal.EDIT: {
+                    TreeMap<Long, BoardObject> page = replayedPage(replayed).board();
+                    SessionRecording.LoggedEdit edit = SessionRecording.decodeEdit(in);
+                    for (long id : edit.removedIds()) {
+                        page.remove(id);
+                    }
+                    edit.added().forEach(object -> page.put(object.id(), object));
+                    break;
+                }
+                case SessionJournal.RESET: {
+                    TreeMap<Long, BoardObject> page = replayedPage(replayed).board();
+                    page.clear();
+                    SessionRecording.decodeObjects(in).forEach(object -> page.put(object.id(), object));
+                    break;
+                }
+                case OPENED: {
+                    TreeMap<Long, BoardObject> page = new TreeMap<>();
+                    BoardMetadata settings = readMetadata(in);
+                    SessionRecording.decodeObjects(in).forEach(object -> page.put(object.id(), object));
+                    replayed.put(shown, new ReplayedPage(settings, page));
+                    break;
+                }
+                case PAGE: {
+                    int id = checkedId(in);
+                    BoardMetadata left = readMetadata(in);
+                    replayed.put(shown, new ReplayedPage(left, replayedPage(replayed).board()));
+                    shown = id;
+                    break;
+                }
+                case PAGES: {
+                    long count = in.readVarLong();
+                    if (count < 0 || count > in.remaining()) {
+                        throw new IOException("Corrupt autosave record");
+                    }
+                    List<Integer> order = new ArrayList<>();
+                    for (long i = 0; i < count; i++) {
+                        order.add(checkedId(in));
+                    }
+                    pages = List.copyOf(order);
+                    pageFiles.keySet().retainAll(pages);
+                    replayed.keySet().retainAll(pages);
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown autosave record type " + type);
+            }
+            any = true;
+            position = start + length;
+        }
+        return any;
+    }
+
+    // The page shown, read from its page file the first time the logs change it
+    private ReplayedPage replayedPage(Map<Integer, ReplayedPage> replayed) throws IOException {
+        ReplayedPage page = replayed.get(shown);
+        if (page == null) {
+            page = readPage(shown);
+            replayed.put(shown, page);
+        }
+        return page;
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.interactivewhiteboard.components;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary encoding of single board objects: a type tag followed by the
+ * object's fields in declaration order.
+ */
+public final class BoardCodec {
+    public static final byte STROKE = 1;
+    public static final byte SHAPE = 2;
+    public static final byte TEXT = 3;
+    public static final byte IMAGE = 4;
+    public static final int COORDINATE_SCALE = 16;
+
+    private BoardCodec() {
+    }
+
+    public static void write(DataOutput out, BoardObject object) throws IOException {
+        if (object instanceof Stroke stroke) {
+            out.writeByte(STROKE);
+            out.writeLong(stroke.id());
+            out.writeInt(stroke.color());
+            out.writeFloat(stroke.width());
+            out.writeInt(stroke.flags());
+            out.writeInt(stroke.pointCount());
+            for (int i = 0; i < stroke.pointCount(); i++) {
+                out.writeFloat(stroke.x(i));
+                out.writeFloat(stroke.y(i));
+            }
+        } else if (object instanceof ShapeObject shape) {
+            out.writeByte(SHAPE);
+            out.writeLong(shape.id());
+            out.writeByte(shape.kind());
+            out.writeFloat(shape.x1());
+            out.writeFloat(shape.y1());
+            out.writeFloat(shape.x2());
+            out.writeFloat(shape.y2());
+            out.writeInt(shape.color());
+            out.writeFloat(shape.width());
+        } else if (object instanceof TextObject text) {
+            out.writeByte(TEXT);
+            out.writeLong(text.id());
+            out.writeUTF(text.text());
+            out.writeUTF(text.family());
+            out.writeFloat(text.size());
+            out.writeFloat(text.x());
+            out.writeFloat(text.y());
+            out.writeInt(text.color());
+        } else if (object instanceof ImageObject image) {
+            out.writeByte(IMAGE);
+            out.writeLong(image.id());
+            out.writeUTF(image.source());
+            out.writeFloat(image.x());
+            out.writeFloat(image.y());
+            out.writeFloat(image.width());
+            out.writeFloat(image.height());
+        }
+    }
+
+    public static BoardObject read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case STROKE: {
+                long id = in.readLong();
+                int color = in.readInt();
+                float width = in.readFloat();
+                int flags = in.readInt();
+                int count = in.readInt();
+                if (count <= 0) {
+                    throw new IOException("Corrupt stroke point count " + count);
+                }
+                // Grown as points arrive, so a corrupt count runs out of data before it runs out of heap
+                float[] xs = new float[Math.min(count, 1024)];
+                float[] ys = new float[xs.length];
+                for (int i = 0; i < count; i++) {
+                    if (i == xs.length) {
+                        xs = Arrays.copyOf(xs, (int) Math.min(count, 2L * i));
+                        ys = Arrays.copyOf(ys, xs.length);
+                    }
+                    xs[i] = in.readFloat();
+                    ys[i] = in.readFloat();
+                }
+                return new Stroke(id, color, width, flags, xs, ys);
+            }
+            case SHAPE:
+                return new ShapeObject(in.readLong(), in.readByte(), in.readFloat(), in.readFloat(),
+                        in.readFloat(), in.readFloat(), in.readInt(), in.readFloat());
+            case TEXT:
+                return new TextObject(in.readLong(), in.readUTF(), in.readUTF(), in.readFloat(),
+                        in.readFloat(), in.readFloat(), in.readInt());
+            case IMAGE:
+                return new ImageObject(in.readLong(), in.readUTF(), in.readFloat(), in.readFloat(),
+                        in.readFloat(), in.readFloat());
+            default:
+                throw new IOException("Unknown board object type " + type);
+        }
+    }
+
+    /** Encodes a list of objects, deflated when {@code compress} is set. */
+    public static byte[] encode(List<? extends BoardObject> objects, boolean compress) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(compress ? new DeflaterOutputStream(bytes) : bytes)) {
+            out.writeInt(objects.size());
+            for (BoardObject object : objects) {
+                write(out, object);
+            }
+        } catch (IOException e) {
+            // Only in-memory streams are involved
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static List<BoardObject> decode(byte[] data, boolean compressed) {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+        try (DataInputStream in = new DataInputStream(compressed ? new InflaterInputStream(bytes) : bytes)) {
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Corrupt object count " + count);
+            }
+            List<BoardObject> objects = new ArrayList<>(Math.min(count, 1024));
+            for (int i = 0; i < count; i++) {
+                objects.add(read(in));
+            }
+            return objects;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Rough heap footprint of an object, used for memory budgets. */
+    public static long estimateSize(BoardObject object) {
+        if (object instanceof Stroke stroke) {
+            return 80 + 8L * stroke.pointCount();
+        } else if (object instanceof TextObject text) {
+            return 80 + 2L * text.text().length();
+        } else if (object instanceof ImageObject image) {
+            return 80 + 2L * image.source().length();
+        }
+        return 64;
+    }
+
+    /**
+     * Writes an object in the compact form used by board files and network
+     * messages: zig-zag varint id delta from {@code previousId}, coordinates in
+     * fixed point of 1/{@value #COORDINATE_SCALE} unit. Returns the object's id.
+     */
+    static long writeCompact(VarintBuffer out, BoardObject object, long previousId) {
+        long id = object.id();
+        if (object instanceof Stroke stroke) {
+            out.writeByte(STROKE);
+            out.writeSignedVarLong(id - previousId);
+            out.writeInt(stroke.color());
+            out.writeFloat(stroke.width());
+            out.writeVarLong(stroke.flags());
+            out.writeVarLong(stroke.pointCount());
+            long x = 0, y = 0;
+            for (int i = 0; i < stroke.pointCount(); i++) {
+                long qx = quantize(stroke.x(i));
+                long qy = quantize(stroke.y(i));
+                out.writeSignedVarLong(qx - x);
+                out.writeSignedVarLong(qy - y);
+                x = qx;
+                y = qy;
+            }
+        } else if (object instanceof ShapeObject shape) {
+            out.writeByte(SHAPE);
+            out.writeSignedVarLong(id - previousId);
+            out.writeByte(shape.kind());
+            long x1 = quantize(shape.x1()), y1 = quantize(shape.y1());
+            out.writeSignedVarLong(x1);
+            out.writeSignedVarLong(y1);
+            out.writeSignedVarLong(quantize(shape.x2()) - x1);
+            out.writeSignedVarLong(quantize(shape.y2()) - y1);
+            out.writeInt(shape.color());
+            out.writeFloat(shape.width());
+        } else if (object instanceof TextObject text) {
+            out.writeByte(TEXT);
+            out.writeSignedVarLong(id - previousId);
+            out.writeString(text.text());
+            out.writeString(text.family());
+            out.writeFloat(text.size());
+            out.writeSignedVarLong(quantize(text.x()));
+            out.writeSignedVarLong(quantize(text.y()));
+            out.writeInt(text.color());
+        } else if (object instanceof ImageObject image) {
+            out.writeByte(IMAGE);
+            out.writeSignedVarLong(id - previousId);
+            out.writeString(image.source());
+            out.writeSignedVarLong(quantize(image.x()));
+            out.writeSignedVarLong(quantize(image.y()));
+            out.writeFloat(image.width());
+            out.writeFloat(image.height());
+        }
+        return id;
+    }
+
+    static BoardObject readCompact(VarintReader in, long previousId) throws IOException {
+        byte type = in.readByte();
+        long id = previousId + in.readSignedVarLong();
+        switch (type) {
+            case STROKE: {
+                int color = in.readInt();
+                float width = in.readFloat();
+                int flags = (int) in.readVarLong();
+                // Every point takes at least two bytes, which bounds what a corrupt count can allocate
+                long count = in.readVarLong();
+                if (count <= 0 || count > in.remaining() / 2) {
+                    throw new IOException("Corrupt stroke point count " + count);
+                }
+                float[] xs = new float[(int) count];
+                float[] ys = new float[(int) count];
+                long x = 0, y = 0;
+                for (int i = 0; i < count; i++) {
+                    x += in.readSignedVarLong();
+                    y += in.readSignedVarLong();
+                    xs[i] = dequantize(x);
+                    ys[i] = dequantize(y);
+                }
+                return new Stroke(id, color, width, flags, xs, ys);
+            }
+            case SHAPE: {
+                byte kind = in.readByte();
+                long x1 = in.readSignedVarLong(), y1 = in.readSignedVarLong();
+                long x2 = x1 + in.readSignedVarLong(), y2 = y1 + in.readSignedVarLong();
+                return new ShapeObject(id, kind, dequantize(x1), dequantize(y1), dequantize(x2), dequantize(y2),
+                        in.readInt(), in.readFloat());
+            }
+            case TEXT: {
+                String text = in.readString();
+                String family = in.readString();
+                float size = in.readFloat();
+                float x = dequantize(in.readSignedVarLong());
+                float y = dequantize(in.readSignedVarLong());
+                return new TextObject(id, text, family, size, x, y, in.readInt());
+            }
+            case IMAGE: {
+                String source = in.readString();
+                float x = dequantize(in.readSignedVarLong());
+                float y = dequantize(in.readSignedVarLong());
+                return new ImageObject(id, source, x, y, in.readFloat(), in.readFloat());
+            }
+            default:
+                throw new IOException("Unknown board object type " + type);
+        }
+    }
+
+    private static long quantize(float value) {
+        return Math.round((double) value * COORDINATE_SCALE);
+    }
+
+    private static float dequantize(long value) {
+        return (float) ((double) value / COORDINATE_SCALE);
+    }
+}
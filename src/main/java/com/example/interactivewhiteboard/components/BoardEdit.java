@@ -0,0 +1,25 @@
+package com.example.interactivewhiteboard.components;
+
+import java.util.List;
+
+/**
+ * One undoable change to a board: the objects it took away and the objects it
+ * put in their place. Every tool boils down to this, from a single stroke
+ * (nothing removed, one added) to clearing the board (everything removed).
+ */
+public record BoardEdit(List<BoardObject> removed, List<BoardObject> added) {
+
+    public BoardEdit inverse() {
+        return new BoardEdit(added, removed);
+    }
+
+    /** Applies the edit: removes first, so an object can be replaced under the same id. */
+    public void applyTo(BoardModel model) {
+        for (BoardObject object : removed) {
+            model.remove(object.id());
+        }
+        for (BoardObject object : added) {
+            model.add(object);
+        }
+    }
+}
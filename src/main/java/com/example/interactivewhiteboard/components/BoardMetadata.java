@@ -0,0 +1,10 @@
+package com.example.interactivewhiteboard.components;
+
+/**
+ * Board-wide settings saved alongside the objects: background colour (ARGB),
+ * grid toggle and the view the board was saved with.
+ */
+public record BoardMetadata(int background, boolean gridEnabled, double viewX, double viewY, double viewScale) {
+
+    public static final BoardMetadata DEFAULT = new BoardMetadata(0xFFFFFFFF, false, 0, 0, 1);
+}
@@ -0,0 +1,97 @@
+package com.example.interactivewhiteboard.components;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * The retained display list behind a whiteboard canvas. Objects are kept in
+ * id order, which is also the order they are painted in.
+ * <p>
+ * A board shared with other replicas packs the replica number into the low
+ * {@value #REPLICA_BITS} bits of every new id and a logical clock above it,
+ * so ids never collide between replicas and later objects still paint on top.
+ */
+public class BoardModel {
+    public static final int REPLICA_BITS = 16;
+
+    private final TreeMap<Long, BoardObject> objects = new TreeMap<>();
+    private final SpatialIndex index = new SpatialIndex();
+    private long nextId = 1;
+    private int replica;
+
+    public long nextId() {
+        if (replica == 0) {
+            return nextId++;
+        }
+        return (nextId++ << REPLICA_BITS) | replica;
+    }
+
+    /**
+     * Switches id allocation to replica-packed ids; 0 switches back to a
+     * plain counter. Either way new ids sort after every id seen so far.
+     */
+    public void setReplica(int replica) {
+        if (replica == this.replica) {
+            return;
+        }
+        long highest = objects.isEmpty() ? 0 : objects.lastKey();
+        this.replica = replica;
+        nextId = 1;
+        reserveIds(highest);
+    }
+
+    public int getReplica() {
+        return replica;
+    }
+
+    /** Makes sure ids up to {@code id} are never handed out by {@link #nextId()}. */
+    public void reserveIds(long id) {
+        long clock = replica == 0 ? id : id >>> REPLICA_BITS;
+        nextId = Math.max(nextId, clock + 1);
+    }
+
+    public void add(BoardObject object) {
+        objects.put(object.id(), object);
+        index.insert(object);
+        reserveIds(object.id());
+    }
+
+    public BoardObject remove(long id) {
+        index.remove(id);
+        return objects.remove(id);
+    }
+
+    public BoardObject get(long id) {
+        return objects.get(id);
+    }
+
+    public void clear() {
+        objects.clear();
+        index.clear();
+    }
+
+    public int size() {
+        return objects.size();
+    }
+
+    public boolean isEmpty() {
+        return objects.isEmpty();
+    }
+
+    /** Objects whose bounds intersect the rectangle, in paint order. */
+    public List<BoardObject> query(double x0, double y0, double x1, double y1) {
+        return index.query(x0, y0, x1, y1);
+    }
+
+    /** The top-most object under the point, or {@code null}. */
+    public BoardObject hitTest(double x, double y, double tolerance) {
+        return index.hitTest(x, y, tolerance);
+    }
+
+    /** Live, read-only view of the objects in paint order. */
+    public Collection<BoardObject> objects() {
+        return Collections.unmodifiableCollection(objects.values());
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.interactivewhiteboard.components;
+
+/**
+ * An item in the retained board model. Every object is immutable once it has
+ * been added to a {@link BoardModel}; editing an object means replacing it.
+ * Ids grow monotonically, so they double as the paint order.
+ */
+public sealed interface BoardObject permits Stroke, ShapeObject, TextObject, ImageObject {
+
+    long id();
+
+    float minX();
+
+    float minY();
+
+    float maxX();
+
+    float maxY();
+
+    default boolean intersects(double x0, double y0, double x1, double y1) {
+        return minX() <= x1 && maxX() >= x0 && minY() <= y1 && maxY() >= y0;
+    }
+
+    /** Whether the point lies on the object, allowing {@code tolerance} of slack. */
+    default boolean hits(double x, double y, double tolerance) {
+        return x >= minX() - tolerance && x <= maxX() + tolerance
+                && y >= minY() - tolerance && y <= maxY() + tolerance;
+    }
+}
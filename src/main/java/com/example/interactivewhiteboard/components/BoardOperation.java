@@ -0,0 +1,81 @@
+package com.example.interactivewhiteboard.components;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A board edit as replicas exchange it. Every object added carries a tag that
+ * is unique to that addition, and a removal names the tags it has seen rather
+ * than the object id, so a removal never cancels an addition it did not know
+ * about. Encoded with the compact object form of the board file, so a typical
+ * stroke costs a few hundred bytes on the wire.
+ *
+ * <pre>
+ * operation := removed:varint (tagDelta:zigzag)* added:varint (tagDelta:zigzag object)*
+ * </pre>
+ */
+public record BoardOperation(long[] removedTags, List<BoardObject> added, long[] addedTags) {
+
+    public BoardOperation {
+        if (added.size() != addedTags.length) {
+            throw new IllegalArgumentException("Every added object needs a tag");
+        }
+    }
+
+    public boolean isEmpty() {
+        return removedTags.length == 0 && added.isEmpty();
+    }
+
+    public byte[] encode() {
+        VarintBuffer out = new VarintBuffer(32 + removedTags.length * 3 + added.size() * 64);
+        out.writeVarLong(removedTags.length);
+        long previousTag = 0;
+        for (long tag : removedTags) {
+            out.writeSignedVarLong(tag - previousTag);
+            previousTag = tag;
+        }
+        out.writeVarLong(added.size());
+        previousTag = 0;
+        long previousId = 0;
+        for (int i = 0; i < addedTags.length; i++) {
+            out.writeSignedVarLong(addedTags[i] - previousTag);
+            previousTag = addedTags[i];
+            previousId = BoardCodec.writeCompact(out, added.get(i), previousId);
+        }
+        return Arrays.copyOf(out.bytes(), out.size());
+    }
+
+    public static BoardOperation decode(byte[] data, int offset, int length) throws IOException {
+        VarintReader in = new VarintReader(data, offset, length);
+        int removedCount = checkedCount(in.readVarLong(), length);
+        long[] removedTags = new long[removedCount];
+        long previousTag = 0;
+        for (int i = 0; i < removedCount; i++) {
+            previousTag += in.readSignedVarLong();
+            removedTags[i] = previousTag;
+        }
+        int addedCount = checkedCount(in.readVarLong(), length);
+        List<BoardObject> added = new ArrayList<>(addedCount);
+        long[] addedTags = new long[addedCount];
+        previousTag = 0;
+        long previousId = 0;
+        for (int i = 0; i < addedCount; i++) {
+            previousTag += in.readSignedVarLong();
+            addedTags[i] = previousTag;
+            BoardObject object = BoardCodec.readCompact(in, previousId);
+            previousId = object.id();
+            added.add(object);
+        }
+        return new BoardOperation(removedTags, added, addedTags);
+    }
+
+    // Every entry takes at least a byte, which bounds what a corrupt count can allocate
+    private static int checkedCount(long count, int length) throws IOException {
+        if (count < 0 || count > length) {
+            throw new IOException("Corrupt board operation");
+        }
+        return (int) count;
+    }
+}
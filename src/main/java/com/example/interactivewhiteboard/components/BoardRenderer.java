@@ -0,0 +1,197 @@
+package com.example.interactivewhiteboard.components;
+
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+
+/**
+ * Repaints a canvas from a {@link BoardModel}: background, optional grid,
+ * then every object in paint order. The canvas is a window onto an unbounded
+ * board described by a {@link Viewport}; only objects inside it are fetched
+ * from the spatial index. Changes are collected as dirty tiles and
+ * {@link #render()} repaints only those, so the cost of an edit follows its
+ * size rather than the size of the canvas.
+ */
+public class BoardRenderer {
+    // Room for anti-aliased edges around an object's screen bounds, in pixels
+    private static final double DIRTY_PADDING = 2;
+    // Grid lines closer than this on screen are thinned out
+    private static final double MIN_GRID_PIXELS = 8;
+
+    private final Canvas canvas;
+    private final GraphicsContext gc;
+    private final BoardModel model;
+    private final TileGrid tiles = new TileGrid();
+    private final Viewport viewport = new Viewport();
+    private final MediaManager media = new MediaManager();
+    private final FrameMetrics metrics = new FrameMetrics();
+    private Color background = Color.WHITE;
+    private boolean gridEnabled = false;
+    private Runnable onViewportChanged = () -> { };
+    private int objectsPainted;
+
+    public BoardRenderer(Canvas canvas, BoardModel model) {
+        this.canvas = canvas;
+        this.gc = canvas.getGraphicsContext2D();
+        this.model = model;
+
+        tiles.resize(canvas.getWidth(), canvas.getHeight());
+        canvas.widthProperty().addListener((obs, oldVal, newVal) -> resized());
+        canvas.heightProperty().addListener((obs, oldVal, newVal) -> resized());
+        media.setOnLoaded(this::imageLoaded);
+    }
+
+    private void resized() {
+        tiles.resize(canvas.getWidth(), canvas.getHeight());
+        onViewportChanged.run();
+    }
+
+    public BoardModel getModel() {
+        return model;
+    }
+
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    public Color getBackground() {
+        return background;
+    }
+
+    public void setBackground(Color background) {
+        this.background = background;
+        tiles.invalidateAll();
+    }
+
+    public boolean isGridEnabled() {
+        return gridEnabled;
+    }
+
+    public void setGridEnabled(boolean gridEnabled) {
+        this.gridEnabled = gridEnabled;
+        tiles.invalidateAll();
+    }
+
+    public double toWorldX(double screenX) {
+        return viewport.toWorldX(screenX);
+    }
+
+    public double toWorldY(double screenY) {
+        return viewport.toWorldY(screenY);
+    }
+
+    /** The part of the board currently on screen, in world coordinates. */
+    public Bounds getVisibleBounds() {
+        double x0 = viewport.toWorldX(0), y0 = viewport.toWorldY(0);
+        return new BoundingBox(x0, y0, viewport.toWorldX(canvas.getWidth()) - x0,
+                viewport.toWorldY(canvas.getHeight()) - y0);
+    }
+
+    /** Called after every pan, zoom or resize, before the repaint. */
+    public void setOnViewportChanged(Runnable onViewportChanged) {
+        this.onViewportChanged = onViewportChanged != null ? onViewportChanged : () -> { };
+    }
+
+    public void pan(double dx, double dy) {
+        viewport.pan(dx, dy);
+        onViewportChanged.run();
+        redraw();
+    }
+
+    public void zoomAt(double screenX, double screenY, double factor) {
+        viewport.zoomAt(screenX, screenY, factor);
+        onViewportChanged.run();
+        redraw();
+    }
+
+    public void resetView() {
+        viewport.reset();
+        onViewportChanged.run();
+        redraw();
+    }
+
+    public MediaManager getMedia() {
+        return media;
+    }
+
+    public FrameMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void invalidate(BoardObject object) {
+        invalidate(object.minX(), object.minY(), object.maxX(), object.maxY());
+    }
+
+    public void invalidate(BoardEdit edit) {
+        edit.removed().forEach(this::invalidate);
+        edit.added().forEach(this::invalidate);
+    }
+
+    /** Marks a rectangle in world coordinates for repainting. */
+    public void invalidate(double x0, double y0, double x1, double y1) {
+        tiles.invalidate(viewport.toScreenX(x0) - DIRTY_PADDING, viewport.toScreenY(y0) - DIRTY_PADDING,
+                viewport.toScreenX(x1) + DIRTY_PADDING, viewport.toScreenY(y1) + DIRTY_PADDING);
+    }
+
+    /** Repaints the whole canvas. */
+    public void redraw() {
+        tiles.invalidateAll();
+        render();
+    }
+
+    /** Repaints the tiles touched since the last render. */
+    public void render() {
+        if (tiles.isDirty()) {
+            objectsPainted = 0;
+            tiles.drainDirty(this::paintRegion);
+            metrics.rendered(objectsPainted);
+        }
+    }
+
+    private void applyViewTransform() {
+        double scale = viewport.getScale();
+        gc.transform(scale, 0, 0, scale, -viewport.getX() * scale, -viewport.getY() * scale);
+    }
+
+    // A finer level of an image arrived; repaint where it is on screen
+    private void imageLoaded(String source) {
+        Bounds visible = getVisibleBounds();
+        for (BoardObject object : model.query(visible.getMinX(), visible.getMinY(), visible.getMaxX(), visible.getMaxY())) {
+            if (object instanceof ImageObject image && image.source().equals(source)) {
+                invalidate(image);
+            }
+        }
+        render();
+    }
+
+    private void paintRegion(double x, double y, double width, double height) {
+        gc.save();
+        gc.beginPath();
+        gc.rect(x, y, width, height);
+        gc.clip();
+
+        gc.setFill(background);
+        gc.fillRect(x, y, width, height);
+
+        double scale = viewport.getScale();
+        double wx0 = viewport.toWorldX(x), wy0 = viewport.toWorldY(y);
+        double wx1 = viewport.toWorldX(x + width), wy1 = viewport.toWorldY(y + height);
+        applyViewTransform();
+
+        if (gridEnabled) {
+            double spacing = DrawingTools.GRID_SPACING;
+            while (spacing * scale < MIN_GRID_PIXELS) {
+                spacing *= 2;
+            }
+            DrawingTools.drawGrid(gc, wx0, wy0, wx1, wy1, spacing, 0.5 / scale);
+        }
+        for (BoardObject object : model.query(wx0, wy0, wx1, wy1)) {
+            DrawingTools.drawObject(gc, object, background, media, scale);
+            objectsPainted++;
+        }
+        gc.restore();
+    }
+}
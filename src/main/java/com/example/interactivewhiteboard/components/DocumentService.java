@@ -0,0 +1,83 @@
+package com.example.interactivewhiteboard.components;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Runs native board saves and loads off the FX thread. Board objects are
+ * immutable, so a save only needs a copy of the object list taken on the FX
+ * thread. Loads deliver objects back to the FX thread chunk by chunk, so a
+ * large board fills in while it is still being read, or through
+ * {@link #map}, so only the parts of it being looked at are read at all.
+ */
+public class DocumentService {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "whiteboard-documents");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public Task<Path> save(Path target, BoardMetadata metadata, List<BoardObject> objects) {
+        Task<Path> task = new Task<>() {
+            @Override
+            protected Path call() throws Exception {
+                FileManager.save(target, metadata, objects, true);
+                return target;
+            }
+        };
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Reads {@code source} in the background. Both callbacks run on the FX
+     * thread; the metadata arrives before any objects.
+     */
+    public Task<BoardMetadata> open(Path source, Consumer<BoardMetadata> onMetadata,
+                                    Consumer<List<BoardObject>> onObjects) {
+        Task<BoardMetadata> task = new Task<>() {
+            @Override
+            protected BoardMetadata call() throws Exception {
+                try (InputStream in = Files.newInputStream(source)) {
+                    return FileManager.read(in,
+                            metadata -> Platform.runLater(() -> onMetadata.accept(metadata)),
+                            batch -> {
+                                if (!isCancelled()) {
+                                    Platform.runLater(() -> onObjects.accept(batch));
+                                }
+                            });
+                }
+            }
+        };
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Maps {@code source} and reads its chunk index in the background. The
+     * task's value is null when the file has no index and must be read with
+     * {@link #open} instead.
+     */
+    public Task<MappedBoard> map(Path source) {
+        Task<MappedBoard> task = new Task<>() {
+            @Override
+            protected MappedBoard call() throws Exception {
+                return MappedBoard.open(source);
+            }
+        };
+        executor.execute(task);
+        return task;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
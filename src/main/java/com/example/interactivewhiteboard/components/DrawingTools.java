@@ -1,4 +1,237 @@
 package com.example.interactivewhiteboard.components;
 
-public class DrawingTools {
+import javafx.geometry.Bounds;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextBoundsType;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Paints board objects onto a {@link GraphicsContext} whose transform already
+ * maps world coordinates to pixels; {@code scale} is that transform's zoom and
+ * drives level-of-detail. The model stores colours as packed ARGB ints, so the
+ * conversions live here as well.
+ */
+public final class DrawingTools {
+    public static final double GRID_SPACING = 20;
+    public static final Color GRID_COLOR = Color.LIGHTGRAY;
+    // Strokes smaller than this on screen are drawn as a single block
+    public static final double LOD_MIN_PIXELS = 2;
+    // How far, on screen, a stored stroke may stray from the drawn samples
+    public static final double SIMPLIFY_TOLERANCE_PIXELS = 1.0;
+
+    // Canvas fonts by family and size, so labels do not look their font up on every repaint
+    private static final Map<FontKey, Font> fonts = new ConcurrentHashMap<>();
+
+    private DrawingTools() {
+    }
+
+    private record FontKey(String family, double size) {
+    }
+
+    public static int toArgb(Color color) {
+        return ((int) Math.round(color.getOpacity() * 255) << 24)
+                | ((int) Math.round(color.getRed() * 255) << 16)
+                | ((int) Math.round(color.getGreen() * 255) << 8)
+                | (int) Math.round(color.getBlue() * 255);
+    }
+
+    public static Color toColor(int argb) {
+        return Color.rgb((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, ((argb >>> 24) & 0xFF) / 255.0);
+    }
+
+    public static void drawObject(GraphicsContext gc, BoardObject object, Color background,
+                                  MediaManager media, double scale) {
+        if (object instanceof Stroke stroke) {
+            drawStroke(gc, stroke, background, scale);
+        } else if (object instanceof ShapeObject shape) {
+            drawShape(gc, shape);
+        } else if (object instanceof TextObject text) {
+            gc.setFill(toColor(text.color()));
+            gc.setFont(font(text.family(), text.size()));
+            gc.fillText(text.text(), text.x(), text.y());
+        } else if (object instanceof ImageObject image) {
+            Image decoded = media.get(image.source(), image.width() * scale, image.height() * scale);
+            if (decoded != null) {
+                gc.drawImage(decoded, image.x(), image.y(), image.width(), image.height());
+            }
+        }
+    }
+
+    public static Font font(String family, double size) {
+        if (fonts.size() >= TextLayout.MAX_ENTRIES) {
+            fonts.clear();
+        }
+        return fonts.computeIfAbsent(new FontKey(family, size), key -> Font.font(family, size));
+    }
+
+    /**
+     * Lays a label out as the canvas draws it, for {@link TextLayout}. Text
+     * nodes outside a scene may be measured on any thread.
+     */
+    static TextLayout measure(String family, double size, String string) {
+        Text text = new Text(string);
+        text.setFont(font(family, size));
+        Bounds logical = text.getLayoutBounds();
+        text.setBoundsType(TextBoundsType.VISUAL);
+        Bounds inked = text.getLayoutBounds();
+        return new TextLayout((float) Math.min(logical.getMinX(), inked.getMinX()),
+                (float) Math.max(logical.getMaxX(), inked.getMaxX()),
+                (float) -Math.min(logical.getMinY(), inked.getMinY()),
+                (float) Math.max(logical.getMaxY(), inked.getMaxY()));
+    }
+
+    public static void drawStroke(GraphicsContext gc, Stroke stroke, Color background, double scale) {
+        Color color = stroke.isEraser() ? background : toColor(stroke.color());
+        double extent = Math.max(stroke.maxX() - stroke.minX(), stroke.maxY() - stroke.minY()) * scale;
+        if (extent < LOD_MIN_PIXELS) {
+            // Zoomed far out: the whole stroke covers a pixel or two
+            gc.setFill(color);
+            gc.fillRect(stroke.minX(), stroke.minY(), stroke.maxX() - stroke.minX(), stroke.maxY() - stroke.minY());
+            return;
+        }
+
+        gc.setStroke(color);
+        gc.setLineWidth(stroke.width());
+        gc.setLineCap(StrokeLineCap.ROUND);
+        gc.setLineJoin(StrokeLineJoin.ROUND);
+
+        // Skip points closer than a pixel to the last one drawn
+        double minStep = 1 / scale;
+        double minStepSq = minStep * minStep;
+        int last = stroke.pointCount() - 1;
+
+        gc.beginPath();
+        gc.moveTo(stroke.x(0), stroke.y(0));
+        if (last == 0) {
+            // A single click still leaves a dot
+            gc.lineTo(stroke.x(0), stroke.y(0));
+        }
+
+        // Catmull-Rom through the kept points, as one cubic Bezier per span;
+        // p0..p3 slide along, with the ends repeated at either side
+        double p0x = stroke.x(0), p0y = stroke.y(0);
+        double p1x = p0x, p1y = p0y;
+        double p2x = Double.NaN, p2y = Double.NaN;
+        for (int i = 1; i <= last; i++) {
+            double x = stroke.x(i), y = stroke.y(i);
+            double fromX = Double.isNaN(p2x) ? p1x : p2x, fromY = Double.isNaN(p2x) ? p1y : p2y;
+            double dx = x - fromX, dy = y - fromY;
+            if (i != last && dx * dx + dy * dy < minStepSq) {
+                continue;
+            }
+            if (Double.isNaN(p2x)) {
+                p2x = x;
+                p2y = y;
+                continue;
+            }
+            curveSpan(gc, p0x, p0y, p1x, p1y, p2x, p2y, x, y);
+            p0x = p1x;
+            p0y = p1y;
+            p1x = p2x;
+            p1y = p2y;
+            p2x = x;
+            p2y = y;
+        }
+        if (!Double.isNaN(p2x)) {
+            curveSpan(gc, p0x, p0y, p1x, p1y, p2x, p2y, p2x, p2y);
+        }
+        gc.stroke();
+    }
+
+    private static void curveSpan(GraphicsContext gc, double p0x, double p0y, double p1x, double p1y,
+                                  double p2x, double p2y, double p3x, double p3y) {
+        gc.bezierCurveTo(p1x + (p2x - p0x) / 6, p1y + (p2y - p0y) / 6,
+                p2x - (p3x - p1x) / 6, p2y - (p3y - p1y) / 6, p2x, p2y);
+    }
+
+    /**
+     * Ramer–Douglas–Peucker: drops samples from {@code points} that lie
+     * within {@code tolerance} of the line between the samples kept around
+     * them. The first and last samples are always kept.
+     */
+    public static void simplify(PointBuffer points, double tolerance) {
+        int size = points.size();
+        if (size < 3) {
+            return;
+        }
+        double toleranceSq = tolerance * tolerance;
+        BitSet keep = new BitSet(size);
+        keep.set(0);
+        keep.set(size - 1);
+        // Explicit stack of spans instead of recursion, for very long strokes
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = size - 1;
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+            double worst = toleranceSq;
+            int index = -1;
+            for (int i = start + 1; i < end; i++) {
+                double d = Geometry.segmentDistanceSq(points.x(i), points.y(i),
+                        points.x(start), points.y(start), points.x(end), points.y(end));
+                if (d > worst) {
+                    worst = d;
+                    index = i;
+                }
+            }
+            if (index >= 0) {
+                keep.set(index);
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = start;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = end;
+            }
+        }
+        points.retain(keep);
+    }
+
+    public static void drawShape(GraphicsContext gc, ShapeObject shape) {
+        gc.setStroke(toColor(shape.color()));
+        gc.setLineWidth(shape.width());
+
+        double x = Math.min(shape.x1(), shape.x2());
+        double y = Math.min(shape.y1(), shape.y2());
+        double w = Math.abs(shape.x2() - shape.x1());
+        double h = Math.abs(shape.y2() - shape.y1());
+        switch (shape.kind()) {
+            case ShapeObject.LINE:
+                gc.strokeLine(shape.x1(), shape.y1(), shape.x2(), shape.y2());
+                break;
+            case ShapeObject.RECTANGLE:
+                gc.strokeRect(x, y, w, h);
+                break;
+            case ShapeObject.OVAL:
+                gc.strokeOval(x, y, w, h);
+                break;
+        }
+    }
+
+    public static void drawGrid(GraphicsContext gc, double x0, double y0, double x1, double y1,
+                                double spacing, double lineWidth) {
+        gc.setStroke(GRID_COLOR);
+        gc.setLineWidth(lineWidth);
+
+        // Start on a multiple of the spacing so partial repaints line up
+        for (double x = Math.floor(x0 / spacing) * spacing; x < x1; x += spacing) {
+            gc.strokeLine(x, y0, x, y1);
+        }
+        for (double y = Math.floor(y0 / spacing) * spacing; y < y1; y += spacing) {
+            gc.strokeLine(x0, y, x1, y);
+        }
+    }
 }
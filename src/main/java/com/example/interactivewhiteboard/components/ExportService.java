@@ -0,0 +1,152 @@
+package com.example.interactivewhiteboard.components;
+
+import javafx.concurrent.Task;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.event.IIOWriteProgressListener;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Saves canvas contents as PNG or JPEG without blocking the UI. Only the
+ * snapshot and a copy of its pixels happen on the FX thread; encoding and
+ * writing run on a background thread. Output goes through a temporary file in
+ * the target directory that is renamed into place at the end, so a cancelled
+ * or failed export never leaves a half-written image behind.
+ */
+public class ExportService {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "whiteboard-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** "jpg" for .jpg/.jpeg targets, "png" for everything else. */
+    public static String formatFor(Path target) {
+        String name = target.getFileName().toString().toLowerCase();
+        return name.endsWith(".jpg") || name.endsWith(".jpeg") ? "jpg" : "png";
+    }
+
+    /**
+     * Captures the canvas now and starts writing it to {@code target}. Must be
+     * called on the FX thread; the returned task reports progress and can be
+     * cancelled.
+     */
+    public Task<Path> export(Canvas canvas, Path target) {
+        int width = (int) canvas.getWidth();
+        int height = (int) canvas.getHeight();
+        WritableImage snapshot = canvas.snapshot(null, new WritableImage(width, height));
+        int[] pixels = new int[width * height];
+        snapshot.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+
+        Task<Path> task = new ExportTask(pixels, width, height, target);
+        executor.execute(task);
+        return task;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class ExportTask extends Task<Path> {
+        private final int[] pixels;
+        private final int width, height;
+        private final Path target;
+
+        ExportTask(int[] pixels, int width, int height, Path target) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.target = target;
+        }
+
+        @Override
+        protected Path call() throws Exception {
+            String format = formatFor(target);
+            updateMessage("Encoding " + format.toUpperCase());
+            updateProgress(0, 1);
+
+            // JPEG has no alpha channel; the board background is opaque anyway
+            BufferedImage image = new BufferedImage(width, height,
+                    format.equals("jpg") ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+            int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            System.arraycopy(pixels, 0, data, 0, pixels.length);
+
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+            if (!writers.hasNext()) {
+                throw new IOException("No image writer for " + format);
+            }
+            ImageWriter writer = writers.next();
+            writer.addIIOWriteProgressListener(new ProgressListener());
+
+            Path directory = target.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(directory, "." + target.getFileName(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+                    try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+                        writer.setOutput(imageOut);
+                        writer.write(null, new IIOImage(image, null, null), null);
+                    } finally {
+                        writer.dispose();
+                    }
+                    out.flush();
+                    if (isCancelled()) {
+                        return null;
+                    }
+                    channel.force(true);
+                }
+                moveIntoPlace(temp, target);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            updateProgress(1, 1);
+            return target;
+        }
+
+        private static void moveIntoPlace(Path temp, Path target) throws IOException {
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        private final class ProgressListener implements IIOWriteProgressListener {
+            @Override
+            public void imageProgress(ImageWriter source, float percentageDone) {
+                if (isCancelled()) {
+                    source.abort();
+                }
+                updateProgress(percentageDone, 100);
+            }
+
+            @Override public void imageStarted(ImageWriter source, int imageIndex) { }
+            @Override public void imageComplete(ImageWriter source) { }
+            @Override public void thumbnailStarted(ImageWriter source, int imageIndex, int thumbnailIndex) { }
+            @Override public void thumbnailProgress(ImageWriter source, float percentageDone) { }
+            @Override public void thumbnailComplete(ImageWriter source) { }
+            @Override public void writeAborted(ImageWriter source) { }
+        }
+    }
+}
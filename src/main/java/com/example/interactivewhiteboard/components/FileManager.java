@@ -1,4 +1,339 @@
 package com.example.interactivewhiteboard.components;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes the native board format (.wbd), which keeps every object
+ * editable instead of flattening the board to a bitmap.
+ *
+ * <pre>
+ * file   := "WBRD" version:u16 reserved:u16 chunk* END
+ * chunk  := type:u32 flags:u8 length:u32 payload[length]
+ * META   := background:i32 grid:u8 viewX:f64 viewY:f64 viewScale:f64
+ * OBJS   := count:u32 minX minY maxX maxY:f32 rawLength:u32 body
+ * INDX   := maxId:i64 chunks:u32 (offset:i64 flags:u8 length:u32 minX minY maxX maxY:f32)*
+ * END    := indexOffset:i64
+ * </pre>
+ *
+ * An OBJS body holds up to {@link #OBJECTS_PER_CHUNK} objects. It is deflated
+ * when the chunk's compressed flag is set; its bounds stay outside the
+ * compressed part so a reader can decide whether it needs the chunk without
+ * inflating it. Ids and coordinates are stored as zig-zag varint deltas, with
+ * coordinates in fixed point of 1/{@value #COORDINATE_SCALE} unit. Readers
+ * skip chunk types they do not know.
+ * <p>
+ * Objects are grouped into chunks by area ({@value #CHUNK_CELL_SIZE} unit
+ * cells) rather than by id, so the chunks under a viewport are few and
+ * compact. The INDX chunk lists where each OBJS chunk starts and what it
+ * covers, and the END chunk points back at it; {@link MappedBoard} uses both
+ * to open a board without reading the objects it does not need yet.
+ */
 public class FileManager {
+    public static final String EXTENSION = "wbd";
+    public static final int VERSION = 1;
+    public static final int OBJECTS_PER_CHUNK = 512;
+    public static final int COORDINATE_SCALE = BoardCodec.COORDINATE_SCALE;
+    public static final int CHUNK_CELL_SIZE = 2048;
+
+    static final int MAGIC = 0x57425244; // "WBRD"
+    static final int CHUNK_META = 0x4D455441; // "META"
+    static final int CHUNK_OBJECTS = 0x4F424A53; // "OBJS"
+    static final int CHUNK_INDEX = 0x494E4458; // "INDX"
+    static final int CHUNK_END = 0x454E4421; // "END!"
+    static final int HEADER_SIZE = 8;
+    static final int CHUNK_HEADER_SIZE = 9;
+    static final int INDEX_ENTRY_SIZE = 29;
+    static final int FLAG_COMPRESSED = 1;
+    static final int OBJECTS_HEADER_SIZE = 24;
+    // Deflate never shrinks data by more than about 1032 to 1
+    static final int MAX_DEFLATE_RATIO = 1032;
+
+    private FileManager() {
+    }
+
+    public static boolean isBoardFile(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith("." + EXTENSION);
+    }
+
+    /**
+     * Saves to a temporary file first and renames it over {@code target} once
+     * it is on disk, so a crash leaves either the old board or the new one.
+     */
+    public static void save(Path target, BoardMetadata metadata, Collection<? extends BoardObject> objects,
+                            boolean compress) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, "." + target.getFileName(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+                write(out, metadata, objects, compress);
+                out.flush();
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public static void write(OutputStream stream, BoardMetadata metadata, Collection<? extends BoardObject> objects,
+                             boolean compress) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(0);
+
+        ByteArrayOutputStream meta = new ByteArrayOutputStream();
+        DataOutputStream metaOut = new DataOutputStream(meta);
+        metaOut.writeInt(metadata.background());
+        metaOut.writeBoolean(metadata.gridEnabled());
+        metaOut.writeDouble(metadata.viewX());
+        metaOut.writeDouble(metadata.viewY());
+        metaOut.writeDouble(metadata.viewScale());
+        writeChunk(out, CHUNK_META, 0, meta.toByteArray(), meta.size());
+        long offset = HEADER_SIZE + CHUNK_HEADER_SIZE + meta.size();
+
+        // Bucket by cell, rows first, keeping id order inside each cell
+        Map<Long, List<BoardObject>> cells = new TreeMap<>();
+        long maxId = 0;
+        for (BoardObject object : objects) {
+            long cellX = (long) Math.floor((object.minX() + object.maxX()) / 2 / CHUNK_CELL_SIZE);
+            long cellY = (long) Math.floor((object.minY() + object.maxY()) / 2 / CHUNK_CELL_SIZE);
+            cells.computeIfAbsent((cellY << 32) + cellX, key -> new ArrayList<>()).add(object);
+            maxId = Math.max(maxId, object.id());
+        }
+
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+        int chunkCount = 0;
+        Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+        try {
+            for (List<BoardObject> cell : cells.values()) {
+                for (int start = 0; start < cell.size(); start += OBJECTS_PER_CHUNK) {
+                    List<BoardObject> batch = cell.subList(start, Math.min(cell.size(), start + OBJECTS_PER_CHUNK));
+                    byte[] chunk = encodeObjectChunk(batch, deflater);
+                    int flags = deflater != null ? FLAG_COMPRESSED : 0;
+                    writeChunk(out, CHUNK_OBJECTS, flags, chunk, chunk.length);
+
+                    indexOut.writeLong(offset);
+                    indexOut.writeByte(flags);
+                    indexOut.writeInt(chunk.length);
+                    indexOut.write(chunk, 4, 16); // bounds
+                    offset += CHUNK_HEADER_SIZE + chunk.length;
+                    chunkCount++;
+                }
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+
+        ByteArrayOutputStream indexChunk = new ByteArrayOutputStream(12 + index.size());
+        DataOutputStream indexChunkOut = new DataOutputStream(indexChunk);
+        indexChunkOut.writeLong(maxId);
+        indexChunkOut.writeInt(chunkCount);
+        index.writeTo(indexChunkOut);
+        writeChunk(out, CHUNK_INDEX, 0, indexChunk.toByteArray(), indexChunk.size());
+
+        byte[] end = ByteBuffer.allocate(8).putLong(offset).array();
+        writeChunk(out, CHUNK_END, 0, end, end.length);
+        out.flush();
+    }
+
+    public static BoardMetadata read(InputStream stream, Consumer<List<BoardObject>> batches) throws IOException {
+        return read(stream, metadata -> { }, batches);
+    }
+
+    /**
+     * Reads a board, handing objects to {@code batches} one chunk at a time as
+     * they are decoded so that a caller can show a large board progressively.
+     * The metadata is passed on before the first batch.
+     */
+    public static BoardMetadata read(InputStream stream, Consumer<BoardMetadata> onMetadata,
+                                     Consumer<List<BoardObject>> batches) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a whiteboard file");
+        }
+        int version = in.readUnsignedShort();
+        if (version > VERSION) {
+            throw new IOException("Unsupported whiteboard file version " + version);
+        }
+        in.readUnsignedShort();
+
+        BoardMetadata metadata = BoardMetadata.DEFAULT;
+        while (true) {
+            int type;
+            try {
+                type = in.readInt();
+            } catch (EOFException e) {
+                // Tolerate files cut short after a complete chunk
+                return metadata;
+            }
+            int flags = in.readUnsignedByte();
+            int length = in.readInt();
+            if (type == CHUNK_END) {
+                return metadata;
+            }
+            if (length < 0) {
+                throw new IOException("Corrupt chunk length " + length);
+            }
+            byte[] payload = in.readNBytes(length);
+            if (payload.length < length) {
+                throw new EOFException("Truncated chunk");
+            }
+            if (type == CHUNK_META) {
+                metadata = readMetadata(payload);
+                onMetadata.accept(metadata);
+            } else if (type == CHUNK_OBJECTS) {
+                batches.accept(decodeObjectChunk(payload, (flags & FLAG_COMPRESSED) != 0));
+            }
+        }
+    }
+
+    static BoardMetadata readMetadata(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        return new BoardMetadata(in.readInt(), in.readBoolean(), in.readDouble(), in.readDouble(), in.readDouble());
+    }
+
+    private static void writeChunk(DataOutputStream out, int type, int flags, byte[] payload, int length)
+            throws IOException {
+        out.writeInt(type);
+        out.writeByte(flags);
+        out.writeInt(length);
+        out.write(payload, 0, length);
+    }
+
+    private static byte[] encodeObjectChunk(List<BoardObject> objects, Deflater deflater) throws IOException {
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (BoardObject object : objects) {
+            minX = Math.min(minX, object.minX());
+            minY = Math.min(minY, object.minY());
+            maxX = Math.max(maxX, object.maxX());
+            maxY = Math.max(maxY, object.maxY());
+        }
+
+        VarintBuffer body = new VarintBuffer(objects.size() * 32);
+        long previousId = 0;
+        for (BoardObject object : objects) {
+            previousId = BoardCodec.writeCompact(body, object, previousId);
+        }
+        byte[] stored = body.bytes();
+        int storedLength = body.size();
+        if (deflater != null) {
+            deflater.reset();
+            deflater.setInput(stored, 0, storedLength);
+            deflater.finish();
+            byte[] compressed = new byte[Math.max(64, storedLength + storedLength / 1000 + 64)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            stored = compressed;
+            storedLength = length;
+        }
+
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream(storedLength + OBJECTS_HEADER_SIZE);
+        DataOutputStream chunkOut = new DataOutputStream(chunk);
+        chunkOut.writeInt(objects.size());
+        chunkOut.writeFloat(minX);
+        chunkOut.writeFloat(minY);
+        chunkOut.writeFloat(maxX);
+        chunkOut.writeFloat(maxY);
+        chunkOut.writeInt(body.size());
+        chunkOut.write(stored, 0, storedLength);
+        return chunk.toByteArray();
+    }
+
+    static List<BoardObject> decodeObjectChunk(byte[] payload, boolean compressed) throws IOException {
+        if (payload.length < OBJECTS_HEADER_SIZE) {
+            throw new EOFException("Truncated object chunk");
+        }
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(payload, 0, OBJECTS_HEADER_SIZE));
+        int count = header.readInt();
+        header.skipBytes(16); // bounds
+        int rawLength = header.readInt();
+        int storedLength = payload.length - OBJECTS_HEADER_SIZE;
+        if (rawLength < 0 || (compressed ? rawLength > (long) storedLength * MAX_DEFLATE_RATIO
+                : rawLength != storedLength)) {
+            throw new IOException("Corrupt object chunk length " + rawLength);
+        }
+        // Every object takes at least a type byte and an id byte
+        if (count < 0 || count > rawLength / 2) {
+            throw new IOException("Corrupt object count " + count);
+        }
+
+        byte[] body;
+        if (compressed) {
+            body = new byte[rawLength];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(payload, OBJECTS_HEADER_SIZE, storedLength);
+                int length = 0;
+                while (length < rawLength && !inflater.finished()) {
+                    int n = inflater.inflate(body, length, rawLength - length);
+                    if (n == 0 && inflater.needsInput()) {
+                        throw new EOFException("Truncated object chunk");
+                    }
+                    length += n;
+                }
+                if (length < rawLength) {
+                    throw new IOException("Corrupt object chunk");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt object chunk", e);
+            } finally {
+                inflater.end();
+            }
+        } else {
+            body = Arrays.copyOfRange(payload, OBJECTS_HEADER_SIZE, payload.length);
+        }
+
+        VarintReader reader = new VarintReader(body);
+        List<BoardObject> objects = new ArrayList<>(count);
+        long previousId = 0;
+        for (int i = 0; i < count; i++) {
+            BoardObject object = BoardCodec.readCompact(reader, previousId);
+            previousId = object.id();
+            objects.add(object);
+        }
+        return objects;
+    }
 }
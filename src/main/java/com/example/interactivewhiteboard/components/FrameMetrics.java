@@ -0,0 +1,100 @@
+package com.example.interactivewhiteboard.components;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Instrumentation for diagnosing lag: the time between pulses, the time from
+ * a pointer event to the end of the pulse that drew it, the objects painted
+ * per repaint and the heap in use, sampled once a pulse. Everything is
+ * recorded on the FX thread into {@link Histogram}s, which other threads can
+ * read at any time, e.g. to export them. A HUD, if set, gets a summary of
+ * the last half second.
+ */
+public class FrameMetrics {
+    private static final long HUD_INTERVAL_NANOS = 500_000_000L;
+
+    private final Histogram frameNanos = new Histogram();
+    private final Histogram inputLatencyNanos = new Histogram();
+    private final Histogram objectsRendered = new Histogram();
+    private final Histogram heapBytes = new Histogram();
+    private final Runtime runtime = Runtime.getRuntime();
+
+    // FX thread only
+    private long lastPulse;
+    private long[] pendingInput = new long[64];
+    private int pendingCount;
+    private Consumer<String> hud;
+    private Snapshot hudFrom;
+
+    /** Notes the event times of pointer samples handled this pulse; they count as shown once it ends. */
+    public void inputHandled(PointerQueue queue) {
+        if (pendingCount + queue.size() > pendingInput.length) {
+            pendingInput = Arrays.copyOf(pendingInput, Math.max(pendingInput.length * 2, pendingCount + queue.size()));
+        }
+        for (int i = 0; i < queue.size(); i++) {
+            pendingInput[pendingCount++] = queue.nanos(i);
+        }
+    }
+
+    public void rendered(int objects) {
+        objectsRendered.record(objects);
+    }
+
+    /** Called once a pulse has painted, with the pulse's start time. */
+    public void framePresented(long pulseNanos) {
+        if (lastPulse != 0) {
+            frameNanos.record(pulseNanos - lastPulse);
+        }
+        lastPulse = pulseNanos;
+        long now = System.nanoTime();
+        for (int i = 0; i < pendingCount; i++) {
+            inputLatencyNanos.record(now - pendingInput[i]);
+        }
+        pendingCount = 0;
+        heapBytes.record(runtime.totalMemory() - runtime.freeMemory());
+
+        if (hud != null && now - hudFrom.nanos() >= HUD_INTERVAL_NANOS) {
+            Snapshot current = snapshot();
+            hud.accept(current.since(hudFrom).summary());
+            hudFrom = current;
+        }
+    }
+
+    /** Shows a summary every half second while set; null turns the HUD off. */
+    public void setHud(Consumer<String> hud) {
+        this.hud = hud;
+        hudFrom = hud != null ? snapshot() : null;
+    }
+
+    /** Safe to call from any thread. */
+    public Snapshot snapshot() {
+        return new Snapshot(System.nanoTime(), frameNanos.snapshot(), inputLatencyNanos.snapshot(),
+                objectsRendered.snapshot(), heapBytes.snapshot());
+    }
+
+    /** The recorders as of {@code nanos}; from {@link #since}, what they took in over {@code nanos}. */
+    public record Snapshot(long nanos, Histogram.Snapshot frames, Histogram.Snapshot inputLatency,
+                           Histogram.Snapshot objects, Histogram.Snapshot heap) {
+
+        public Snapshot since(Snapshot earlier) {
+            return new Snapshot(nanos - earlier.nanos, frames.since(earlier.frames),
+                    inputLatency.since(earlier.inputLatency), objects.since(earlier.objects),
+                    heap.since(earlier.heap));
+        }
+
+        /** Frames per second, for a snapshot from {@link #since}. */
+        public double fps() {
+            return nanos > 0 ? frames.count() * 1e9 / nanos : 0;
+        }
+
+        public String summary() {
+            return String.format(Locale.ROOT, "%.0f fps | frame %.1f / %.1f ms | input %.1f / %.1f ms"
+                            + " | %d objects | heap %d MB",
+                    fps(), frames.percentile(50) / 1e6, frames.percentile(99) / 1e6,
+                    inputLatency.percentile(50) / 1e6, inputLatency.percentile(99) / 1e6,
+                    objects.max(), heap.max() >> 20);
+        }
+    }
+}
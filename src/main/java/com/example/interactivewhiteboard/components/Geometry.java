@@ -0,0 +1,42 @@
+package com.example.interactivewhiteboard.components;
+
+/**
+ * Small geometric helpers shared by hit-testing and erasing.
+ */
+public final class Geometry {
+
+    private Geometry() {
+    }
+
+    /** Squared distance from (px, py) to the segment (x0, y0)-(x1, y1). */
+    public static double segmentDistanceSq(double px, double py, double x0, double y0, double x1, double y1) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : ((px - x0) * dx + (py - y0) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+        double ex = x0 + t * dx - px;
+        double ey = y0 + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+
+    /** Squared distance between two segments, 0 when they cross. */
+    public static double segmentsDistanceSq(double ax0, double ay0, double ax1, double ay1,
+                                            double bx0, double by0, double bx1, double by1) {
+        double d0 = cross(bx0, by0, bx1, by1, ax0, ay0);
+        double d1 = cross(bx0, by0, bx1, by1, ax1, ay1);
+        double d2 = cross(ax0, ay0, ax1, ay1, bx0, by0);
+        double d3 = cross(ax0, ay0, ax1, ay1, bx1, by1);
+        if (((d0 > 0 && d1 < 0) || (d0 < 0 && d1 > 0)) && ((d2 > 0 && d3 < 0) || (d2 < 0 && d3 > 0))) {
+            return 0;
+        }
+        return Math.min(
+                Math.min(segmentDistanceSq(ax0, ay0, bx0, by0, bx1, by1), segmentDistanceSq(ax1, ay1, bx0, by0, bx1, by1)),
+                Math.min(segmentDistanceSq(bx0, by0, ax0, ay0, ax1, ay1), segmentDistanceSq(bx1, by1, ax0, ay0, ax1, ay1)));
+    }
+
+    // Which side of the line through (x0, y0)-(x1, y1) the point is on
+    private static double cross(double x0, double y0, double x1, double y1, double px, double py) {
+        return (x1 - x0) * (py - y0) - (y1 - y0) * (px - x0);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.interactivewhiteboard.components;
+
+/**
+ * A bitmap placed on the board. Only the source URL is kept here; decoded
+ * pixels are owned by the renderer.
+ */
+public record ImageObject(long id, String source, float x, float y, float width, float height)
+        implements BoardObject {
+
+    @Override public float minX() { return x; }
+    @Override public float minY() { return y; }
+    @Override public float maxX() { return x + width; }
+    @Override public float maxY() { return y + height; }
+}
@@ -0,0 +1,73 @@
+package com.example.interactivewhiteboard.components;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends records in the journal format of {@link SessionJournal} to a file
+ * through a direct buffer, so small records cost a copy rather than a system
+ * call. Used from one thread at a time.
+ */
+final class JournalWriter implements Closeable {
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    /** Starts a journal at {@code path}, replacing any file there. */
+    JournalWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(SessionJournal.MAGIC).putLong(System.currentTimeMillis());
+        try {
+            flush();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    void append(byte type, int millis, VarintBuffer payload) throws IOException {
+        if (buffer.remaining() < SessionJournal.RECORD_HEADER_BYTES + payload.size()) {
+            flush();
+        }
+        buffer.put(type).putInt(millis).putInt(payload.size());
+        if (buffer.remaining() >= payload.size()) {
+            buffer.put(payload.bytes(), 0, payload.size());
+            return;
+        }
+        // Larger than the buffer, so written straight from the payload after the header
+        flush();
+        ByteBuffer large = ByteBuffer.wrap(payload.bytes(), 0, payload.size());
+        while (large.hasRemaining()) {
+            channel.write(large);
+        }
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** Flushes and waits until the records are on the disk. */
+    void sync() throws IOException {
+        flush();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
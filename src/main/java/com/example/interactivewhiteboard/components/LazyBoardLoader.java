@@ -0,0 +1,127 @@
+package com.example.interactivewhiteboard.components;
+
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Feeds a {@link MappedBoard} into a board's model as the view moves. Chunks
+ * under the viewport, plus a margin of half a screen on every side, are
+ * decoded on the FX thread a few per pulse so panning stays responsive;
+ * chunks never looked at are never decoded.
+ */
+public class LazyBoardLoader {
+    private static final int CHUNKS_PER_PULSE = 4;
+
+    private final MappedBoard board;
+    private final BoardRenderer renderer;
+    private final ArrayDeque<Integer> pending = new ArrayDeque<>();
+    private Consumer<IOException> onError = e -> { };
+    private boolean scheduled;
+    private boolean closed;
+
+    public LazyBoardLoader(MappedBoard board, BoardRenderer renderer) {
+        this.board = board;
+        this.renderer = renderer;
+        renderer.getModel().reserveIds(board.getMaxId());
+    }
+
+    public void setOnError(Consumer<IOException> onError) {
+        this.onError = onError;
+    }
+
+    public boolean isComplete() {
+        return closed || (pending.isEmpty() && board.isFullyClaimed());
+    }
+
+    /** Queues the chunks near the current view. */
+    public void requestVisible() {
+        if (closed) {
+            return;
+        }
+        Bounds visible = renderer.getVisibleBounds();
+        double marginX = visible.getWidth() / 2, marginY = visible.getHeight() / 2;
+        for (int chunk : board.claim(visible.getMinX() - marginX, visible.getMinY() - marginY,
+                visible.getMaxX() + marginX, visible.getMaxY() + marginY)) {
+            pending.add(chunk);
+        }
+        if (!pending.isEmpty() && !scheduled) {
+            scheduled = true;
+            Platform.runLater(this::drain);
+        }
+    }
+
+    /**
+     * Decodes everything not loaded yet, for operations that need the whole
+     * board such as saving or clearing.
+     */
+    public void loadAll() throws IOException {
+        if (closed) {
+            return;
+        }
+        for (int chunk : board.claimAll()) {
+            pending.add(chunk);
+        }
+        try {
+            while (!pending.isEmpty()) {
+                addChunk(pending.poll());
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw corrupt(e);
+        }
+        renderer.render();
+        close();
+    }
+
+    public void close() {
+        closed = true;
+        pending.clear();
+        try {
+            board.close();
+        } catch (IOException ignored) {
+            // Nothing left to read from it
+        }
+    }
+
+    private void drain() {
+        scheduled = false;
+        if (closed) {
+            return;
+        }
+        try {
+            for (int i = 0; i < CHUNKS_PER_PULSE && !pending.isEmpty(); i++) {
+                addChunk(pending.poll());
+            }
+        } catch (IOException | RuntimeException e) {
+            // Reported once; left open, every pan would decode the same bad chunk again
+            close();
+            onError.accept(corrupt(e));
+            return;
+        }
+        renderer.render();
+        if (!pending.isEmpty()) {
+            scheduled = true;
+            Platform.runLater(this::drain);
+        } else if (board.isFullyClaimed()) {
+            close();
+        }
+    }
+
+    private static IOException corrupt(Exception e) {
+        return e instanceof IOException io ? io : new IOException("Corrupt board file", e);
+    }
+
+    private void addChunk(int chunk) throws IOException {
+        List<BoardObject> objects = board.decode(chunk);
+        BoardModel model = renderer.getModel();
+        for (BoardObject object : objects) {
+            model.add(object);
+            renderer.invalidate(object);
+        }
+    }
+}
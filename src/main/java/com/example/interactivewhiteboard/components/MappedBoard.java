@@ -0,0 +1,182 @@
+package com.example.interactivewhiteboard.components;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A board file opened through a memory map. Opening reads only the header,
+ * the metadata and the chunk index found through the END chunk, so it costs
+ * the same whatever the file size; object chunks are decoded when a caller
+ * asks for an area they cover. The operating system pages in just the parts
+ * of the file that are touched.
+ */
+public class MappedBoard implements Closeable {
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final BoardMetadata metadata;
+    private final long maxId;
+    private final long[] offsets;
+    private final int[] flags;
+    private final int[] lengths;
+    private final float[] bounds;
+    private final BitSet claimed = new BitSet();
+
+    private MappedBoard(FileChannel channel, MappedByteBuffer buffer, BoardMetadata metadata, long maxId,
+                        int chunkCount) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.metadata = metadata;
+        this.maxId = maxId;
+        this.offsets = new long[chunkCount];
+        this.flags = new int[chunkCount];
+        this.lengths = new int[chunkCount];
+        this.bounds = new float[chunkCount * 4];
+    }
+
+    /**
+     * Maps {@code path} and reads its index. Returns null when the file has
+     * no index, in which case it has to be read front to back instead.
+     */
+    public static MappedBoard open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Board file too large to map: " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            MappedBoard board = readIndex(channel, buffer);
+            if (board == null) {
+                channel.close();
+            }
+            return board;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static MappedBoard readIndex(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt(0) != FileManager.MAGIC) {
+                throw new IOException("Not a whiteboard file");
+            }
+            int version = Short.toUnsignedInt(buffer.getShort(4));
+            if (version > FileManager.VERSION) {
+                throw new IOException("Unsupported whiteboard file version " + version);
+            }
+
+            // The END chunk is last and carries the offset of the index
+            int endStart = buffer.limit() - FileManager.CHUNK_HEADER_SIZE - 8;
+            if (endStart < FileManager.HEADER_SIZE || buffer.getInt(endStart) != FileManager.CHUNK_END
+                    || buffer.getInt(endStart + 5) != 8) {
+                return null;
+            }
+            long indexStart = buffer.getLong(endStart + FileManager.CHUNK_HEADER_SIZE);
+            if (indexStart < FileManager.HEADER_SIZE || indexStart > endStart
+                    || buffer.getInt((int) indexStart) != FileManager.CHUNK_INDEX) {
+                return null;
+            }
+
+            BoardMetadata metadata = BoardMetadata.DEFAULT;
+            int first = FileManager.HEADER_SIZE;
+            if (buffer.getInt(first) == FileManager.CHUNK_META) {
+                int length = buffer.getInt(first + 5);
+                if (length < 0 || length > indexStart - first - FileManager.CHUNK_HEADER_SIZE) {
+                    throw new IOException("Corrupt board metadata");
+                }
+                byte[] payload = new byte[length];
+                buffer.get(first + FileManager.CHUNK_HEADER_SIZE, payload);
+                metadata = FileManager.readMetadata(payload);
+            }
+
+            int position = (int) indexStart + FileManager.CHUNK_HEADER_SIZE;
+            long maxId = buffer.getLong(position);
+            int chunkCount = buffer.getInt(position + 8);
+            if (chunkCount < 0 || (long) chunkCount * FileManager.INDEX_ENTRY_SIZE > endStart - position) {
+                throw new IOException("Corrupt board index");
+            }
+            position += 12;
+
+            MappedBoard board = new MappedBoard(channel, buffer, metadata, maxId, chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                board.offsets[i] = buffer.getLong(position);
+                board.flags[i] = buffer.get(position + 8) & 0xFF;
+                board.lengths[i] = buffer.getInt(position + 9);
+                for (int k = 0; k < 4; k++) {
+                    board.bounds[i * 4 + k] = buffer.getFloat(position + 13 + k * 4);
+                }
+                if (board.offsets[i] < FileManager.HEADER_SIZE || board.lengths[i] < FileManager.OBJECTS_HEADER_SIZE
+                        || board.offsets[i] + FileManager.CHUNK_HEADER_SIZE + board.lengths[i] > indexStart) {
+                    throw new IOException("Corrupt board index");
+                }
+                position += FileManager.INDEX_ENTRY_SIZE;
+            }
+            return board;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Truncated whiteboard file", e);
+        }
+    }
+
+    public BoardMetadata getMetadata() {
+        return metadata;
+    }
+
+    /** The highest object id in the file, so new objects can be numbered past it. */
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public int chunkCount() {
+        return offsets.length;
+    }
+
+    public synchronized boolean isFullyClaimed() {
+        return claimed.cardinality() == offsets.length;
+    }
+
+    /**
+     * Marks every unclaimed chunk overlapping the rectangle as claimed and
+     * returns them; each chunk is handed out once.
+     */
+    public synchronized int[] claim(double x0, double y0, double x1, double y1) {
+        int[] result = new int[offsets.length];
+        int count = 0;
+        for (int i = claimed.nextClearBit(0); i < offsets.length; i = claimed.nextClearBit(i + 1)) {
+            if (bounds[i * 4] <= x1 && bounds[i * 4 + 2] >= x0 && bounds[i * 4 + 1] <= y1 && bounds[i * 4 + 3] >= y0) {
+                claimed.set(i);
+                result[count++] = i;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    public synchronized int[] claimAll() {
+        return claim(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    /** Decodes one chunk; safe to call from any thread. */
+    public List<BoardObject> decode(int chunk) throws IOException {
+        byte[] payload = new byte[lengths[chunk]];
+        try {
+            buffer.get((int) offsets[chunk] + FileManager.CHUNK_HEADER_SIZE, payload);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Truncated whiteboard file", e);
+        }
+        return FileManager.decodeObjectChunk(payload, (flags[chunk] & FileManager.FLAG_COMPRESSED) != 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
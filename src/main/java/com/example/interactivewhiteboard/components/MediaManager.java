@@ -1,4 +1,263 @@
 package com.example.interactivewhiteboard.components;
 
+import javafx.application.Platform;
+import javafx.geometry.Dimension2D;
+import javafx.scene.image.Image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Decoded images for the board, kept in a least-recently-used cache bounded
+ * by the bytes their pixels take. Each source is decoded at the smallest
+ * power-of-two reduction ("mip level") that still covers its size on
+ * screen, in the background, so a photo shown as a thumbnail costs a
+ * thumbnail's memory and zooming in brings in the finer levels as needed.
+ * Entries are keyed by source and modification time, so an edited file is
+ * decoded again. A source that fails to decode is remembered as failed under
+ * that key too, so it is not tried again on every repaint, only once
+ * {@link #probe} finds the file has changed; what was kept for the old
+ * version is dropped then, so only the newest version of each source stays.
+ * Sizes are read from the image header off the FX thread the first time a
+ * source is drawn.
+ */
 public class MediaManager {
+    public static final long DEFAULT_MAX_BYTES = 128L << 20;
+    // Reductions tried for a source, finest first
+    private static final int MAX_LEVELS = 16;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Image> images = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Long> sizes = new HashMap<>();
+    private final Map<String, Dimension2D> originals = new HashMap<>();
+    private final Map<String, Long> versions = new HashMap<>();
+    private final Set<String> failed = new HashSet<>();
+    private final Set<String> probing = new HashSet<>();
+    private final ExecutorService prober = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "whiteboard-media");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long bytesUsed;
+    private Consumer<String> onLoaded = source -> { };
+
+    public MediaManager() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public MediaManager(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** Called on the FX thread with the source of each image that finishes decoding or has its size read. */
+    public void setOnLoaded(Consumer<String> onLoaded) {
+        this.onLoaded = onLoaded != null ? onLoaded : source -> { };
+    }
+
+    public long getBytesUsed() {
+        return bytesUsed;
+    }
+
+    /**
+     * Returns the full size of an image, reading only its header. Calling
+     * this again also picks up changes to the file since it was first used.
+     */
+    public Dimension2D probe(String source) throws IOException {
+        long version = modificationTime(source);
+        Long previous = versions.put(source, version);
+        if (previous != null && previous != version) {
+            forget(source + '@' + previous);
+        }
+        String key = source + '@' + version;
+        Dimension2D size = originals.get(key);
+        if (size == null) {
+            size = readSize(source);
+            originals.put(key, size);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the image to draw {@code source} at the given size in screen
+     * pixels. When that level is not decoded yet it is requested and the
+     * closest level already in memory is returned instead, or null if there
+     * is none. Returns null, too, while the size of a source not seen before
+     * is read in the background, or if the source failed to decode.
+     */
+    public Image get(String source, double displayWidth, double displayHeight) {
+        Long version = versions.get(source);
+        String base = source + '@' + version;
+        Dimension2D original = version != null ? originals.get(base) : null;
+        if (original == null) {
+            probeLater(source);
+            return null;
+        }
+        if (failed.contains(base)) {
+            return null;
+        }
+
+        int level = 0;
+        if (original.getWidth() > 0 && original.getHeight() > 0) {
+            double ratio = Math.min(original.getWidth() / Math.max(1, displayWidth),
+                    original.getHeight() / Math.max(1, displayHeight));
+            level = Math.max(0, Math.min(MAX_LEVELS - 1, (int) Math.floor(Math.log(ratio) / Math.log(2))));
+        }
+
+        String key = base + '#' + level;
+        Image image = images.get(key);
+        if (image != null && image.getProgress() >= 1) {
+            return image.isError() ? null : image;
+        }
+        if (image == null) {
+            decode(key, source, original, level);
+        }
+        // Something coarser or finer to show in the meantime
+        for (int delta = 1; delta < MAX_LEVELS; delta++) {
+            for (int other : new int[]{level + delta, level - delta}) {
+                Image fallback = other >= 0 ? images.get(base + '#' + other) : null;
+                if (fallback != null && fallback.getProgress() >= 1 && !fallback.isError()) {
+                    return fallback;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Forgets every image, size and failure, as when a new board is opened. */
+    public void clear() {
+        images.clear();
+        sizes.clear();
+        originals.clear();
+        versions.clear();
+        failed.clear();
+        bytesUsed = 0;
+    }
+
+    // Drops what was kept for one version of a source
+    private void forget(String base) {
+        originals.remove(base);
+        failed.remove(base);
+        for (int level = 0; level < MAX_LEVELS; level++) {
+            String key = base + '#' + level;
+            if (images.remove(key) != null) {
+                account(key, 0);
+            }
+        }
+    }
+
+    private void decode(String key, String source, Dimension2D original, int level) {
+        Image image;
+        long bytes;
+        if (level == 0 || original.getWidth() <= 0) {
+            image = new Image(source, true);
+            bytes = (long) original.getWidth() * (long) original.getHeight() * 4;
+        } else {
+            double width = Math.max(1, Math.ceil(original.getWidth() / (1 << level)));
+            double height = Math.max(1, Math.ceil(original.getHeight() / (1 << level)));
+            image = new Image(source, width, height, false, true, true);
+            bytes = (long) width * (long) height * 4;
+        }
+        images.put(key, image);
+        account(key, bytes);
+        image.progressProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal.doubleValue() < 1 || images.get(key) != image) {
+                return;
+            }
+            if (image.isError()) {
+                images.remove(key);
+                account(key, 0);
+                // Until the file changes, every level of it would fail the same way
+                failed.add(key.substring(0, key.lastIndexOf('#')));
+                return;
+            }
+            account(key, (long) image.getWidth() * (long) image.getHeight() * 4);
+            onLoaded.accept(source);
+        });
+        evict(key);
+    }
+
+    // The file and header are read on the prober, so a paint never waits on a disk or the network
+    private void probeLater(String source) {
+        if (!probing.add(source)) {
+            return;
+        }
+        prober.execute(() -> {
+            long version = modificationTime(source);
+            Dimension2D size;
+            try {
+                size = readSize(source);
+            } catch (IOException e) {
+                // Let the decoder report the problem
+                size = new Dimension2D(0, 0);
+            }
+            Dimension2D original = size;
+            Platform.runLater(() -> {
+                probing.remove(source);
+                versions.putIfAbsent(source, version);
+                originals.putIfAbsent(source + '@' + version, original);
+                onLoaded.accept(source);
+            });
+        });
+    }
+
+    private void account(String key, long bytes) {
+        Long previous = bytes > 0 ? sizes.put(key, bytes) : sizes.remove(key);
+        bytesUsed += bytes - (previous != null ? previous : 0);
+    }
+
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Image>> it = images.entrySet().iterator();
+        while (bytesUsed > maxBytes && it.hasNext()) {
+            String key = it.next().getKey();
+            if (!key.equals(keep)) {
+                it.remove();
+                account(key, 0);
+            }
+        }
+    }
+
+    private static long modificationTime(String source) {
+        try {
+            URI uri = URI.create(source);
+            if ("file".equals(uri.getScheme())) {
+                return Files.getLastModifiedTime(Path.of(uri)).toMillis();
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            // Not a local file; treat it as unchanging
+        }
+        return 0;
+    }
+
+    private static Dimension2D readSize(String source) throws IOException {
+        try (InputStream in = new URL(source).openStream();
+             ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = stream != null ? ImageIO.getImageReaders(stream) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + source);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                return new Dimension2D(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
 }
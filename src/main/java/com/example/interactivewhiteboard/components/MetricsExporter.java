@@ -0,0 +1,126 @@
+package com.example.interactivewhiteboard.components;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends a summary of {@link FrameMetrics} to a file at a fixed period, on a
+ * background thread: one CSV row per period, or one JSON object per line if
+ * the file name ends in {@code .json}. Each entry covers only that period,
+ * so a file can be read as a timeline of a session.
+ */
+public class MetricsExporter implements Closeable {
+    public static final long DEFAULT_PERIOD_SECONDS = 5;
+
+    private final FrameMetrics metrics;
+    private final Path file;
+    private final boolean json;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "whiteboard-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private FrameMetrics.Snapshot last;
+    private volatile IOException failure;
+
+    public MetricsExporter(FrameMetrics metrics, Path file, long periodSeconds) {
+        this.metrics = metrics;
+        this.file = file;
+        this.json = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+        this.last = metrics.snapshot();
+        executor.scheduleAtFixedRate(this::export, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /** Writes the period so far and stops; throws if any write failed. */
+    @Override
+    public void close() throws IOException {
+        executor.execute(this::export);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void export() {
+        if (failure != null) {
+            return;
+        }
+        FrameMetrics.Snapshot current = metrics.snapshot();
+        Map<String, Object> fields = fields(current.since(last));
+        last = current;
+        try {
+            boolean header = !json && (!Files.exists(file) || Files.size(file) == 0);
+            try (BufferedWriter out = Files.newBufferedWriter(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND)) {
+                if (header) {
+                    out.write(String.join(",", fields.keySet()));
+                    out.newLine();
+                }
+                out.write(json ? toJson(fields) : toCsv(fields));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private static Map<String, Object> fields(FrameMetrics.Snapshot interval) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("time", Instant.now().toString());
+        fields.put("seconds", interval.nanos() / 1e9);
+        fields.put("fps", interval.fps());
+        putMillis(fields, "frame", interval.frames());
+        fields.put("input_events", interval.inputLatency().count());
+        putMillis(fields, "input", interval.inputLatency());
+        fields.put("repaints", interval.objects().count());
+        fields.put("objects_p50", interval.objects().percentile(50));
+        fields.put("objects_max", interval.objects().max());
+        fields.put("heap_mean_mb", interval.heap().mean() / (1 << 20));
+        fields.put("heap_max_mb", interval.heap().max() / (double) (1 << 20));
+        return fields;
+    }
+
+    private static void putMillis(Map<String, Object> fields, String name, Histogram.Snapshot nanos) {
+        fields.put(name + "_p50_ms", nanos.percentile(50) / 1e6);
+        fields.put(name + "_p99_ms", nanos.percentile(99) / 1e6);
+        fields.put(name + "_max_ms", nanos.max() / 1e6);
+    }
+
+    private static String toCsv(Map<String, Object> fields) {
+        StringJoiner row = new StringJoiner(",");
+        fields.values().forEach(value -> row.add(format(value)));
+        return row.toString();
+    }
+
+    private static String toJson(Map<String, Object> fields) {
+        StringJoiner object = new StringJoiner(",", "{", "}");
+        fields.forEach((name, value) -> object.add("\"" + name + "\":"
+                + (value instanceof String ? "\"" + value + "\"" : format(value))));
+        return object.toString();
+    }
+
+    private static String format(Object value) {
+        return value instanceof Double d ? String.format(Locale.ROOT, "%.3f", d) : String.valueOf(value);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.interactivewhiteboard.components;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Erases ink from the model itself rather than painting over it. Each move
+ * of the eraser is a segment with the eraser's radius around it; strokes
+ * whose bounds it reaches are tested segment by segment against it and cut
+ * where it passes, leaving the pieces on either side as new strokes. Shapes
+ * it touches are removed whole. Images and text are left alone.
+ * <p>
+ * Every move is applied to the model straight away so the board updates
+ * while dragging, and {@link #finish()} returns the whole gesture as one
+ * edit for the undo history.
+ */
+public class ObjectEraser {
+    private final BoardModel model;
+    private final double radius;
+    private double lastX, lastY;
+
+    // What the gesture took from the board before it started, and the pieces it left
+    private final Map<Long, BoardObject> removed = new LinkedHashMap<>();
+    private final Map<Long, BoardObject> added = new LinkedHashMap<>();
+
+    public ObjectEraser(BoardModel model, double radius, double x, double y) {
+        this.model = model;
+        this.radius = radius;
+        this.lastX = x;
+        this.lastY = y;
+    }
+
+    /**
+     * Erases along the segment from the previous position to (x, y) and
+     * applies it to the model. Returns what changed, or null if nothing did.
+     */
+    public BoardEdit moveTo(double x, double y) {
+        double x0 = lastX, y0 = lastY;
+        lastX = x;
+        lastY = y;
+        List<BoardObject> gone = new ArrayList<>();
+        List<BoardObject> pieces = new ArrayList<>();
+        for (BoardObject object : model.query(Math.min(x0, x) - radius, Math.min(y0, y) - radius,
+                Math.max(x0, x) + radius, Math.max(y0, y) + radius)) {
+            if (object instanceof Stroke stroke) {
+                if (cut(stroke, x0, y0, x, y, pieces)) {
+                    gone.add(stroke);
+                }
+            } else if (object instanceof ShapeObject shape && touches(shape, x0, y0, x, y)) {
+                gone.add(shape);
+            }
+        }
+        if (gone.isEmpty()) {
+            return null;
+        }
+        BoardEdit edit = new BoardEdit(gone, pieces);
+        edit.applyTo(model);
+        for (BoardObject object : gone) {
+            // A piece erased again was never on the board before the gesture
+            if (added.remove(object.id()) == null) {
+                removed.putIfAbsent(object.id(), object);
+            }
+        }
+        for (BoardObject piece : pieces) {
+            added.put(piece.id(), piece);
+        }
+        return edit;
+    }
+
+    /** The whole gesture as one edit, already applied, or null if nothing was erased. */
+    public BoardEdit finish() {
+        if (removed.isEmpty()) {
+            return null;
+        }
+        return new BoardEdit(new ArrayList<>(removed.values()), new ArrayList<>(added.values()));
+    }
+
+    /**
+     * Adds what is left of {@code stroke} to {@code pieces} and returns true,
+     * or returns false if the eraser missed it. Segments the eraser reaches
+     * are sampled at a quarter of the reach so the cut follows the eraser's
+     * edge rather than dropping whole segments, and only the samples at the
+     * ends of the cut are kept. The first piece keeps the stroke's id, and so
+     * its place in the paint order.
+     */
+    private boolean cut(Stroke stroke, double x0, double y0, double x1, double y1, List<BoardObject> pieces) {
+        double reach = radius + stroke.width() / 2;
+        double reachSq = reach * reach;
+        int count = stroke.pointCount();
+        if (count == 1) {
+            return Geometry.segmentDistanceSq(stroke.x(0), stroke.y(0), x0, y0, x1, y1) <= reachSq;
+        }
+
+        List<float[]> runs = new ArrayList<>();
+        float[] xs = new float[count], ys = new float[count];
+        int n = 0;
+        boolean erased = false;
+        if (Geometry.segmentDistanceSq(stroke.x(0), stroke.y(0), x0, y0, x1, y1) > reachSq) {
+            xs[n] = stroke.x(0);
+            ys[n++] = stroke.y(0);
+        } else {
+            erased = true;
+        }
+        for (int i = 1; i < count; i++) {
+            float ax = stroke.x(i - 1), ay = stroke.y(i - 1), bx = stroke.x(i), by = stroke.y(i);
+            if (Geometry.segmentsDistanceSq(ax, ay, bx, by, x0, y0, x1, y1) > reachSq) {
+                if (n == xs.length) {
+                    xs = Arrays.copyOf(xs, n * 2);
+                    ys = Arrays.copyOf(ys, n * 2);
+                }
+                xs[n] = bx;
+                ys[n++] = by;
+                continue;
+            }
+            erased = true;
+            int steps = Math.max(1, (int) Math.ceil(Math.hypot(bx - ax, by - ay) / (reach / 4)));
+            // Whether the last point kept is a sample that can slide along the segment
+            boolean sliding = false;
+            for (int k = 1; k <= steps; k++) {
+                float t = (float) k / steps;
+                float qx = k == steps ? bx : ax + (bx - ax) * t;
+                float qy = k == steps ? by : ay + (by - ay) * t;
+                if (Geometry.segmentDistanceSq(qx, qy, x0, y0, x1, y1) > reachSq) {
+                    if (sliding) {
+                        n--;
+                    } else if (n == xs.length) {
+                        xs = Arrays.copyOf(xs, n * 2);
+                        ys = Arrays.copyOf(ys, n * 2);
+                    }
+                    xs[n] = qx;
+                    ys[n++] = qy;
+                    // The first sample of a run marks the edge of the cut and stays put
+                    sliding = n > 1 && k < steps;
+                } else {
+                    n = endRun(runs, xs, ys, n);
+                    sliding = false;
+                }
+            }
+        }
+        if (!erased) {
+            return false;
+        }
+        endRun(runs, xs, ys, n);
+        for (int i = 0; i < runs.size(); i += 2) {
+            long id = i == 0 ? stroke.id() : model.nextId();
+            pieces.add(new Stroke(id, stroke.color(), stroke.width(), stroke.flags(), runs.get(i), runs.get(i + 1)));
+        }
+        return true;
+    }
+
+    // Runs of a single point would leave specks behind, so they are dropped
+    private static int endRun(List<float[]> runs, float[] xs, float[] ys, int n) {
+        if (n > 1) {
+            runs.add(Arrays.copyOf(xs, n));
+            runs.add(Arrays.copyOf(ys, n));
+        }
+        return 0;
+    }
+
+    // Tests points along the eraser's path no further apart than its radius
+    private boolean touches(ShapeObject shape, double x0, double y0, double x1, double y1) {
+        int steps = Math.max(1, (int) Math.ceil(Math.hypot(x1 - x0, y1 - y0) / Math.max(radius, 0.5)));
+        for (int k = 0; k <= steps; k++) {
+            double t = (double) k / steps;
+            if (shape.hits(x0 + (x1 - x0) * t, y0 + (y1 - y0) * t, radius)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.interactivewhiteboard.components;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+
+/**
+ * A transparent canvas stacked over the board for things that change on
+ * every mouse move: the stroke being drawn, the shape being dragged out and
+ * the brush cursor. It is repainted at most once per pulse, and only over
+ * the area it painted last time plus the area it paints now, so the board
+ * canvas underneath is left alone until the object is committed. While a
+ * stroke only grows, each pulse appends the new samples as one path instead
+ * of repainting the stroke: the area around the new samples and the
+ * segment to the loose end is cleared and what of the stroke falls in it is
+ * drawn again as one path, so the end moves without leaving a trail and
+ * translucent strokes do not darken where the pieces meet.
+ */
+public class OverlayLayer {
+    // Room for anti-aliased edges, in pixels
+    private static final double PADDING = 2;
+
+    private final Canvas canvas;
+    private final GraphicsContext gc;
+    private final BoardRenderer renderer;
+    private final AnimationTimer timer;
+
+    private BoardObject preview;
+    private PointBuffer stroke;
+    private Color strokeColor;
+    private double strokeWidth;
+    private boolean cursorVisible;
+    private double cursorX, cursorY, cursorDiameter;
+
+    private Runnable onPulse = () -> { };
+    private boolean dirty;
+    private boolean strokeGrew;
+    private int strokeDrawn;
+    // World bounds of the last segment drawn, whose end may still move
+    private double tailX0, tailY0, tailX1, tailY1;
+    // Screen area painted last pulse, empty when there is nothing on the overlay
+    private double paintedX0 = Double.MAX_VALUE, paintedY0 = Double.MAX_VALUE;
+    private double paintedX1 = -Double.MAX_VALUE, paintedY1 = -Double.MAX_VALUE;
+    private double paintedViewX, paintedViewY, paintedScale;
+
+    /** Sizes {@code overlay} to the board canvas and starts repainting it every pulse. */
+    public OverlayLayer(Canvas overlay, BoardRenderer renderer, Canvas board) {
+        this.canvas = overlay;
+        this.gc = overlay.getGraphicsContext2D();
+        this.renderer = renderer;
+        overlay.setMouseTransparent(true);
+        overlay.widthProperty().bind(board.widthProperty());
+        overlay.heightProperty().bind(board.heightProperty());
+        overlay.widthProperty().addListener((obs, oldVal, newVal) -> invalidateAll());
+        overlay.heightProperty().addListener((obs, oldVal, newVal) -> invalidateAll());
+
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pulse();
+                renderer.getMetrics().framePresented(now);
+            }
+        };
+        timer.start();
+    }
+
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
+    /** Runs once per pulse before the overlay is painted, e.g. to drain queued input. */
+    public void setOnPulse(Runnable onPulse) {
+        this.onPulse = onPulse != null ? onPulse : () -> { };
+    }
+
+    /** Shows a transient object, such as a shape being dragged out, until replaced or cleared with null. */
+    public void setPreview(BoardObject preview) {
+        this.preview = preview;
+        dirty = true;
+    }
+
+    /**
+     * Shows the samples in {@code points} as a stroke in progress. The buffer
+     * is read on every pulse, so appending to it only needs {@link #strokeChanged()}.
+     */
+    public void setStroke(PointBuffer points, Color color, double width) {
+        this.stroke = points;
+        this.strokeColor = color;
+        this.strokeWidth = width;
+        dirty = true;
+    }
+
+    /** Notes that samples were appended to the stroke in progress. */
+    public void strokeChanged() {
+        strokeGrew = true;
+    }
+
+    public void clearStroke() {
+        stroke = null;
+        dirty = true;
+    }
+
+    /** Outlines the brush at a screen position; {@code diameter} is in world units. */
+    public void showCursor(double screenX, double screenY, double diameter) {
+        cursorVisible = true;
+        cursorX = screenX;
+        cursorY = screenY;
+        cursorDiameter = diameter;
+        dirty = true;
+    }
+
+    public void hideCursor() {
+        if (cursorVisible) {
+            cursorVisible = false;
+            dirty = true;
+        }
+    }
+
+    public void dispose() {
+        timer.stop();
+    }
+
+    private void invalidateAll() {
+        paintedX0 = 0;
+        paintedY0 = 0;
+        paintedX1 = canvas.getWidth();
+        paintedY1 = canvas.getHeight();
+        dirty = true;
+    }
+
+    private void pulse() {
+        onPulse.run();
+        Viewport viewport = renderer.getViewport();
+        boolean viewChanged = viewport.getX() != paintedViewX || viewport.getY() != paintedViewY
+                || viewport.getScale() != paintedScale;
+        if (!dirty && !(viewChanged && paintedX1 >= paintedX0)) {
+            if (strokeGrew && stroke != null) {
+                appendStroke(viewport);
+            }
+            strokeGrew = false;
+            return;
+        }
+        dirty = false;
+        strokeGrew = false;
+        paintedViewX = viewport.getX();
+        paintedViewY = viewport.getY();
+        paintedScale = viewport.getScale();
+
+        if (paintedX1 >= paintedX0) {
+            gc.clearRect(paintedX0, paintedY0, paintedX1 - paintedX0, paintedY1 - paintedY0);
+        }
+        paintedX0 = paintedY0 = Double.MAX_VALUE;
+        paintedX1 = paintedY1 = -Double.MAX_VALUE;
+
+        double scale = viewport.getScale();
+        gc.save();
+        gc.transform(scale, 0, 0, scale, -viewport.getX() * scale, -viewport.getY() * scale);
+        strokeDrawn = 0;
+        if (stroke != null && !stroke.isEmpty()) {
+            drawStroke(viewport, -Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+        }
+        if (preview != null) {
+            DrawingTools.drawObject(gc, preview, renderer.getBackground(), renderer.getMedia(), scale);
+            include(viewport, preview.minX(), preview.minY(), preview.maxX(), preview.maxY(), 0);
+        }
+        gc.restore();
+
+        if (cursorVisible) {
+            double radius = Math.max(1, cursorDiameter * scale / 2);
+            gc.setLineWidth(1);
+            gc.setStroke(Color.gray(0.2, 0.8));
+            gc.strokeOval(cursorX - radius, cursorY - radius, radius * 2, radius * 2);
+            gc.setStroke(Color.gray(1, 0.8));
+            gc.strokeOval(cursorX - radius - 1, cursorY - radius - 1, radius * 2 + 2, radius * 2 + 2);
+            includeScreen(cursorX - radius - 2, cursorY - radius - 2, cursorX + radius + 2, cursorY + radius + 2);
+        }
+    }
+
+    private void appendStroke(Viewport viewport) {
+        int count = stroke.size();
+        if (count == 0) {
+            return;
+        }
+        // The old segment to the loose end, which may have moved, and everything from the last fixed sample on
+        double x0 = tailX0, y0 = tailY0, x1 = tailX1, y1 = tailY1;
+        for (int i = Math.max(0, Math.min(strokeDrawn, count) - 2); i < count; i++) {
+            x0 = Math.min(x0, stroke.x(i));
+            y0 = Math.min(y0, stroke.y(i));
+            x1 = Math.max(x1, stroke.x(i));
+            y1 = Math.max(y1, stroke.y(i));
+        }
+        double pad = strokeWidth / 2;
+        double sx0 = Math.floor(viewport.toScreenX(x0 - pad) - PADDING);
+        double sy0 = Math.floor(viewport.toScreenY(y0 - pad) - PADDING);
+        double sx1 = Math.ceil(viewport.toScreenX(x1 + pad) + PADDING);
+        double sy1 = Math.ceil(viewport.toScreenY(y1 + pad) + PADDING);
+        gc.clearRect(sx0, sy0, sx1 - sx0, sy1 - sy0);
+
+        double scale = viewport.getScale();
+        gc.save();
+        gc.beginPath();
+        gc.rect(sx0, sy0, sx1 - sx0, sy1 - sy0);
+        gc.clip();
+        gc.transform(scale, 0, 0, scale, -viewport.getX() * scale, -viewport.getY() * scale);
+        drawStroke(viewport, viewport.toWorldX(sx0) - pad, viewport.toWorldY(sy0) - pad,
+                viewport.toWorldX(sx1) + pad, viewport.toWorldY(sy1) + pad);
+        gc.restore();
+    }
+
+    // Draws, as one path, the segments that reach into the given world area
+    private void drawStroke(Viewport viewport, double areaX0, double areaY0, double areaX1, double areaY1) {
+        int count = stroke.size();
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        gc.setStroke(strokeColor);
+        gc.setLineWidth(strokeWidth);
+        gc.setLineCap(StrokeLineCap.ROUND);
+        gc.setLineJoin(StrokeLineJoin.ROUND);
+        gc.beginPath();
+        if (count == 1) {
+            // A lone sample still shows as a round dot
+            minX = maxX = stroke.x(0);
+            minY = maxY = stroke.y(0);
+            gc.moveTo(minX, minY);
+            gc.lineTo(minX, minY);
+        }
+        boolean open = false;
+        for (int i = 1; i < count; i++) {
+            float px = stroke.x(i - 1), py = stroke.y(i - 1), x = stroke.x(i), y = stroke.y(i);
+            if (Math.max(px, x) < areaX0 || Math.min(px, x) > areaX1
+                    || Math.max(py, y) < areaY0 || Math.min(py, y) > areaY1) {
+                open = false;
+                continue;
+            }
+            if (!open) {
+                gc.moveTo(px, py);
+                open = true;
+            }
+            gc.lineTo(x, y);
+            minX = Math.min(minX, Math.min(px, x));
+            minY = Math.min(minY, Math.min(py, y));
+            maxX = Math.max(maxX, Math.max(px, x));
+            maxY = Math.max(maxY, Math.max(py, y));
+        }
+        gc.stroke();
+        strokeDrawn = count;
+        int last = Math.max(0, count - 2);
+        tailX0 = Math.min(stroke.x(last), stroke.x(count - 1));
+        tailY0 = Math.min(stroke.y(last), stroke.y(count - 1));
+        tailX1 = Math.max(stroke.x(last), stroke.x(count - 1));
+        tailY1 = Math.max(stroke.y(last), stroke.y(count - 1));
+        if (maxX >= minX) {
+            include(viewport, minX, minY, maxX, maxY, strokeWidth / 2);
+        }
+    }
+
+    private void include(Viewport viewport, double x0, double y0, double x1, double y1, double pad) {
+        includeScreen(viewport.toScreenX(x0 - pad), viewport.toScreenY(y0 - pad),
+                viewport.toScreenX(x1 + pad), viewport.toScreenY(y1 + pad));
+    }
+
+    private void includeScreen(double x0, double y0, double x1, double y1) {
+        paintedX0 = Math.min(paintedX0, Math.floor(x0 - PADDING));
+        paintedY0 = Math.min(paintedY0, Math.floor(y0 - PADDING));
+        paintedX1 = Math.max(paintedX1, Math.ceil(x1 + PADDING));
+        paintedY1 = Math.max(paintedY1, Math.ceil(y1 + PADDING));
+    }
+}
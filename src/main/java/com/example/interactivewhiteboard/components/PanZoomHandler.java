@@ -0,0 +1,69 @@
+package com.example.interactivewhiteboard.components;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.input.ZoomEvent;
+
+/**
+ * Canvas navigation: drag with the middle or right button to pan, scroll to
+ * pan, Ctrl+scroll or pinch to zoom around the pointer. Primary-button events
+ * are left alone for the drawing tools.
+ */
+public class PanZoomHandler {
+    private static final double SCROLL_ZOOM_RATE = 0.002;
+
+    private final BoardRenderer renderer;
+    private double lastX, lastY;
+    private boolean panning = false;
+
+    private PanZoomHandler(BoardRenderer renderer) {
+        this.renderer = renderer;
+    }
+
+    public static void install(Canvas canvas, BoardRenderer renderer) {
+        PanZoomHandler handler = new PanZoomHandler(renderer);
+        canvas.addEventHandler(MouseEvent.MOUSE_PRESSED, handler::mousePressed);
+        canvas.addEventHandler(MouseEvent.MOUSE_DRAGGED, handler::mouseDragged);
+        canvas.addEventHandler(MouseEvent.MOUSE_RELEASED, handler::mouseReleased);
+        canvas.addEventHandler(ScrollEvent.SCROLL, handler::scroll);
+        canvas.addEventHandler(ZoomEvent.ZOOM, handler::zoom);
+    }
+
+    private void mousePressed(MouseEvent event) {
+        if (event.getButton() == MouseButton.MIDDLE || event.getButton() == MouseButton.SECONDARY) {
+            panning = true;
+            lastX = event.getX();
+            lastY = event.getY();
+        }
+    }
+
+    private void mouseDragged(MouseEvent event) {
+        if (panning) {
+            renderer.pan(event.getX() - lastX, event.getY() - lastY);
+            lastX = event.getX();
+            lastY = event.getY();
+        }
+    }
+
+    private void mouseReleased(MouseEvent event) {
+        if (event.getButton() == MouseButton.MIDDLE || event.getButton() == MouseButton.SECONDARY) {
+            panning = false;
+        }
+    }
+
+    private void scroll(ScrollEvent event) {
+        if (event.isControlDown()) {
+            renderer.zoomAt(event.getX(), event.getY(), Math.exp(event.getDeltaY() * SCROLL_ZOOM_RATE));
+        } else {
+            renderer.pan(event.getDeltaX(), event.getDeltaY());
+        }
+        event.consume();
+    }
+
+    private void zoom(ZoomEvent event) {
+        renderer.zoomAt(event.getX(), event.getY(), event.getZoomFactor());
+        event.consume();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.interactivewhiteboard.components;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Growable sample buffer for the stroke being drawn. Coordinates, pressure and
+ * time (milliseconds since the first sample) live in parallel float arrays, so
+ * appending a sample never allocates once the buffer has grown to fit. One
+ * buffer is meant to be reused for every stroke via {@link #clear()}.
+ */
+public class PointBuffer {
+    private float[] xs;
+    private float[] ys;
+    private float[] pressures;
+    private float[] times;
+    private int size;
+    private long startNanos;
+
+    public PointBuffer() {
+        this(256);
+    }
+
+    public PointBuffer(int initialCapacity) {
+        xs = new float[initialCapacity];
+        ys = new float[initialCapacity];
+        pressures = new float[initialCapacity];
+        times = new float[initialCapacity];
+    }
+
+    public void add(double x, double y, double pressure, long nanos) {
+        if (size == 0) {
+            startNanos = nanos;
+        }
+        if (size == xs.length) {
+            int capacity = size * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            pressures = Arrays.copyOf(pressures, capacity);
+            times = Arrays.copyOf(times, capacity);
+        }
+        xs[size] = (float) x;
+        ys[size] = (float) y;
+        pressures[size] = (float) pressure;
+        times[size] = (nanos - startNanos) / 1_000_000f;
+        size++;
+    }
+
+    /** Overwrites the newest sample, for a stroke end that is still moving. */
+    public void replaceLast(double x, double y, double pressure, long nanos) {
+        size--;
+        add(x, y, pressure, nanos);
+    }
+
+    /** Drops every sample whose bit is clear in {@code keep}, preserving order. */
+    public void retain(BitSet keep) {
+        int kept = 0;
+        for (int i = keep.nextSetBit(0); i >= 0 && i < size; i = keep.nextSetBit(i + 1)) {
+            xs[kept] = xs[i];
+            ys[kept] = ys[i];
+            pressures[kept] = pressures[i];
+            times[kept] = times[i];
+            kept++;
+        }
+        size = kept;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public float x(int i) { return xs[i]; }
+    public float y(int i) { return ys[i]; }
+    public float pressure(int i) { return pressures[i]; }
+    public float time(int i) { return times[i]; }
+
+    /** Copies the samples into an immutable stroke; the buffer can then be cleared. */
+    public Stroke toStroke(long id, int color, float width, int flags) {
+        return new Stroke(id, color, width, flags, Arrays.copyOf(xs, size), Arrays.copyOf(ys, size));
+    }
+}
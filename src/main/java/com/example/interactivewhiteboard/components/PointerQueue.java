@@ -0,0 +1,50 @@
+package com.example.interactivewhiteboard.components;
+
+import java.util.Arrays;
+
+/**
+ * Pointer samples collected between JavaFX pulses. Mouse and pen handlers
+ * only append here; the pulse handler takes the whole batch at once, so the
+ * work done per event stays constant however fast the device reports and
+ * drawing happens at the display rate. Coordinates are in screen pixels as
+ * delivered by the events.
+ */
+public class PointerQueue {
+    private float[] xs = new float[64];
+    private float[] ys = new float[64];
+    private float[] pressures = new float[64];
+    private long[] times = new long[64];
+    private int size;
+
+    public void add(double x, double y, double pressure, long nanos) {
+        if (size == xs.length) {
+            int capacity = size * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            pressures = Arrays.copyOf(pressures, capacity);
+            times = Arrays.copyOf(times, capacity);
+        }
+        xs[size] = (float) x;
+        ys[size] = (float) y;
+        pressures[size] = (float) pressure;
+        times[size] = nanos;
+        size++;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public float x(int i) { return xs[i]; }
+    public float y(int i) { return ys[i]; }
+    public float pressure(int i) { return pressures[i]; }
+    public long nanos(int i) { return times[i]; }
+}
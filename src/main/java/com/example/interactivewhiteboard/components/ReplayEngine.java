@@ -0,0 +1,170 @@
+package com.example.interactivewhiteboard.components;
+
+import javafx.animation.AnimationTimer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Plays a {@link SessionRecording} back onto the board of a renderer, at any
+ * speed, applying each pulse the edits that fell due since the last one. A
+ * seek forward that stays short of the next keyframe just applies the edits
+ * in between; any other seek starts over from the nearest keyframe before
+ * the target, so it costs about the same anywhere in the recording.
+ */
+public class ReplayEngine {
+    private final SessionRecording recording;
+    private final BoardRenderer renderer;
+    private final BoardModel model;
+    private final AnimationTimer timer;
+
+    private double speed = 1;
+    private boolean playing;
+    private double position;
+    private long lastPulse;
+    // The last record applied to the board, -1 before the first keyframe
+    private int applied = -1;
+    private Runnable onPositionChanged = () -> { };
+    private Consumer<IOException> onError = error -> { };
+
+    /** Takes over the renderer's board, which is replaced with the start of the recording. */
+    public ReplayEngine(SessionRecording recording, BoardRenderer renderer) {
+        this.recording = recording;
+        this.renderer = renderer;
+        this.model = renderer.getModel();
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pulse(now);
+            }
+        };
+        seek(0);
+    }
+
+    public SessionRecording getRecording() {
+        return recording;
+    }
+
+    public long getDurationMillis() {
+        return recording.getDurationMillis();
+    }
+
+    public long getPositionMillis() {
+        return (long) position;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    /** Called on the FX thread whenever the position moves. */
+    public void setOnPositionChanged(Runnable onPositionChanged) {
+        this.onPositionChanged = onPositionChanged != null ? onPositionChanged : () -> { };
+    }
+
+    /** Called when a record cannot be read; playback stops where it was. */
+    public void setOnError(Consumer<IOException> onError) {
+        this.onError = onError != null ? onError : error -> { };
+    }
+
+    /** Plays from the current position, or from the start once the end was reached. */
+    public void play() {
+        if (playing) {
+            return;
+        }
+        if (position >= getDurationMillis()) {
+            seek(0);
+        }
+        playing = true;
+        lastPulse = 0;
+        timer.start();
+    }
+
+    public void pause() {
+        playing = false;
+        timer.stop();
+    }
+
+    public void dispose() {
+        pause();
+    }
+
+    /** Formats a position as h:mm:ss, or m:ss under an hour. */
+    public static String formatTime(long millis) {
+        long seconds = millis / 1000;
+        if (seconds >= 3600) {
+            return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        }
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    /** Shows the board as it was {@code millis} into the recording. */
+    public void seek(long millis) {
+        position = Math.max(0, Math.min(millis, getDurationMillis()));
+        int target = Math.max(0, recording.recordAt((long) position));
+        int keyframe = recording.keyframeBefore(target);
+        try {
+            if (applied < keyframe || applied > target) {
+                model.clear();
+                recording.readKeyframe(keyframe).forEach(model::add);
+                applied = keyframe;
+            }
+            while (applied < target) {
+                applyNext();
+            }
+        } catch (IOException e) {
+            pause();
+            onError.accept(e);
+        }
+        renderer.redraw();
+        onPositionChanged.run();
+    }
+
+    private void pulse(long now) {
+        if (lastPulse == 0) {
+            lastPulse = now;
+            return;
+        }
+        position = Math.min(position + (now - lastPulse) / 1e6 * speed, getDurationMillis());
+        lastPulse = now;
+        try {
+            while (applied + 1 < recording.size() && recording.timeOf(applied + 1) <= position) {
+                renderer.invalidate(applyNext());
+            }
+        } catch (IOException e) {
+            pause();
+            onError.accept(e);
+        }
+        renderer.render();
+        if (position >= getDurationMillis()) {
+            pause();
+        }
+        onPositionChanged.run();
+    }
+
+    // Keyframes met on the way only restate the board and are passed over, unless it was replaced there
+    private BoardEdit applyNext() throws IOException {
+        applied++;
+        if (recording.isReset(applied)) {
+            List<BoardObject> before = new ArrayList<>(model.objects());
+            List<BoardObject> after = recording.readKeyframe(applied);
+            model.clear();
+            after.forEach(model::add);
+            return new BoardEdit(before, after);
+        }
+        if (recording.isKeyframe(applied)) {
+            return new BoardEdit(List.of(), List.of());
+        }
+        return recording.applyEdit(applied, model);
+    }
+}
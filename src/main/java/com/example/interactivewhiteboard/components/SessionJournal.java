@@ -0,0 +1,184 @@
+package com.example.interactivewhiteboard.components;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how a board is built as an append-only journal of timestamped
+ * edits, for {@link ReplayEngine}. Edits are handed to a background thread,
+ * which encodes them in the compact object form of the board file and
+ * appends them through a direct buffer, flushed when full and once a second,
+ * so a crash loses at most the last second. Every so often the thread also
+ * writes a keyframe of the whole board, from a copy it keeps up to date, so
+ * a replay can seek anywhere by decoding one keyframe and the edits after it.
+ * A keyframe is written once the edits since the last one outweigh it,
+ * which keeps both the journal and the cost of a seek within about twice
+ * what they would be otherwise.
+ *
+ * <pre>
+ * journal  := "WBJ1" startMillis:int64 record*
+ * record   := type:byte millis:int32 length:int32 payload
+ * edit     := removed:varint (idDelta:zigzag)* added:varint object*
+ * keyframe := count:varint object*      (type 2, or 3 where the board was replaced)
+ * </pre>
+ */
+public class SessionJournal implements Closeable {
+    public static final String EXTENSION = "wbj";
+    static final int MAGIC = 0x57424A31;
+    static final int HEADER_BYTES = 12;
+    static final int RECORD_HEADER_BYTES = 9;
+    static final byte EDIT = 1;
+    static final byte KEYFRAME = 2;
+    static final byte RESET = 3;
+
+    private static final long MIN_KEYFRAME_BYTES = 256 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final JournalWriter writer;
+    private final long startNanos = System.nanoTime();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "whiteboard-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Writer thread only
+    private final VarintBuffer payload = new VarintBuffer(4096);
+    private final TreeMap<Long, BoardObject> board = new TreeMap<>();
+    private long bytesSinceKeyframe;
+    private long lastKeyframeBytes;
+    private volatile IOException failure;
+
+    private SessionJournal(JournalWriter writer) {
+        this.writer = writer;
+    }
+
+    /** Starts a journal at {@code path}, replacing any file there, from the board as it is now. */
+    public static SessionJournal create(Path path, Collection<BoardObject> objects) throws IOException {
+        SessionJournal journal = new SessionJournal(new JournalWriter(path));
+        journal.reset(objects);
+        journal.executor.scheduleWithFixedDelay(journal::flushQuietly, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+        return journal;
+    }
+
+    /** Appends an edit that was just applied to the board. */
+    public void record(BoardEdit edit) {
+        int millis = elapsedMillis();
+        executor.execute(() -> write(() -> writeEdit(millis, edit)));
+    }
+
+    /** Notes that the board was replaced wholesale, as when a shared board is joined. */
+    public void reset(Collection<BoardObject> objects) {
+        int millis = elapsedMillis();
+        List<BoardObject> copy = new ArrayList<>(objects);
+        executor.execute(() -> write(() -> {
+            board.clear();
+            for (BoardObject object : copy) {
+                board.put(object.id(), object);
+            }
+            writeKeyframe(RESET, millis);
+        }));
+    }
+
+    /** Writes out what is buffered and closes the file; throws if any write failed. */
+    @Override
+    public void close() throws IOException {
+        try {
+            executor.submit(() -> {
+                writer.close();
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (failure == null) {
+                failure = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private int elapsedMillis() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private interface Write {
+        void run() throws IOException;
+    }
+
+    // After a failed write the journal would have a hole, so nothing more is written
+    private void write(Write write) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            write.run();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void writeEdit(int millis, BoardEdit edit) throws IOException {
+        for (BoardObject object : edit.removed()) {
+            board.remove(object.id());
+        }
+        for (BoardObject object : edit.added()) {
+            board.put(object.id(), object);
+        }
+        payload.reset();
+        encodeEdit(payload, edit);
+        writer.append(EDIT, millis, payload);
+        bytesSinceKeyframe += payload.size();
+        if (bytesSinceKeyframe > Math.max(MIN_KEYFRAME_BYTES, lastKeyframeBytes)) {
+            writeKeyframe(KEYFRAME, millis);
+        }
+    }
+
+    private void writeKeyframe(byte type, int millis) throws IOException {
+        payload.reset();
+        encodeBoard(payload, board.values());
+        writer.append(type, millis, payload);
+        bytesSinceKeyframe = 0;
+        lastKeyframeBytes = payload.size();
+    }
+
+    static void encodeEdit(VarintBuffer out, BoardEdit edit) {
+        out.writeVarLong(edit.removed().size());
+        long previousId = 0;
+        for (BoardObject object : edit.removed()) {
+            out.writeSignedVarLong(object.id() - previousId);
+            previousId = object.id();
+        }
+        out.writeVarLong(edit.added().size());
+        previousId = 0;
+        for (BoardObject object : edit.added()) {
+            previousId = BoardCodec.writeCompact(out, object, previousId);
+        }
+    }
+
+    static void encodeBoard(VarintBuffer out, Collection<BoardObject> objects) {
+        out.writeVarLong(objects.size());
+        long previousId = 0;
+        for (BoardObject object : objects) {
+            previousId = BoardCodec.writeCompact(out, object, previousId);
+        }
+    }
+
+    private void flushQuietly() {
+        write(writer::flush);
+    }
+}
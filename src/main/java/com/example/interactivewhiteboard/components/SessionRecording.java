@@ -0,0 +1,221 @@
+package com.example.interactivewhiteboard.components;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A journal written by {@link SessionJournal}, opened through a memory map.
+ * Opening walks the record headers only, so it is quick however long the
+ * session was; records are decoded when replayed. A journal cut short by a
+ * crash ends at the last complete record.
+ */
+public class SessionRecording implements Closeable {
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long startMillis;
+    private int count;
+    private byte[] types = new byte[256];
+    private int[] times = new int[256];
+    private int[] offsets = new int[256];
+    private int[] keyframes = new int[16];
+    private int keyframeCount;
+
+    private SessionRecording(FileChannel channel, MappedByteBuffer buffer, long startMillis) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.startMillis = startMillis;
+    }
+
+    public static SessionRecording open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Recording too large to map: " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (size < SessionJournal.HEADER_BYTES || buffer.getInt(0) != SessionJournal.MAGIC) {
+                throw new IOException("Not a whiteboard recording");
+            }
+            SessionRecording recording = new SessionRecording(channel, buffer, buffer.getLong(4));
+            recording.readIndex();
+            return recording;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void readIndex() throws IOException {
+        int position = SessionJournal.HEADER_BYTES;
+        int limit = buffer.limit();
+        while (limit - position >= SessionJournal.RECORD_HEADER_BYTES) {
+            byte type = buffer.get(position);
+            int millis = buffer.getInt(position + 1);
+            int length = buffer.getInt(position + 5);
+            int payload = position + SessionJournal.RECORD_HEADER_BYTES;
+            if (length < 0 || length > limit - payload) {
+                break;
+            }
+            if (type != SessionJournal.EDIT && type != SessionJournal.KEYFRAME && type != SessionJournal.RESET) {
+                throw new IOException("Unknown journal record type " + type);
+            }
+            if (count == types.length) {
+                types = Arrays.copyOf(types, count * 2);
+                times = Arrays.copyOf(times, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            if (type != SessionJournal.EDIT) {
+                if (keyframeCount == keyframes.length) {
+                    keyframes = Arrays.copyOf(keyframes, keyframeCount * 2);
+                }
+                keyframes[keyframeCount++] = count;
+            }
+            types[count] = type;
+            // Clock steps are never negative, even across a torn write
+            times[count] = count > 0 ? Math.max(times[count - 1], millis) : millis;
+            offsets[count] = position;
+            count++;
+            position = payload + length;
+        }
+        if (keyframeCount == 0 || keyframes[0] != 0) {
+            throw new IOException("Recording does not start with a keyframe");
+        }
+    }
+
+    /** Wall-clock time the recording started, in epoch milliseconds. */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getDurationMillis() {
+        return times[count - 1];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long timeOf(int record) {
+        return times[record];
+    }
+
+    /** Whether the record holds the whole board, so a replay can start from it. */
+    public boolean isKeyframe(int record) {
+        return types[record] != SessionJournal.EDIT;
+    }
+
+    /** Whether the board was replaced wholesale at this keyframe, rather than just restated. */
+    public boolean isReset(int record) {
+        return types[record] == SessionJournal.RESET;
+    }
+
+    /** The last record at or before {@code millis}, or -1 if there is none. */
+    public int recordAt(long millis) {
+        int low = 0, high = count - 1, found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] <= millis) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /** The last keyframe at or before {@code record}. */
+    public int keyframeBefore(int record) {
+        int low = 0, high = keyframeCount - 1, found = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (keyframes[middle] <= record) {
+                found = keyframes[middle];
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /** The board as of a keyframe or reset record, in id order. */
+    public List<BoardObject> readKeyframe(int record) throws IOException {
+        return decodeObjects(reader(record));
+    }
+
+    /**
+     * Applies an edit record to {@code model} and returns what it changed,
+     * with the objects it removed as they were on the board.
+     */
+    public BoardEdit applyEdit(int record, BoardModel model) throws IOException {
+        LoggedEdit edit = decodeEdit(reader(record));
+        List<BoardObject> removed = new ArrayList<>(edit.removedIds().length);
+        for (long id : edit.removedIds()) {
+            BoardObject object = model.remove(id);
+            if (object != null) {
+                removed.add(object);
+            }
+        }
+        edit.added().forEach(model::add);
+        return new BoardEdit(removed, edit.added());
+    }
+
+    /** An edit as journaled: removals are by id only. */
+    record LoggedEdit(long[] removedIds, List<BoardObject> added) {
+    }
+
+    static LoggedEdit decodeEdit(VarintReader in) throws IOException {
+        long[] removedIds = new long[checkedCount(in)];
+        long previousId = 0;
+        for (int i = 0; i < removedIds.length; i++) {
+            previousId += in.readSignedVarLong();
+            removedIds[i] = previousId;
+        }
+        return new LoggedEdit(removedIds, decodeObjects(in));
+    }
+
+    static List<BoardObject> decodeObjects(VarintReader in) throws IOException {
+        int count = checkedCount(in);
+        List<BoardObject> objects = new ArrayList<>(count);
+        long previousId = 0;
+        for (int i = 0; i < count; i++) {
+            BoardObject object = BoardCodec.readCompact(in, previousId);
+            previousId = object.id();
+            objects.add(object);
+        }
+        return objects;
+    }
+
+    // Every entry takes at least a byte, which bounds what a corrupt count can allocate
+    private static int checkedCount(VarintReader in) throws IOException {
+        long count = in.readVarLong();
+        if (count < 0 || count > in.remaining()) {
+            throw new IOException("Corrupt journal record");
+        }
+        return (int) count;
+    }
+
+    private VarintReader reader(int record) {
+        int offset = offsets[record];
+        int length = buffer.getInt(offset + 5);
+        byte[] data = new byte[length];
+        buffer.get(offset + SessionJournal.RECORD_HEADER_BYTES, data);
+        return new VarintReader(data);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
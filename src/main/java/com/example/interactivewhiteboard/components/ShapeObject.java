@@ -0,0 +1,44 @@
+package com.example.interactivewhiteboard.components;
+
+/**
+ * A line, rectangle or ellipse. For lines (x1, y1)-(x2, y2) are the end
+ * points; for the other kinds they are the corners of the bounding box.
+ */
+public record ShapeObject(long id, byte kind, float x1, float y1, float x2, float y2,
+                          int color, float width) implements BoardObject {
+    public static final byte LINE = 0;
+    public static final byte RECTANGLE = 1;
+    public static final byte OVAL = 2;
+
+    @Override public float minX() { return Math.min(x1, x2) - width / 2; }
+    @Override public float minY() { return Math.min(y1, y2) - width / 2; }
+    @Override public float maxX() { return Math.max(x1, x2) + width / 2; }
+    @Override public float maxY() { return Math.max(y1, y2) + width / 2; }
+
+    @Override
+    public boolean hits(double x, double y, double tolerance) {
+        if (!BoardObject.super.hits(x, y, tolerance)) {
+            return false;
+        }
+        double reach = width / 2 + tolerance;
+        double reachSq = reach * reach;
+        switch (kind) {
+            case LINE:
+                return Geometry.segmentDistanceSq(x, y, x1, y1, x2, y2) <= reachSq;
+            case RECTANGLE:
+                return Geometry.segmentDistanceSq(x, y, x1, y1, x2, y1) <= reachSq
+                        || Geometry.segmentDistanceSq(x, y, x2, y1, x2, y2) <= reachSq
+                        || Geometry.segmentDistanceSq(x, y, x2, y2, x1, y2) <= reachSq
+                        || Geometry.segmentDistanceSq(x, y, x1, y2, x1, y1) <= reachSq;
+            default:
+                // Distance to the outline, approximated along the ray from the centre
+                double rx = Math.abs(x2 - x1) / 2, ry = Math.abs(y2 - y1) / 2;
+                double dx = x - (x1 + x2) / 2.0, dy = y - (y1 + y2) / 2.0;
+                if (rx == 0 || ry == 0) {
+                    return true;
+                }
+                double r = Math.sqrt(dx * dx / (rx * rx) + dy * dy / (ry * ry));
+                return Math.abs(r - 1) * Math.min(rx, ry) <= reach;
+        }
+    }
+}
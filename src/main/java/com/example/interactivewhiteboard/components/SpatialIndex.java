@@ -0,0 +1,239 @@
+package com.example.interactivewhiteboard.components;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Loose quadtree over board objects. Each node's bounds are stretched to twice
+ * its cell size, so an object always sinks to the level matching its own size
+ * instead of piling up at the root when it straddles a cell border. The root
+ * grows on demand, which keeps the index unbounded like the board itself,
+ * and cells left empty by removals are unlinked, so erasing a crowded area
+ * leaves nothing behind for queries to walk.
+ */
+public class SpatialIndex {
+    private static final int MAX_ITEMS = 16;
+    private static final double MIN_CELL_SIZE = 8;
+    private static final double INITIAL_ROOT_SIZE = 1024;
+
+    private final Map<Long, Node> locations = new HashMap<>();
+    private Node root;
+
+    public int size() {
+        return locations.size();
+    }
+
+    public void clear() {
+        locations.clear();
+        root = null;
+    }
+
+    public void insert(BoardObject object) {
+        remove(object.id());
+        if (root == null) {
+            double size = INITIAL_ROOT_SIZE;
+            while (size < extent(object)) {
+                size *= 2;
+            }
+            double cx = (object.minX() + object.maxX()) / 2;
+            double cy = (object.minY() + object.maxY()) / 2;
+            root = new Node(null, Math.floor(cx / size) * size, Math.floor(cy / size) * size, size);
+        }
+        while (!root.accepts(object)) {
+            grow(object);
+        }
+        root.insert(object);
+    }
+
+    public boolean remove(long id) {
+        Node node = locations.remove(id);
+        if (node == null) {
+            return false;
+        }
+        node.items.removeIf(item -> item.id() == id);
+        while (node.items.isEmpty() && node.children == null) {
+            if (node.parent == null) {
+                root = null;
+                break;
+            }
+            node.parent.unlink(node);
+            node = node.parent;
+        }
+        return true;
+    }
+
+    /** Visits every object whose bounds intersect the rectangle, in no particular order. */
+    public void query(double x0, double y0, double x1, double y1, Consumer<BoardObject> visitor) {
+        if (root != null) {
+            root.query(x0, y0, x1, y1, visitor);
+        }
+    }
+
+    /** Objects whose bounds intersect the rectangle, in paint order. */
+    public List<BoardObject> query(double x0, double y0, double x1, double y1) {
+        List<BoardObject> result = new ArrayList<>();
+        query(x0, y0, x1, y1, result::add);
+        result.sort((a, b) -> Long.compare(a.id(), b.id()));
+        return result;
+    }
+
+    /** The top-most object under the point, or {@code null}. */
+    public BoardObject hitTest(double x, double y, double tolerance) {
+        BoardObject[] top = new BoardObject[1];
+        query(x - tolerance, y - tolerance, x + tolerance, y + tolerance, object -> {
+            if ((top[0] == null || object.id() > top[0].id()) && object.hits(x, y, tolerance)) {
+                top[0] = object;
+            }
+        });
+        return top[0];
+    }
+
+    /** Nodes in the tree, for tests. */
+    int nodeCount() {
+        return root != null ? root.count() : 0;
+    }
+
+    // Doubles the root towards the object until its cell can take it
+    private void grow(BoardObject object) {
+        double cx = (object.minX() + object.maxX()) / 2;
+        double cy = (object.minY() + object.maxY()) / 2;
+        double size = root.size * 2;
+        double x = cx < root.x ? root.x - root.size : root.x;
+        double y = cy < root.y ? root.y - root.size : root.y;
+
+        Node grown = new Node(null, x, y, size);
+        grown.children = new Node[4];
+        grown.children[grown.childIndex(root.x + root.size / 2, root.y + root.size / 2)] = root;
+        root.parent = grown;
+        root = grown;
+    }
+
+    private static double extent(BoardObject object) {
+        return Math.max(object.maxX() - object.minX(), object.maxY() - object.minY());
+    }
+
+    private final class Node {
+        final double x, y, size;
+        final List<BoardObject> items = new ArrayList<>();
+        Node parent;
+        Node[] children;
+
+        Node(Node parent, double x, double y, double size) {
+            this.parent = parent;
+            this.x = x;
+            this.y = y;
+            this.size = size;
+        }
+
+        boolean accepts(BoardObject object) {
+            double cx = (object.minX() + object.maxX()) / 2;
+            double cy = (object.minY() + object.maxY()) / 2;
+            return cx >= x && cx < x + size && cy >= y && cy < y + size && extent(object) <= size;
+        }
+
+        int childIndex(double cx, double cy) {
+            double half = size / 2;
+            return (cx < x + half ? 0 : 1) + (cy < y + half ? 0 : 2);
+        }
+
+        Node child(int index) {
+            if (children == null) {
+                children = new Node[4];
+            }
+            if (children[index] == null) {
+                double half = size / 2;
+                children[index] = new Node(this, x + (index & 1) * half, y + (index >> 1) * half, half);
+            }
+            return children[index];
+        }
+
+        // Drops an empty child, and the child array with the last of them
+        void unlink(Node child) {
+            boolean any = false;
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == child) {
+                    children[i] = null;
+                }
+                any |= children[i] != null;
+            }
+            if (!any) {
+                children = null;
+            }
+        }
+
+        int count() {
+            int count = 1;
+            if (children != null) {
+                for (Node child : children) {
+                    if (child != null) {
+                        count += child.count();
+                    }
+                }
+            }
+            return count;
+        }
+
+        void insert(BoardObject object) {
+            Node node = this;
+            while (true) {
+                double half = node.size / 2;
+                boolean canDescend = half >= MIN_CELL_SIZE && extent(object) <= half
+                        && (node.children != null || node.items.size() >= MAX_ITEMS);
+                if (!canDescend) {
+                    break;
+                }
+                if (node.children == null) {
+                    node.split();
+                }
+                double cx = (object.minX() + object.maxX()) / 2;
+                double cy = (object.minY() + object.maxY()) / 2;
+                node = node.child(node.childIndex(cx, cy));
+            }
+            node.items.add(object);
+            locations.put(object.id(), node);
+        }
+
+        // Pushes down the items that are small enough for a child cell
+        void split() {
+            children = new Node[4];
+            double half = size / 2;
+            List<BoardObject> kept = new ArrayList<>();
+            for (BoardObject item : items) {
+                if (extent(item) <= half) {
+                    double cx = (item.minX() + item.maxX()) / 2;
+                    double cy = (item.minY() + item.maxY()) / 2;
+                    Node target = child(childIndex(cx, cy));
+                    target.items.add(item);
+                    locations.put(item.id(), target);
+                } else {
+                    kept.add(item);
+                }
+            }
+            items.clear();
+            items.addAll(kept);
+        }
+
+        void query(double qx0, double qy0, double qx1, double qy1, Consumer<BoardObject> visitor) {
+            // Loose bounds: the cell widened by half its size on every side
+            double pad = size / 2;
+            if (qx1 < x - pad || qx0 > x + size + pad || qy1 < y - pad || qy0 > y + size + pad) {
+                return;
+            }
+            for (BoardObject item : items) {
+                if (item.intersects(qx0, qy0, qx1, qy1)) {
+                    visitor.accept(item);
+                }
+            }
+            if (children != null) {
+                for (Node child : children) {
+                    if (child != null) {
+                        child.query(qx0, qy0, qx1, qy1, visitor);
+                    }
+                }
+            }
+        }
+    }
+}
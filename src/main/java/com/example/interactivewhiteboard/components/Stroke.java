@@ -0,0 +1,76 @@
+package com.example.interactivewhiteboard.components;
+
+/**
+ * A freehand pencil or eraser stroke. Points are kept in two parallel float
+ * arrays instead of one object per sample, and the bounds are computed once.
+ */
+public final class Stroke implements BoardObject {
+    public static final int FLAG_ERASER = 1;
+
+    private final long id;
+    private final int color;
+    private final float width;
+    private final int flags;
+    private final float[] xs;
+    private final float[] ys;
+    private final float minX, minY, maxX, maxY;
+
+    public Stroke(long id, int color, float width, int flags, float[] xs, float[] ys) {
+        if (xs.length != ys.length || xs.length == 0) {
+            throw new IllegalArgumentException("Stroke needs matching, non-empty coordinate arrays");
+        }
+        this.id = id;
+        this.color = color;
+        this.width = width;
+        this.flags = flags;
+        this.xs = xs;
+        this.ys = ys;
+
+        float x0 = Float.MAX_VALUE, y0 = Float.MAX_VALUE;
+        float x1 = -Float.MAX_VALUE, y1 = -Float.MAX_VALUE;
+        for (int i = 0; i < xs.length; i++) {
+            x0 = Math.min(x0, xs[i]);
+            y0 = Math.min(y0, ys[i]);
+            x1 = Math.max(x1, xs[i]);
+            y1 = Math.max(y1, ys[i]);
+        }
+        float pad = width / 2;
+        minX = x0 - pad;
+        minY = y0 - pad;
+        maxX = x1 + pad;
+        maxY = y1 + pad;
+    }
+
+    @Override public long id() { return id; }
+    @Override public float minX() { return minX; }
+    @Override public float minY() { return minY; }
+    @Override public float maxX() { return maxX; }
+    @Override public float maxY() { return maxY; }
+
+    public int color() { return color; }
+    public float width() { return width; }
+    public int flags() { return flags; }
+    public boolean isEraser() { return (flags & FLAG_ERASER) != 0; }
+    public int pointCount() { return xs.length; }
+    public float x(int i) { return xs[i]; }
+    public float y(int i) { return ys[i]; }
+
+    @Override
+    public boolean hits(double x, double y, double tolerance) {
+        if (!BoardObject.super.hits(x, y, tolerance)) {
+            return false;
+        }
+        double reach = width / 2 + tolerance;
+        double reachSq = reach * reach;
+        if (xs.length == 1) {
+            double dx = xs[0] - x, dy = ys[0] - y;
+            return dx * dx + dy * dy <= reachSq;
+        }
+        for (int i = 1; i < xs.length; i++) {
+            if (Geometry.segmentDistanceSq(x, y, xs[i - 1], ys[i - 1], xs[i], ys[i]) <= reachSq) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.interactivewhiteboard.components;
+
+/**
+ * Thins out stroke samples while the stroke is being drawn. Each new sample
+ * either moves the stroke's loose end, when every sample since the last kept
+ * point still lies within the tolerance of the straight segment to it, or
+ * fixes the loose end in place and starts a new segment. Only the kept
+ * points ever reach the {@link PointBuffer}, and {@link #finish()} runs a
+ * Ramer–Douglas–Peucker pass over them for what the single pass missed.
+ * The tolerance is split between the two stages, most of it going to the
+ * streaming one, so no raw sample ends up further than the tolerance from
+ * the stored stroke.
+ */
+public class StrokeSimplifier {
+    // Bounds the work per sample on long straight runs
+    private static final int MAX_WINDOW = 256;
+    // Share of the tolerance used while drawing; the rest goes to the final pass
+    private static final double STREAMING_SHARE = 0.8;
+
+    private final float[] windowX = new float[MAX_WINDOW];
+    private final float[] windowY = new float[MAX_WINDOW];
+    private int windowSize;
+    private PointBuffer output;
+    private double anchorX, anchorY;
+    private double tolerance;
+    private double finalTolerance;
+
+    /** Starts a stroke at the given sample, clearing {@code output}; {@code tolerance} is in world units. */
+    public void begin(PointBuffer output, double x, double y, double pressure, long nanos, double tolerance) {
+        this.output = output;
+        this.tolerance = tolerance * STREAMING_SHARE;
+        this.finalTolerance = tolerance - this.tolerance;
+        output.clear();
+        output.add(x, y, pressure, nanos);
+        anchorX = x;
+        anchorY = y;
+        windowSize = 0;
+    }
+
+    public void add(double x, double y, double pressure, long nanos) {
+        if (windowSize == 0) {
+            output.add(x, y, pressure, nanos);
+        } else if (windowSize < MAX_WINDOW && fits(x, y)) {
+            output.replaceLast(x, y, pressure, nanos);
+        } else {
+            // The loose end becomes a kept point and the start of the next segment
+            anchorX = windowX[windowSize - 1];
+            anchorY = windowY[windowSize - 1];
+            windowSize = 0;
+            output.add(x, y, pressure, nanos);
+        }
+        windowX[windowSize] = (float) x;
+        windowY[windowSize] = (float) y;
+        windowSize++;
+    }
+
+    /** Finishes the stroke; {@code output} then holds the points to store. */
+    public void finish() {
+        DrawingTools.simplify(output, finalTolerance);
+        windowSize = 0;
+    }
+
+    private boolean fits(double x, double y) {
+        double toleranceSq = tolerance * tolerance;
+        for (int i = 0; i < windowSize; i++) {
+            if (Geometry.segmentDistanceSq(windowX[i], windowY[i], anchorX, anchorY, x, y) > toleranceSq) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
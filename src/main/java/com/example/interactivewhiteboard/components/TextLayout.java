@@ -0,0 +1,80 @@
+package com.example.interactivewhiteboard.components;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The box a label takes up, in world units from its baseline start: the
+ * advance and line height together with whatever ink strays beyond them.
+ * Layouts are cached by family, size and string, so a label that is loaded
+ * again, undone, edited back or repeated across a board is laid out once;
+ * so are the fonts the exporters draw with.
+ * <p>
+ * Once {@link #useCanvasFonts} has been called, text is measured with the
+ * fonts the canvas draws with, since the FX and AWT toolkits fall back to
+ * different fonts for a family that is not installed. Before that, as in the
+ * headless batch tools, it is measured with the exporters' AWT fonts.
+ * <p>
+ * Safe to use from any thread.
+ */
+public record TextLayout(float left, float right, float ascent, float descent) {
+    // Far more labels than a board shows at once; past that it starts over, which is cheaper than tracking use
+    public static final int MAX_ENTRIES = 16384;
+
+    // Unhinted, so the bounds grow in proportion to the size as the canvas zooms
+    private static final FontRenderContext MEASURE = new FontRenderContext(null, true, true);
+    private static final ConcurrentHashMap<FontKey, Font> fonts = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Key, TextLayout> layouts = new ConcurrentHashMap<>();
+    private static volatile boolean canvasFonts;
+
+    private record FontKey(String family, float size) {
+    }
+
+    private record Key(String family, float size, String text) {
+    }
+
+    /**
+     * Measures with the canvas's fonts from now on. Call once the FX toolkit
+     * is running and before any text is put on a board, as labels keep the
+     * bounds they were created with.
+     */
+    public static void useCanvasFonts() {
+        canvasFonts = true;
+        layouts.clear();
+    }
+
+    public static TextLayout of(String family, float size, String text) {
+        Key key = new Key(family, size, text);
+        TextLayout layout = layouts.get(key);
+        if (layout != null) {
+            return layout;
+        }
+        if (layouts.size() >= MAX_ENTRIES) {
+            layouts.clear();
+        }
+        return layouts.computeIfAbsent(key, TextLayout::measure);
+    }
+
+    /** The font an exporter draws a label in. */
+    public static Font font(String family, float size) {
+        if (fonts.size() >= MAX_ENTRIES) {
+            fonts.clear();
+        }
+        return fonts.computeIfAbsent(new FontKey(family, size),
+                key -> new Font(key.family(), Font.PLAIN, 1).deriveFont(key.size()));
+    }
+
+    private static TextLayout measure(Key key) {
+        if (canvasFonts) {
+            return DrawingTools.measure(key.family(), key.size(), key.text());
+        }
+        Font font = font(key.family(), key.size());
+        Rectangle2D logical = font.getStringBounds(key.text(), MEASURE);
+        Rectangle2D inked = font.createGlyphVector(MEASURE, key.text()).getVisualBounds();
+        Rectangle2D bounds = logical.createUnion(inked);
+        return new TextLayout((float) bounds.getMinX(), (float) bounds.getMaxX(),
+                (float) -bounds.getMinY(), (float) bounds.getMaxY());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.interactivewhiteboard.components;
+
+/**
+ * A text label anchored at its baseline start, as {@code fillText} draws it.
+ * The bounds come from the measured {@link TextLayout}, looked up once, so
+ * boards full of labels are queried without laying text out again.
+ */
+public final class TextObject implements BoardObject {
+    private final long id;
+    private final String text;
+    private final String family;
+    private final float size;
+    private final float x, y;
+    private final int color;
+    private final float minX, minY, maxX, maxY;
+
+    public TextObject(long id, String text, String family, float size, float x, float y, int color) {
+        this.id = id;
+        this.text = text;
+        this.family = family;
+        this.size = size;
+        this.x = x;
+        this.y = y;
+        this.color = color;
+
+        TextLayout layout = TextLayout.of(family, size, text);
+        minX = x + layout.left();
+        minY = y - layout.ascent();
+        maxX = x + layout.right();
+        maxY = y + layout.descent();
+    }
+
+    @Override public long id() { return id; }
+    @Override public float minX() { return minX; }
+    @Override public float minY() { return minY; }
+    @Override public float maxX() { return maxX; }
+    @Override public float maxY() { return maxY; }
+
+    public String text() { return text; }
+    public String family() { return family; }
+    public float size() { return size; }
+    public float x() { return x; }
+    public float y() { return y; }
+    public int color() { return color; }
+
+    /** The same label with other words, in the same place and style. */
+    public TextObject withText(String text) {
+        return new TextObject(id, text, family, size, x, y, color);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.interactivewhiteboard.components;
+
+import java.util.BitSet;
+
+/**
+ * Splits the canvas into square tiles and remembers which ones need to be
+ * repainted. Dirty tiles are handed out as horizontal runs so that a wide
+ * edit is repainted with one clip instead of one per tile.
+ */
+public class TileGrid {
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    @FunctionalInterface
+    public interface RegionConsumer {
+        void accept(double x, double y, double width, double height);
+    }
+
+    private final int tileSize;
+    private final BitSet dirty = new BitSet();
+    private int columns;
+    private int rows;
+
+    public TileGrid() {
+        this(DEFAULT_TILE_SIZE);
+    }
+
+    public TileGrid(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /** Adapts the grid to a new canvas size; everything becomes dirty. */
+    public void resize(double width, double height) {
+        columns = Math.max(1, (int) Math.ceil(width / tileSize));
+        rows = Math.max(1, (int) Math.ceil(height / tileSize));
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        dirty.set(0, columns * rows);
+    }
+
+    public void invalidate(double x0, double y0, double x1, double y1) {
+        if (x1 < 0 || y1 < 0 || x0 > columns * tileSize || y0 > rows * tileSize) {
+            return;
+        }
+        int c0 = clamp((int) Math.floor(x0 / tileSize), columns);
+        int c1 = clamp((int) Math.floor(x1 / tileSize), columns);
+        int r0 = clamp((int) Math.floor(y0 / tileSize), rows);
+        int r1 = clamp((int) Math.floor(y1 / tileSize), rows);
+        for (int r = r0; r <= r1; r++) {
+            dirty.set(r * columns + c0, r * columns + c1 + 1);
+        }
+    }
+
+    public boolean isDirty() {
+        return !dirty.isEmpty();
+    }
+
+    public int dirtyCount() {
+        return dirty.cardinality();
+    }
+
+    /** Passes every run of dirty tiles to the consumer and marks them clean. */
+    public void drainDirty(RegionConsumer consumer) {
+        int index = dirty.nextSetBit(0);
+        while (index >= 0) {
+            int row = index / columns;
+            int rowEnd = (row + 1) * columns;
+            int runEnd = dirty.nextClearBit(index);
+            if (runEnd > rowEnd) {
+                runEnd = rowEnd;
+            }
+            int column = index - row * columns;
+            consumer.accept(column * (double) tileSize, row * (double) tileSize,
+                    (runEnd - index) * (double) tileSize, tileSize);
+            index = dirty.nextSetBit(runEnd);
+        }
+        dirty.clear();
+    }
+
+    private static int clamp(int value, int count) {
+        return Math.max(0, Math.min(count - 1, value));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.interactivewhiteboard.components;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Undo/redo log of {@link BoardEdit}s. Undoing replays the inverse of a single
+ * edit, so its cost depends on the size of that edit and not on how long the
+ * session has run. Objects still on the board are shared with the model and
+ * cost nothing extra; objects an edit removed are the log's own memory, so
+ * large removals are kept deflated and the oldest entries are dropped once
+ * the byte budget or the entry limit is exceeded.
+ */
+public class UndoManager {
+    public static final int DEFAULT_MAX_ENTRIES = 500;
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    // Removals bigger than this are compressed rather than kept as objects
+    private static final long COMPRESS_THRESHOLD = 64 * 1024;
+
+    private final BoardModel model;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Deque<Entry> undoStack = new ArrayDeque<>();
+    private final Deque<Entry> redoStack = new ArrayDeque<>();
+    private long bytesUsed;
+
+    public UndoManager(BoardModel model) {
+        this(model, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    public UndoManager(BoardModel model, int maxEntries, long maxBytes) {
+        this.model = model;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Records an edit that has already been applied to the model. */
+    public void record(BoardEdit edit) {
+        if (edit.removed().isEmpty() && edit.added().isEmpty()) {
+            return;
+        }
+        push(undoStack, new Entry(edit));
+        while (!redoStack.isEmpty()) {
+            bytesUsed -= redoStack.pop().bytes;
+        }
+        while (undoStack.size() > maxEntries || (bytesUsed > maxBytes && undoStack.size() > 1)) {
+            bytesUsed -= undoStack.removeLast().bytes;
+        }
+    }
+
+    /** Reverts the latest edit and returns what was applied, or {@code null}. */
+    public BoardEdit undo() {
+        return step(undoStack, redoStack, true);
+    }
+
+    /** Re-applies the latest undone edit and returns it, or {@code null}. */
+    public BoardEdit redo() {
+        return step(redoStack, undoStack, false);
+    }
+
+    public void clear() {
+        undoStack.clear();
+        redoStack.clear();
+        bytesUsed = 0;
+    }
+
+    private BoardEdit step(Deque<Entry> from, Deque<Entry> to, boolean undoing) {
+        Entry entry = from.poll();
+        if (entry == null) {
+            return null;
+        }
+        bytesUsed -= entry.bytes;
+        BoardEdit edit = entry.edit();
+        BoardEdit applied = undoing ? edit.inverse() : edit;
+        applied.applyTo(model);
+        push(to, undoing ? new Entry(edit, true) : new Entry(edit));
+        return applied;
+    }
+
+    private void push(Deque<Entry> stack, Entry entry) {
+        stack.push(entry);
+        bytesUsed += entry.bytes;
+    }
+
+    /**
+     * A logged edit. The side currently on the board is shared with the model;
+     * the side off the board is owned here and is what the budget counts.
+     */
+    private static final class Entry {
+        final boolean undone;
+        final List<BoardObject> onBoard;
+        final List<BoardObject> offBoard;
+        final byte[] compressedOffBoard;
+        final long bytes;
+
+        Entry(BoardEdit edit) {
+            this(edit, false);
+        }
+
+        Entry(BoardEdit edit, boolean undone) {
+            this.undone = undone;
+            onBoard = undone ? edit.removed() : edit.added();
+            List<BoardObject> off = undone ? edit.added() : edit.removed();
+            long offBytes = 0;
+            for (BoardObject object : off) {
+                offBytes += BoardCodec.estimateSize(object);
+            }
+            if (offBytes > COMPRESS_THRESHOLD) {
+                offBoard = null;
+                compressedOffBoard = BoardCodec.encode(off, true);
+                offBytes = compressedOffBoard.length;
+            } else {
+                offBoard = off;
+                compressedOffBoard = null;
+            }
+            bytes = 32 + 8L * onBoard.size() + offBytes;
+        }
+
+        BoardEdit edit() {
+            List<BoardObject> off = offBoard != null ? offBoard : BoardCodec.decode(compressedOffBoard, true);
+            return undone ? new BoardEdit(onBoard, off) : new BoardEdit(off, onBoard);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.interactivewhiteboard.components;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with LEB128 varint writers, used by the board encoders.
+ * Signed values are zig-zag encoded so small negative deltas stay short.
+ */
+final class VarintBuffer {
+    private byte[] data;
+    private int size;
+
+    VarintBuffer(int initialCapacity) {
+        data = new byte[Math.max(16, initialCapacity)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** The backing array; only the first {@link #size()} bytes are valid. */
+    byte[] bytes() {
+        return data;
+    }
+
+    void reset() {
+        size = 0;
+    }
+
+    void writeByte(int value) {
+        ensure(1);
+        data[size++] = (byte) value;
+    }
+
+    void writeInt(int value) {
+        ensure(4);
+        data[size++] = (byte) (value >>> 24);
+        data[size++] = (byte) (value >>> 16);
+        data[size++] = (byte) (value >>> 8);
+        data[size++] = (byte) value;
+    }
+
+    void writeFloat(float value) {
+        writeInt(Float.floatToIntBits(value));
+    }
+
+    void writeDouble(double value) {
+        long bits = Double.doubleToLongBits(value);
+        writeInt((int) (bits >>> 32));
+        writeInt((int) bits);
+    }
+
+    void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            data[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[size++] = (byte) value;
+    }
+
+    void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeString(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(utf8.length);
+        write(utf8, 0, utf8.length);
+    }
+
+    void write(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, data, size, length);
+        size += length;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.interactivewhiteboard.components;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads what {@link VarintBuffer} writes.
+ */
+final class VarintReader {
+    private final byte[] data;
+    private final int limit;
+    private int position;
+
+    VarintReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    VarintReader(byte[] data, int offset, int length) {
+        this.data = data;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    boolean hasRemaining() {
+        return position < limit;
+    }
+
+    int remaining() {
+        return limit - position;
+    }
+
+    byte readByte() throws IOException {
+        require(1);
+        return data[position++];
+    }
+
+    int readInt() throws IOException {
+        require(4);
+        int value = ((data[position] & 0xFF) << 24) | ((data[position + 1] & 0xFF) << 16)
+                | ((data[position + 2] & 0xFF) << 8) | (data[position + 3] & 0xFF);
+        position += 4;
+        return value;
+    }
+
+    float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    double readDouble() throws IOException {
+        long high = readInt();
+        return Double.longBitsToDouble((high << 32) | (readInt() & 0xFFFFFFFFL));
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    String readString() throws IOException {
+        int length = (int) readVarLong();
+        require(length);
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    private void require(int count) throws IOException {
+        if (count < 0 || count > limit - position) {
+            throw new EOFException("Unexpected end of data");
+        }
+    }
+}
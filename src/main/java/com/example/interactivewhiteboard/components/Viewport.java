@@ -0,0 +1,68 @@
+package com.example.interactivewhiteboard.components;
+
+/**
+ * Maps the unbounded world coordinates of the board to canvas pixels.
+ * {@code (x, y)} is the world point shown at the canvas origin and
+ * {@code scale} the number of pixels per world unit.
+ */
+public class Viewport {
+    public static final double MIN_SCALE = 0.02;
+    public static final double MAX_SCALE = 32;
+
+    private double x;
+    private double y;
+    private double scale = 1;
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public double toWorldX(double screenX) {
+        return x + screenX / scale;
+    }
+
+    public double toWorldY(double screenY) {
+        return y + screenY / scale;
+    }
+
+    public double toScreenX(double worldX) {
+        return (worldX - x) * scale;
+    }
+
+    public double toScreenY(double worldY) {
+        return (worldY - y) * scale;
+    }
+
+    /** Moves the view by a distance given in screen pixels. */
+    public void pan(double dx, double dy) {
+        x -= dx / scale;
+        y -= dy / scale;
+    }
+
+    /** Zooms by {@code factor}, keeping the world point under (screenX, screenY) in place. */
+    public void zoomAt(double screenX, double screenY, double factor) {
+        double worldX = toWorldX(screenX);
+        double worldY = toWorldY(screenY);
+        scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+        x = worldX - screenX / scale;
+        y = worldY - screenY / scale;
+    }
+
+    public void set(double x, double y, double scale) {
+        this.x = x;
+        this.y = y;
+        this.scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+    }
+
+    public void reset() {
+        set(0, 0, 1);
+    }
+}
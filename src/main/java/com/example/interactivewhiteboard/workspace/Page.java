@@ -0,0 +1,52 @@
+package com.example.interactivewhiteboard.workspace;
+
+import com.example.interactivewhiteboard.components.BoardMetadata;
+import com.example.interactivewhiteboard.components.BoardObject;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.scene.image.Image;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * One board in a {@link Workspace}. While it is on the canvas its objects
+ * live in the board model; otherwise the page holds them in one of three
+ * forms, from quickest to show to smallest: the objects themselves, the
+ * board file encoding in memory, or that encoding in a file.
+ */
+public final class Page {
+    final int id;
+    private final ReadOnlyObjectWrapper<Image> thumbnail = new ReadOnlyObjectWrapper<>(this, "thumbnail");
+
+    // Guarded by the workspace; at most one of objects, compact and spill is set
+    BoardMetadata metadata = BoardMetadata.DEFAULT;
+    List<BoardObject> objects = List.of();
+    byte[] compact;
+    Path spill;
+    long lastShown;
+    // Bumped on every change, so work done outside the lock can tell if it is still current
+    int version;
+
+    Page(int id) {
+        this.id = id;
+    }
+
+    /** Stays with the page for as long as the deck does, across autosave and restore. */
+    public int getId() {
+        return id;
+    }
+
+    /** What a page holds: its settings and its objects in paint order. */
+    public record Contents(BoardMetadata metadata, List<BoardObject> objects) {
+    }
+
+    /** A small picture of the page as it was last left, or null before then. Changes on the FX thread. */
+    public ReadOnlyObjectProperty<Image> thumbnailProperty() {
+        return thumbnail.getReadOnlyProperty();
+    }
+
+    void setThumbnail(Image image) {
+        thumbnail.set(image);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.interactivewhiteboard.workspace;
+
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.ListCell;
+import javafx.scene.image.ImageView;
+
+/** Shows a page in a list as its thumbnail over its number. */
+public class PageCell extends ListCell<Page> {
+    private final ImageView thumbnail = new ImageView();
+
+    public PageCell() {
+        thumbnail.setPreserveRatio(true);
+        thumbnail.setFitWidth(Workspace.THUMBNAIL_SIZE * 0.75);
+        thumbnail.setFitHeight(Workspace.THUMBNAIL_SIZE * 0.75);
+        setContentDisplay(ContentDisplay.TOP);
+    }
+
+    @Override
+    protected void updateItem(Page page, boolean empty) {
+        super.updateItem(page, empty);
+        thumbnail.imageProperty().unbind();
+        if (empty || page == null) {
+            setText(null);
+            setGraphic(null);
+            return;
+        }
+        thumbnail.imageProperty().bind(page.thumbnailProperty());
+        setText("Page " + (getIndex() + 1));
+        setGraphic(thumbnail);
+    }
+}
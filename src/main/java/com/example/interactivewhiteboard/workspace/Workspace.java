@@ -0,0 +1,472 @@
+package com.example.interactivewhiteboard.workspace;
+
+import com.example.interactivewhiteboard.batch.BoardRasterizer;
+import com.example.interactivewhiteboard.components.AutosaveService;
+import com.example.interactivewhiteboard.components.BoardMetadata;
+import com.example.interactivewhiteboard.components.BoardObject;
+import com.example.interactivewhiteboard.components.FileManager;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * A deck of board pages, one of them on the canvas at a time. Only the page
+ * shown and its neighbours keep their objects, so stepping through a deck
+ * swaps in objects that are already decoded. A background thread encodes
+ * every other page in the compressed board file format, and once those
+ * encodings together pass {@value #COMPACT_BUDGET_BYTES} bytes, moves the
+ * least recently shown out to a temporary directory; memory stays about the
+ * same however long the deck. A page further away is decoded on a second
+ * thread while the canvas waits, so it never queues behind that work.
+ * Thumbnails are painted off the FX thread, from each page as it is left.
+ * <p>
+ * Pages are added, removed and switched on the FX thread.
+ */
+public class Workspace implements Closeable {
+    public static final int THUMBNAIL_SIZE = 160;
+    private static final long COMPACT_BUDGET_BYTES = 32L << 20;
+
+    private final ObservableList<Page> pages = FXCollections.observableArrayList();
+    private final ObservableList<Page> readOnlyPages = FXCollections.unmodifiableObservableList(pages);
+    private final BoardRasterizer rasterizer = new BoardRasterizer();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "whiteboard-page-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService housekeeper = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "whiteboard-pages");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int nextId = 1;
+    private volatile Consumer<IOException> onError = error -> { };
+
+    // Guarded by this
+    private Page active;
+    private List<Page> order;
+    private long clock;
+    private Path spillDirectory;
+    private final Set<Page> staleThumbnails = new LinkedHashSet<>();
+    private boolean housekeepingQueued;
+
+    /** Starts with one empty page, on the canvas. */
+    public Workspace() {
+        active = new Page(nextId++);
+        active.objects = null;
+        pages.add(active);
+        order = List.copyOf(pages);
+    }
+
+    public ObservableList<Page> getPages() {
+        return readOnlyPages;
+    }
+
+    public synchronized Page getActive() {
+        return active;
+    }
+
+    /** Called on the FX thread if a page cannot be put away or brought back. */
+    public void setOnError(Consumer<IOException> onError) {
+        this.onError = onError != null ? onError : error -> { };
+    }
+
+    /** Adds an empty page after the one shown, without showing it. */
+    public Page addPage() {
+        Page page = new Page(nextId++);
+        pages.add(pages.indexOf(getActive()) + 1, page);
+        synchronized (this) {
+            staleThumbnails.add(page);
+        }
+        reordered();
+        return page;
+    }
+
+    /**
+     * Replaces the deck with pages saved in the board file encoding, keeping
+     * their ids. The page {@code shown} goes on the canvas, so its objects
+     * are already in the board model; the others stay encoded until they are
+     * near the page shown. Thumbnails are painted from them in the background.
+     */
+    public void restoreDeck(int shown, List<AutosaveService.SavedPage> saved) {
+        List<Page> restored = new ArrayList<>();
+        List<Path> spills = new ArrayList<>();
+        synchronized (this) {
+            for (Page page : pages) {
+                spills.add(page.spill);
+                discard(page);
+            }
+            staleThumbnails.clear();
+            for (AutosaveService.SavedPage entry : saved) {
+                Page page = new Page(entry.id());
+                if (entry.id() == shown) {
+                    page.objects = null;
+                    active = page;
+                } else if (entry.encoded() != null) {
+                    page.objects = null;
+                    page.compact = entry.encoded();
+                }
+                nextId = Math.max(nextId, entry.id() + 1);
+                restored.add(page);
+                staleThumbnails.add(page);
+            }
+        }
+        pages.setAll(restored);
+        reordered();
+        housekeeper.execute(() -> spills.forEach(Workspace::deleteQuietly));
+    }
+
+    /** Removes a page other than the one shown, with whatever is on it. */
+    public void removePage(Page page) {
+        if (page == getActive()) {
+            throw new IllegalArgumentException("The page shown cannot be removed");
+        }
+        pages.remove(page);
+        Path spill;
+        synchronized (this) {
+            spill = page.spill;
+            discard(page);
+            staleThumbnails.remove(page);
+        }
+        reordered();
+        housekeeper.execute(() -> deleteQuietly(spill));
+    }
+
+    /**
+     * Shows {@code target} in place of the page on the canvas, whose settings
+     * and objects, in paint order, are given. Returns what is on the target
+     * if it was at hand; if not, returns null and the target has to be
+     * brought back with {@link #restore} before anything is drawn on it.
+     * A page left while it could not be brought back keeps what it held,
+     * unless something was drawn on it.
+     */
+    public Page.Contents switchTo(Page target, BoardMetadata metadata, List<BoardObject> objects) {
+        Page leaving;
+        Page.Contents contents = null;
+        Path spill;
+        synchronized (this) {
+            leaving = active;
+            leaving.lastShown = ++clock;
+            // Still encoded if restore failed; a blank canvas is then no reason to throw that away
+            boolean unread = leaving.compact != null || leaving.spill != null;
+            if (unread && objects.isEmpty()) {
+                spill = null;
+            } else {
+                spill = leaving.spill;
+                discard(leaving);
+                leaving.metadata = metadata;
+                leaving.objects = objects;
+                staleThumbnails.add(leaving);
+            }
+            active = target;
+            if (target.objects != null) {
+                contents = new Page.Contents(target.metadata, target.objects);
+                discard(target);
+            }
+        }
+        housekeeper.execute(() -> deleteQuietly(spill));
+        if (contents != null) {
+            housekeep();
+        }
+        return contents;
+    }
+
+    /**
+     * Decodes the page shown after {@link #switchTo} could not return it, in
+     * the background. Its neighbours are decoded once it is back.
+     */
+    public Task<Page.Contents> restore(Page page) {
+        Task<Page.Contents> task = new Task<>() {
+            @Override
+            protected Page.Contents call() throws Exception {
+                try {
+                    return bringBack(page);
+                } finally {
+                    housekeep();
+                }
+            }
+        };
+        loader.execute(task);
+        return task;
+    }
+
+    // Retried if the page changed while it was being decoded
+    private Page.Contents bringBack(Page page) throws IOException {
+        while (true) {
+            int version;
+            byte[] compact;
+            Path spill;
+            synchronized (this) {
+                if (page.objects != null) {
+                    Page.Contents contents = new Page.Contents(page.metadata, page.objects);
+                    discard(page);
+                    return contents;
+                }
+                version = page.version;
+                compact = page.compact;
+                spill = page.spill;
+            }
+            Page.Contents contents = decode(compact, spill);
+            synchronized (this) {
+                if (page.version == version) {
+                    discard(page);
+                    housekeeper.execute(() -> deleteQuietly(spill));
+                    return contents;
+                }
+            }
+        }
+    }
+
+    /** Stops the background work and deletes the pages that were moved to disk. */
+    @Override
+    public void close() {
+        loader.shutdownNow();
+        housekeeper.shutdownNow();
+        Path directory;
+        synchronized (this) {
+            directory = spillDirectory;
+        }
+        if (directory == null) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        } catch (IOException ignored) {
+            // Left for the system to clean out of the temporary directory
+        }
+        deleteQuietly(directory);
+    }
+
+    private synchronized void reordered() {
+        order = List.copyOf(pages);
+        housekeep();
+    }
+
+    // The page's objects are in the board model now, or gone
+    private void discard(Page page) {
+        page.objects = null;
+        page.compact = null;
+        page.spill = null;
+        page.version++;
+    }
+
+    // One pass at a time is queued, and it works from the latest state, so a burst of switches costs one
+    private synchronized void housekeep() {
+        if (housekeepingQueued) {
+            return;
+        }
+        housekeepingQueued = true;
+        housekeeper.execute(() -> {
+            List<Page> thumbnails;
+            synchronized (this) {
+                housekeepingQueued = false;
+                thumbnails = new ArrayList<>(staleThumbnails);
+                staleThumbnails.clear();
+            }
+            try {
+                // Before the pages just left are compacted, while their objects are at hand
+                for (Page page : thumbnails) {
+                    paintThumbnail(page);
+                }
+                keepNeighboursOnly();
+                spillOverBudget();
+            } catch (IOException e) {
+                Platform.runLater(() -> onError.accept(e));
+            }
+        });
+    }
+
+    private void keepNeighboursOnly() throws IOException {
+        List<Page> pages;
+        Page shown;
+        synchronized (this) {
+            pages = order;
+            shown = active;
+        }
+        int at = pages.indexOf(shown);
+        for (int i = 0; i < pages.size(); i++) {
+            Page page = pages.get(i);
+            if (page == shown) {
+                continue;
+            }
+            if (Math.abs(i - at) <= 1) {
+                prefetch(page);
+            } else {
+                compact(page);
+            }
+        }
+    }
+
+    private void prefetch(Page page) throws IOException {
+        int version;
+        byte[] compact;
+        Path spill;
+        synchronized (this) {
+            if (page.objects != null || page == active) {
+                return;
+            }
+            version = page.version;
+            compact = page.compact;
+            spill = page.spill;
+        }
+        Page.Contents contents = decode(compact, spill);
+        synchronized (this) {
+            if (page.version != version || page == active) {
+                return;
+            }
+            discard(page);
+            page.metadata = contents.metadata();
+            page.objects = contents.objects();
+        }
+        deleteQuietly(spill);
+    }
+
+    private void compact(Page page) throws IOException {
+        int version;
+        BoardMetadata metadata;
+        List<BoardObject> objects;
+        synchronized (this) {
+            if (page.objects == null || page == active) {
+                return;
+            }
+            version = page.version;
+            metadata = page.metadata;
+            objects = page.objects;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(objects.size() * 16 + 256);
+        FileManager.write(out, metadata, objects, true);
+        synchronized (this) {
+            if (page.version == version && page != active) {
+                discard(page);
+                page.metadata = metadata;
+                page.compact = out.toByteArray();
+            }
+        }
+    }
+
+    private void spillOverBudget() throws IOException {
+        List<Page> compacted = new ArrayList<>();
+        long total = 0;
+        synchronized (this) {
+            for (Page page : order) {
+                if (page.compact != null) {
+                    compacted.add(page);
+                    total += page.compact.length;
+                }
+            }
+            compacted.sort(Comparator.comparingLong(page -> page.lastShown));
+        }
+        for (Page page : compacted) {
+            if (total <= COMPACT_BUDGET_BYTES) {
+                return;
+            }
+            int version;
+            byte[] compact;
+            synchronized (this) {
+                if (page.compact == null) {
+                    continue;
+                }
+                version = page.version;
+                compact = page.compact;
+            }
+            Path file = spillDirectory().resolve("page-" + page.id + "-" + version + "." + FileManager.EXTENSION);
+            Files.write(file, compact);
+            boolean moved;
+            synchronized (this) {
+                moved = page.version == version;
+                if (moved) {
+                    BoardMetadata metadata = page.metadata;
+                    discard(page);
+                    page.metadata = metadata;
+                    page.spill = file;
+                }
+            }
+            if (moved) {
+                total -= compact.length;
+            } else {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    private synchronized Path spillDirectory() throws IOException {
+        if (spillDirectory == null) {
+            spillDirectory = Files.createTempDirectory("whiteboard-pages");
+        }
+        return spillDirectory;
+    }
+
+    private static Page.Contents decode(byte[] compact, Path spill) throws IOException {
+        if (compact == null && spill == null) {
+            return new Page.Contents(BoardMetadata.DEFAULT, List.of());
+        }
+        byte[] data = compact != null ? compact : Files.readAllBytes(spill);
+        List<BoardObject> objects = new ArrayList<>();
+        BoardMetadata metadata = FileManager.read(new ByteArrayInputStream(data), objects::addAll);
+        // Chunks are grouped by area, so restore the paint order
+        objects.sort(Comparator.comparingLong(BoardObject::id));
+        return new Page.Contents(metadata, objects);
+    }
+
+    private void paintThumbnail(Page page) throws IOException {
+        BoardMetadata metadata;
+        List<BoardObject> objects;
+        byte[] compact;
+        Path spill;
+        synchronized (this) {
+            metadata = page.metadata;
+            objects = page.objects;
+            compact = page.compact;
+            spill = page.spill;
+        }
+        if (objects == null) {
+            // Restored pages come encoded; the page shown and removed pages have nothing here
+            if (compact == null && spill == null) {
+                return;
+            }
+            Page.Contents contents = decode(compact, spill);
+            metadata = contents.metadata();
+            objects = contents.objects();
+        }
+        BufferedImage painted = rasterizer.renderThumbnail(metadata, objects, THUMBNAIL_SIZE);
+        int width = painted.getWidth();
+        int height = painted.getHeight();
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(),
+                painted.getRGB(0, 0, width, height, null, 0, width), 0, width);
+        Platform.runLater(() -> page.setThumbnail(image));
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // Left for the system to clean out of the temporary directory
+        }
+    }
+}
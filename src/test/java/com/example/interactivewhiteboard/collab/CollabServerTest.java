@@ -0,0 +1,248 @@
+package com.example.interactivewhiteboard.collab;
+
+import com.example.interactivewhiteboard.components.BoardEdit;
+import com.example.interactivewhiteboard.components.BoardModel;
+import com.example.interactivewhiteboard.components.BoardObject;
+import com.example.interactivewhiteboard.components.BoardOperation;
+import com.example.interactivewhiteboard.components.Stroke;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Runs the server against in-process clients over loopback. */
+class CollabServerTest {
+    private CollabServer server;
+    private InetSocketAddress address;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = CollabServer.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void relaysEditsToTheOtherClients() throws Exception {
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        try (CollabClient sender = CollabClient.connect(address, "relay", first);
+             CollabClient receiver = CollabClient.connect(address, "relay", second)) {
+            assertTrue(second.synced.await(5, TimeUnit.SECONDS));
+            sender.send(addStroke(sender.getReplica()));
+
+            BoardOperation received = second.operations.poll(5, TimeUnit.SECONDS);
+            assertNotNull(received);
+            assertEquals(1, received.added().size());
+            assertEquals((1L << BoardModel.REPLICA_BITS) | sender.getReplica(), received.added().get(0).id());
+        }
+    }
+
+    @Test
+    void lateJoinerGetsTheCompactedBoardWithoutTombstones() throws Exception {
+        Random random = new Random(1);
+        BoardModel authorModel = new BoardModel();
+        List<Long> live = new ArrayList<>();
+        try (CollabClient author = CollabClient.connect(address, "late", new RecordingListener())) {
+            authorModel.setReplica(author.getReplica());
+            ReplicatedBoard authorBoard = new ReplicatedBoard(authorModel, author.getReplica());
+            // Well past the size at which the server compacts its log, with every third stroke erased again
+            for (int i = 0; i < 1500; i++) {
+                author.send(edit(authorModel, authorBoard, random, live));
+            }
+            // More edits while the newcomer joins, some of them pending in the round it joins in
+            Thread burst = new Thread(() -> {
+                for (int i = 0; i < 300; i++) {
+                    author.send(edit(authorModel, authorBoard, random, live));
+                }
+            });
+            burst.start();
+            MergingListener late = new MergingListener();
+            try (CollabClient newcomer = CollabClient.connect(address, "late", late)) {
+                burst.join();
+                long last = live.get(live.size() - 1);
+                assertTrue(late.synced.await(10, TimeUnit.SECONDS));
+                assertTrue(late.awaitObject(last, 10_000));
+
+                synchronized (late) {
+                    assertTrue(late.snapshotOperations > 0, "the board was never compacted");
+                    assertEquals(0, late.board.getTombstoneCount());
+                    assertArrayEquals(contents(authorModel), contents(late.model));
+                }
+            }
+        }
+    }
+
+    @Test
+    void strokeWithoutPointsDropsOnlyItsSender() throws Exception {
+        // Stroke with a point count of zero: 15 bytes
+        assertDropped(new byte[] {0, 1, 2, 1, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+    }
+
+    @Test
+    void strokeWithHugePointCountDropsOnlyItsSender() throws Exception {
+        // A point count of 2^31 + 1, with nothing after it
+        assertDropped(new byte[] {0, 1, 2, 1, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                (byte) 0x81, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08});
+    }
+
+    private void assertDropped(byte[] operation) throws Exception {
+        RecordingListener listener = new RecordingListener();
+        try (CollabClient bystander = CollabClient.connect(address, "board", listener)) {
+            assertTrue(listener.synced.await(5, TimeUnit.SECONDS));
+
+            try (Socket attacker = new Socket()) {
+                attacker.connect(address, 5000);
+                attacker.setSoTimeout(5000);
+                OutputStream out = attacker.getOutputStream();
+                write(out, CollabProtocol.hello("board"));
+                write(out, CollabProtocol.edit(operation));
+                out.flush();
+
+                // Whatever arrives before it, the connection ends
+                DataInputStream in = new DataInputStream(attacker.getInputStream());
+                while (in.read() >= 0) {
+                    // WELCOME and SYNCED
+                }
+            }
+
+            // Everyone else carries on, and newcomers still get in
+            RecordingListener late = new RecordingListener();
+            try (CollabClient newcomer = CollabClient.connect(address, "board", late)) {
+                assertTrue(late.synced.await(5, TimeUnit.SECONDS));
+                newcomer.send(addStroke(newcomer.getReplica()));
+                assertNotNull(listener.operations.poll(5, TimeUnit.SECONDS));
+            }
+            assertNull(listener.closed.poll());
+        }
+    }
+
+    // Draws a long stroke, erasing an earlier one every third time
+    private static BoardOperation edit(BoardModel model, ReplicatedBoard board, Random random, List<Long> live) {
+        List<BoardObject> removed = new ArrayList<>();
+        if (live.size() > 2 && random.nextInt(3) == 0) {
+            removed.add(model.remove(live.remove(random.nextInt(live.size() - 1))));
+        }
+        float[] xs = new float[100];
+        float[] ys = new float[100];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextInt(4000);
+            ys[i] = random.nextInt(4000);
+        }
+        BoardObject stroke = new Stroke(model.nextId(), 0xFF000000, 2, 0, xs, ys);
+        model.add(stroke);
+        live.add(stroke.id());
+        return board.local(new BoardEdit(removed, List.of(stroke)));
+    }
+
+    // The objects in id order, encoded, so two boards compare byte for byte
+    private static byte[] contents(BoardModel model) {
+        List<BoardObject> objects = new ArrayList<>(model.objects());
+        objects.sort(Comparator.comparingLong(BoardObject::id));
+        return new BoardOperation(new long[0], objects, new long[objects.size()]).encode();
+    }
+
+    private static BoardOperation addStroke(int replica) {
+        long id = (1L << BoardModel.REPLICA_BITS) | replica;
+        BoardObject stroke = new Stroke(id, 0xFF000000, 2, 0, new float[] {0, 10}, new float[] {0, 10});
+        return new BoardOperation(new long[0], List.of(stroke), new long[] {id});
+    }
+
+    private static void write(OutputStream out, ByteBuffer frame) throws IOException {
+        out.write(frame.array(), 0, frame.limit());
+    }
+
+    // Merges what arrives as a collaboration session does, on the client's reader thread
+    private static final class MergingListener implements CollabClient.Listener {
+        final BoardModel model = new BoardModel();
+        final ReplicatedBoard board = new ReplicatedBoard(model, 0);
+        final CountDownLatch synced = new CountDownLatch(1);
+        int snapshotOperations;
+
+        @Override
+        public synchronized void onOperation(int replica, BoardOperation operation) {
+            if (replica == 0) {
+                snapshotOperations++;
+            }
+            board.merge(operation);
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void onSeen(Map<Integer, Long> counters) {
+            board.markSeen(counters);
+        }
+
+        @Override
+        public void onSynced() {
+            synced.countDown();
+        }
+
+        @Override
+        public void onClosed(IOException cause) {
+        }
+
+        synchronized boolean awaitObject(long id, long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (model.get(id) == null) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    return false;
+                }
+                wait(left);
+            }
+            return true;
+        }
+    }
+
+    private static final class RecordingListener implements CollabClient.Listener {
+        final BlockingQueue<BoardOperation> operations = new LinkedBlockingQueue<>();
+        final BlockingQueue<Object> closed = new LinkedBlockingQueue<>();
+        final CountDownLatch synced = new CountDownLatch(1);
+
+        @Override
+        public void onOperation(int replica, BoardOperation operation) {
+            operations.add(operation);
+        }
+
+        @Override
+        public void onSeen(Map<Integer, Long> counters) {
+        }
+
+        @Override
+        public void onSynced() {
+            synced.countDown();
+        }
+
+        @Override
+        public void onClosed(IOException cause) {
+            closed.add(cause != null ? cause : "closed");
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.interactivewhiteboard.collab;
+
+import com.example.interactivewhiteboard.components.BoardEdit;
+import com.example.interactivewhiteboard.components.BoardModel;
+import com.example.interactivewhiteboard.components.BoardObject;
+import com.example.interactivewhiteboard.components.BoardOperation;
+import com.example.interactivewhiteboard.components.ShapeObject;
+import com.example.interactivewhiteboard.components.Stroke;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Fuzzes the merge: replicas edit concurrently and receive each other's
+ * operations late, shuffled and duplicated, and must still agree.
+ */
+class ReplicatedBoardTest {
+    private static final int SEEDS = 200;
+    private static final int REPLICAS = 4;
+    private static final int STEPS = 400;
+
+    @Test
+    void replicasConvergeWhateverTheDeliveryOrder() throws IOException {
+        for (long seed = 1; seed <= SEEDS; seed++) {
+            fuzz(new Random(seed), "seed " + seed);
+        }
+    }
+
+    @Test
+    void removalBeforeItsAdditionIsCollectedOnceTheGapFills() throws IOException {
+        Random random = new Random(1);
+        Replica author = new Replica(1);
+        BoardOperation first = author.add(random);
+        BoardOperation second = author.add(random);
+        BoardObject doomed = author.model.get(second.added().get(0).id());
+        BoardOperation remove = author.remove(doomed);
+
+        Replica late = new Replica(2);
+        late.receive(remove);
+        assertEquals(1, late.board.getTombstoneCount());
+        late.receive(second);
+        assertEquals(0, late.model.size());
+        late.receive(first);
+        assertEquals(1, late.model.size());
+        assertEquals(0, late.board.getTombstoneCount());
+    }
+
+    @Test
+    void snapshotCarriesConcurrentReplacementsOfOneId() throws IOException {
+        Random random = new Random(2);
+        Replica first = new Replica(1);
+        Replica second = new Replica(2);
+        BoardOperation add = first.add(random);
+        second.receive(add);
+        BoardObject original = first.model.get(add.added().get(0).id());
+        BoardOperation one = first.apply(new BoardEdit(List.of(original), List.of(object(original.id(), random))));
+        BoardOperation other = second.apply(new BoardEdit(List.of(second.model.get(original.id())),
+                List.of(object(original.id(), random))));
+
+        BoardModel serverModel = new BoardModel();
+        ReplicatedBoard server = new ReplicatedBoard(serverModel, 0);
+        server.merge(add);
+        server.merge(one);
+        server.merge(other);
+        Replica joiner = new Replica(3);
+        for (BoardOperation operation : server.snapshot(16)) {
+            joiner.receive(operation);
+        }
+        assertArrayEquals(contents(serverModel), contents(joiner.model));
+        assertEquals(1, joiner.model.size());
+    }
+
+    private static void fuzz(Random random, String label) throws IOException {
+        List<Replica> replicas = new ArrayList<>();
+        for (int r = 1; r <= REPLICAS; r++) {
+            replicas.add(new Replica(r));
+        }
+        List<BoardOperation> all = new ArrayList<>();
+        for (int step = 0; step < STEPS; step++) {
+            Replica replica = replicas.get(random.nextInt(REPLICAS));
+            if (random.nextInt(3) == 0 && !replica.inbox.isEmpty()) {
+                // Deliver something late and out of order, sometimes twice
+                BoardOperation operation = replica.inbox.remove(random.nextInt(replica.inbox.size()));
+                replica.receive(operation);
+                if (random.nextInt(5) == 0) {
+                    replica.inbox.add(operation);
+                }
+                continue;
+            }
+            BoardOperation operation = replica.edit(random);
+            all.add(operation);
+            for (Replica other : replicas) {
+                if (other != replica) {
+                    other.inbox.add(operation);
+                }
+            }
+        }
+
+        // The server merges everything once, in order, and a late joiner starts from its snapshot
+        BoardModel serverModel = new BoardModel();
+        ReplicatedBoard server = new ReplicatedBoard(serverModel, 0);
+        all.forEach(server::merge);
+        Replica joiner = new Replica(REPLICAS + 1);
+        for (BoardOperation operation : server.snapshot(16)) {
+            joiner.receive(operation);
+        }
+        joiner.board.markSeen(server.getSeen());
+        joiner.inbox.addAll(all);
+        replicas.add(joiner);
+
+        for (Replica replica : replicas) {
+            // Whatever is outstanding, plus a second helping of random operations
+            for (int i = 0; i < all.size() / 4; i++) {
+                replica.inbox.add(all.get(random.nextInt(all.size())));
+            }
+            Collections.shuffle(replica.inbox, random);
+            for (BoardOperation operation : replica.inbox) {
+                replica.receive(operation);
+            }
+            replica.inbox.clear();
+        }
+
+        byte[] expected = contents(serverModel);
+        assertFalse(all.isEmpty(), label);
+        for (Replica replica : replicas) {
+            assertArrayEquals(expected, contents(replica.model), label + ", replica " + replica.board.getReplica());
+            assertEquals(0, replica.board.getTombstoneCount(), label + ", replica " + replica.board.getReplica());
+            assertEquals(server.getSeen(), replica.board.getSeen(), label);
+        }
+    }
+
+    // The visible objects, encoded in id order, so boards compare byte for byte
+    private static byte[] contents(BoardModel model) {
+        List<BoardObject> objects = new ArrayList<>(model.objects());
+        long[] ids = new long[objects.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = objects.get(i).id();
+        }
+        return new BoardOperation(new long[0], objects, ids).encode();
+    }
+
+    private static final class Replica {
+        final BoardModel model = new BoardModel();
+        final ReplicatedBoard board;
+        final List<BoardOperation> inbox = new ArrayList<>();
+
+        Replica(int replica) {
+            model.setReplica(replica);
+            board = new ReplicatedBoard(model, replica);
+        }
+
+        // Through the wire format, as operations travel between replicas
+        void receive(BoardOperation operation) throws IOException {
+            byte[] encoded = operation.encode();
+            board.merge(BoardOperation.decode(encoded, 0, encoded.length));
+        }
+
+        BoardOperation edit(Random random) {
+            List<BoardObject> objects = new ArrayList<>(model.objects());
+            int choice = objects.isEmpty() ? 0 : random.nextInt(4);
+            switch (choice) {
+                case 0:
+                case 1:
+                    return add(random);
+                case 2:
+                    return remove(objects.get(random.nextInt(objects.size())));
+                default:
+                    // Replaced under the same id, as editing a label does
+                    BoardObject old = objects.get(random.nextInt(objects.size()));
+                    return apply(new BoardEdit(List.of(old), List.of(object(old.id(), random))));
+            }
+        }
+
+        BoardOperation add(Random random) {
+            return apply(new BoardEdit(List.of(), List.of(object(model.nextId(), random))));
+        }
+
+        BoardOperation remove(BoardObject object) {
+            return apply(new BoardEdit(List.of(object), List.of()));
+        }
+
+        BoardOperation apply(BoardEdit edit) {
+            edit.applyTo(model);
+            return board.local(edit);
+        }
+    }
+
+    private static BoardObject object(long id, Random random) {
+        float x = random.nextInt(1000);
+        float y = random.nextInt(1000);
+        int color = 0xFF000000 | random.nextInt(0x1000000);
+        if (random.nextBoolean()) {
+            return new ShapeObject(id, ShapeObject.RECTANGLE, x, y, x + 1 + random.nextInt(100),
+                    y + 1 + random.nextInt(100), color, 2);
+        }
+        int points = 1 + random.nextInt(8);
+        float[] xs = new float[points];
+        float[] ys = new float[points];
+        for (int i = 0; i < points; i++) {
+            xs[i] = x + random.nextInt(50);
+            ys[i] = y + random.nextInt(50);
+        }
+        return new Stroke(id, color, 1 + random.nextInt(5), 0, xs, ys);
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.interactivewhiteboard.components;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Autosaves into a directory, stops as a crash would leave it and restores
+ * from it again: the newest checkpoint with the logs after it, a log cut
+ * off mid-record, an opened board file that has since gone away, and a deck
+ * of pages.
+ */
+class AutosaveServiceTest {
+    private static final BoardMetadata METADATA = new BoardMetadata(0xFF102030, true, 16, -8, 2);
+
+    @TempDir
+    Path directory;
+
+    private final TreeMap<Long, BoardObject> expected = new TreeMap<>();
+    private final Map<Integer, TreeMap<Long, BoardObject>> deck = new HashMap<>();
+    private int shown = 1;
+
+    @Test
+    void replaysTheLogsOnTopOfTheNewestCheckpoint() throws Exception {
+        AutosaveService service = new AutosaveService(directory);
+        assertNull(service.startInBackground().get());
+        service.setMetadata(METADATA);
+        for (long id = 1; id <= 50; id++) {
+            record(service, List.of(), List.of(stroke(id)));
+        }
+        service.checkpointNow();
+        for (long id = 1; id <= 20; id++) {
+            record(service, List.of(stroke(id)), List.of(shape(id)));
+        }
+        List<BoardObject> joined = List.of(shape(100), stroke(101));
+        service.reset(joined);
+        expected.clear();
+        joined.forEach(object -> expected.put(object.id(), object));
+        record(service, List.of(shape(100)), List.of(stroke(102)));
+        service.close();
+
+        assertTrue(Files.exists(directory.resolve("checkpoint-2.wbk")));
+        assertFalse(Files.exists(directory.resolve("log-1.wbj")));
+        AutosaveService.Restored restored = restore();
+        assertEquals(METADATA, restored.metadata());
+        assertArrayEquals(contents(expected.values()), contents(restored.objects()));
+    }
+
+    @Test
+    void aTornLogEndsAtItsLastCompleteRecord() throws Exception {
+        AutosaveService service = new AutosaveService(directory);
+        service.startInBackground().get();
+        for (long id = 1; id <= 10; id++) {
+            record(service, List.of(), List.of(stroke(id)));
+        }
+        service.checkpointNow();
+        record(service, List.of(stroke(3)), List.of(shape(3)));
+        Map<Long, BoardObject> beforeLast = new TreeMap<>(expected);
+        record(service, List.of(), List.of(stroke(11)));
+        service.close();
+
+        Path log = directory.resolve("log-2.wbj");
+        long length = Files.size(log);
+        for (int cut = 1; cut <= 8; cut++) {
+            try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+                channel.truncate(length - cut);
+            }
+            assertArrayEquals(contents(beforeLast.values()), contents(restore().objects()));
+        }
+    }
+
+    @Test
+    void anOpenedBoardIsRestoredWithoutItsFile() throws Exception {
+        Path source = directory.resolve("source.wbd");
+        List<BoardObject> saved = List.of(stroke(1), shape(2), stroke(3));
+        FileManager.save(source, METADATA, saved, true);
+        Path autosave = directory.resolve("autosave");
+
+        AutosaveService service = new AutosaveService(autosave);
+        service.startInBackground().get();
+        service.opened(source);
+        saved.forEach(object -> expected.put(object.id(), object));
+        record(service, List.of(shape(2)), List.of(stroke(4)));
+        service.close();
+        Files.delete(source);
+
+        AutosaveService again = new AutosaveService(autosave);
+        AutosaveService.Restored restored = again.startInBackground().get();
+        again.close();
+        assertNotNull(restored);
+        assertEquals(METADATA, restored.metadata());
+        assertArrayEquals(contents(expected.values()), contents(restored.objects()));
+    }
+
+    @Test
+    void restoresEveryPageOfTheDeck() throws Exception {
+        BoardMetadata first = new BoardMetadata(0xFFFFFFFF, false, 10, 20, 1);
+        BoardMetadata third = new BoardMetadata(0xFF000000, true, -5, 0, 0.5);
+        AutosaveService service = new AutosaveService(directory);
+        service.startInBackground().get();
+        for (long id = 1; id <= 5; id++) {
+            record(service, List.of(), List.of(stroke(id)));
+        }
+        service.setPages(List.of(1, 2, 3));
+        show(service, 2, first);
+        for (long id = 10; id < 15; id++) {
+            record(service, List.of(), List.of(shape(id)));
+        }
+        service.checkpointNow();
+        show(service, 3, METADATA);
+        for (long id = 20; id < 23; id++) {
+            record(service, List.of(), List.of(stroke(id)));
+        }
+        record(service, List.of(stroke(21)), List.of());
+        show(service, 1, third);
+        record(service, List.of(stroke(2)), List.of(shape(30)));
+        service.setPages(List.of(1, 3));
+        deck.remove(2);
+        service.close();
+
+        // Once from the logs, then again from the checkpoint that folded them in
+        for (int round = 0; round < 2; round++) {
+            AutosaveService again = new AutosaveService(directory);
+            AutosaveService.Restored restored = again.startInBackground().get();
+            again.checkpointNow();
+            again.close();
+            assertNotNull(restored);
+            assertEquals(1, restored.shown());
+            assertEquals(first, restored.metadata());
+            assertArrayEquals(contents(expected.values()), contents(restored.objects()));
+            assertEquals(List.of(1, 3), restored.pages().stream().map(AutosaveService.SavedPage::id).toList());
+            assertNull(restored.pages().get(0).encoded());
+            List<BoardObject> objects = new ArrayList<>();
+            BoardMetadata metadata = FileManager.read(new ByteArrayInputStream(restored.pages().get(1).encoded()),
+                    objects::addAll);
+            assertEquals(third, metadata);
+            assertArrayEquals(contents(deck.get(3).values()), contents(objects));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.filter(file -> file.getFileName().toString().startsWith("page-")).count());
+        }
+    }
+
+    // Puts the page shown away in the deck and takes out the next
+    private void show(AutosaveService service, int page, BoardMetadata left) {
+        deck.put(shown, new TreeMap<>(expected));
+        expected.clear();
+        expected.putAll(deck.getOrDefault(page, new TreeMap<>()));
+        shown = page;
+        service.showPage(page, left);
+    }
+
+    private void record(AutosaveService service, List<BoardObject> removed, List<BoardObject> added) {
+        removed.forEach(object -> expected.remove(object.id()));
+        added.forEach(object -> expected.put(object.id(), object));
+        service.record(new BoardEdit(removed, added));
+    }
+
+    private AutosaveService.Restored restore() throws Exception {
+        AutosaveService service = new AutosaveService(directory);
+        AutosaveService.Restored restored = service.startInBackground().get();
+        service.close();
+        assertNotNull(restored);
+        return restored;
+    }
+
+    // Coordinates on the checkpoint's fixed-point grid, so they come back exactly
+    private static Stroke stroke(long id) {
+        return new Stroke(id, 0xFF000000 | (int) id, 3, 0, new float[] {id, id + 0.5f, id + 2},
+                new float[] {-id, 4.25f, id * 2});
+    }
+
+    private static ShapeObject shape(long id) {
+        return new ShapeObject(id, ShapeObject.RECTANGLE, id, id * 2, id + 10, id * 2 + 5.0625f, 0xFF336699, 2);
+    }
+
+    // Full-precision encoding in id order, so two boards compare byte for byte
+    private static byte[] contents(Iterable<BoardObject> objects) {
+        TreeMap<Long, BoardObject> sorted = new TreeMap<>();
+        objects.forEach(object -> sorted.put(object.id(), object));
+        return BoardCodec.encode(new ArrayList<>(sorted.values()), false);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.interactivewhiteboard.components;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Saves and loads boards, and feeds the readers truncated and corrupt files,
+ * which must fail with an {@link IOException} and nothing else.
+ */
+class FileManagerTest {
+    private static final BoardMetadata METADATA = new BoardMetadata(0xFF203040, true, -12.5, 40, 1.75);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripKeepsEveryObjectAndTheMetadata() throws IOException {
+        List<BoardObject> objects = board(new Random(1), 2000);
+        for (boolean compress : new boolean[] {true, false}) {
+            Path path = directory.resolve("board-" + compress + ".wbd");
+            FileManager.save(path, METADATA, objects, compress);
+
+            List<BoardObject> streamed = new ArrayList<>();
+            BoardMetadata metadata;
+            try (var in = Files.newInputStream(path)) {
+                metadata = FileManager.read(in, streamed::addAll);
+            }
+            assertEquals(METADATA, metadata);
+            assertArrayEquals(contents(objects), contents(streamed));
+
+            List<BoardObject> mapped = new ArrayList<>();
+            try (MappedBoard board = MappedBoard.open(path)) {
+                assertNotNull(board);
+                assertEquals(METADATA, board.getMetadata());
+                assertEquals(2000, board.getMaxId());
+                for (int chunk : board.claimAll()) {
+                    mapped.addAll(board.decode(chunk));
+                }
+            }
+            assertArrayEquals(contents(objects), contents(mapped));
+        }
+    }
+
+    @Test
+    void everyTruncationFailsCleanly() throws IOException {
+        Path path = directory.resolve("board.wbd");
+        FileManager.save(path, METADATA, board(new Random(2), 100), true);
+        byte[] data = Files.readAllBytes(path);
+        for (int length = 0; length < data.length; length++) {
+            byte[] cut = new byte[length];
+            System.arraycopy(data, 0, cut, 0, length);
+            readOrFail(cut);
+        }
+    }
+
+    @Test
+    void flippedBytesFailCleanly() throws IOException {
+        Path path = directory.resolve("board.wbd");
+        FileManager.save(path, METADATA, board(new Random(3), 700), true);
+        byte[] data = Files.readAllBytes(path);
+        Random random = new Random(3);
+        for (int round = 0; round < 2000; round++) {
+            byte[] corrupt = data.clone();
+            for (int flips = 1 + random.nextInt(4); flips > 0; flips--) {
+                corrupt[random.nextInt(corrupt.length)] ^= (byte) (1 << random.nextInt(8));
+            }
+            readOrFail(corrupt);
+        }
+    }
+
+    @Test
+    void corruptSizesFailWithIOException() {
+        // A chunk whose length is negative
+        assertThrows(IOException.class, () -> read(file(FileManager.CHUNK_OBJECTS, 0, -1, new byte[0])));
+        // Object counts below zero and beyond what the body can hold
+        assertThrows(IOException.class, () -> read(objects(-1, 0, false, new byte[0])));
+        assertThrows(IOException.class, () -> read(objects(Integer.MAX_VALUE, 4, false, new byte[4])));
+        // Raw lengths below zero, beyond what deflate can expand to, or not matching a stored body
+        assertThrows(IOException.class, () -> read(objects(1, -1, true, new byte[8])));
+        assertThrows(IOException.class, () -> read(objects(1, Integer.MAX_VALUE, true, new byte[8])));
+        assertThrows(IOException.class, () -> read(objects(1, 100, false, new byte[8])));
+        // A stroke claiming two billion points in the undo encoding
+        byte[] stroke = BoardCodec.encode(List.of(new Stroke(1, 0, 1, 0, new float[] {0}, new float[] {0})), false);
+        stroke[4 + 1 + 8 + 4 + 4 + 4] = 0x7F;
+        assertThrows(IOException.class, () -> BoardCodec.read(new DataInputStream(
+                new ByteArrayInputStream(stroke, 4, stroke.length - 4))));
+    }
+
+    private void readOrFail(byte[] data) throws IOException {
+        try {
+            read(data);
+        } catch (IOException expected) {
+            // The only way a bad file may fail
+        }
+        Path path = directory.resolve("damaged.wbd");
+        Files.write(path, data);
+        try (MappedBoard board = MappedBoard.open(path)) {
+            if (board != null) {
+                for (int chunk : board.claimAll()) {
+                    board.decode(chunk);
+                }
+            }
+        } catch (IOException expected) {
+            // As above
+        }
+    }
+
+    private static void read(byte[] data) throws IOException {
+        FileManager.read(new ByteArrayInputStream(data), batch -> { });
+    }
+
+    private static byte[] objects(int count, int rawLength, boolean compressed, byte[] body) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeInt(count);
+        out.write(new byte[16]);
+        out.writeInt(rawLength);
+        out.write(body);
+        return file(FileManager.CHUNK_OBJECTS, compressed ? FileManager.FLAG_COMPRESSED : 0, payload.size(),
+                payload.toByteArray());
+    }
+
+    private static byte[] file(int type, int flags, int length, byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FileManager.MAGIC);
+        out.writeShort(FileManager.VERSION);
+        out.writeShort(0);
+        out.writeInt(type);
+        out.writeByte(flags);
+        out.writeInt(length);
+        out.write(payload);
+        return bytes.toByteArray();
+    }
+
+    // Coordinates on the file's fixed-point grid, so they come back exactly
+    private static List<BoardObject> board(Random random, int count) {
+        List<BoardObject> objects = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            float x = coordinate(random), y = coordinate(random);
+            int color = 0xFF000000 | random.nextInt(0x1000000);
+            switch (random.nextInt(4)) {
+                case 0:
+                    objects.add(new ShapeObject(id, ShapeObject.OVAL, x, y, x + random.nextInt(1600) / 16f,
+                            y + random.nextInt(1600) / 16f, color, 3));
+                    break;
+                case 1:
+                    objects.add(new TextObject(id, "label " + id, "SansSerif", 12 + random.nextInt(30), x, y, color));
+                    break;
+                case 2:
+                    objects.add(new ImageObject(id, "images/" + id + ".png", x, y, 64, 48));
+                    break;
+                default:
+                    int points = 1 + random.nextInt(40);
+                    float[] xs = new float[points];
+                    float[] ys = new float[points];
+                    for (int i = 0; i < points; i++) {
+                        xs[i] = x + random.nextInt(800) / 16f;
+                        ys[i] = y + random.nextInt(800) / 16f;
+                    }
+                    objects.add(new Stroke(id, color, 1 + random.nextInt(8), 0, xs, ys));
+                    break;
+            }
+        }
+        return objects;
+    }
+
+    private static float coordinate(Random random) {
+        return (random.nextInt(320_000) - 160_000) / (float) FileManager.COORDINATE_SCALE;
+    }
+
+    // Full-precision encoding in id order, so two boards compare byte for byte
+    private static byte[] contents(List<BoardObject> objects) {
+        List<BoardObject> sorted = new ArrayList<>(objects);
+        sorted.sort(Comparator.comparingLong(BoardObject::id));
+        return BoardCodec.encode(sorted, false);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.interactivewhiteboard.components;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Records a session long enough to get keyframes and seeks around in it the
+ * way {@link ReplayEngine} does, from the nearest keyframe: the board at
+ * every point must be the one a replay from the start arrives at.
+ */
+class SessionRecordingTest {
+    @TempDir
+    Path directory;
+
+    private final BoardModel model = new BoardModel();
+
+    @Test
+    void seekingFromKeyframesMatchesAReplayFromTheStart() throws Exception {
+        Path path = directory.resolve("session." + SessionJournal.EXTENSION);
+        Random random = new Random(1);
+        for (long id = 1; id <= 20; id++) {
+            model.add(stroke(random, id));
+        }
+        long nextId = 21;
+        SessionJournal journal = SessionJournal.create(path, model.objects());
+        for (int step = 0; step < 3000; step++) {
+            if (step == 1500) {
+                // A shared board joined halfway
+                List<BoardObject> joined = new ArrayList<>();
+                for (int i = 0; i < 30; i++) {
+                    joined.add(stroke(random, nextId++));
+                }
+                model.clear();
+                joined.forEach(model::add);
+                journal.reset(joined);
+                continue;
+            }
+            List<BoardObject> removed = new ArrayList<>();
+            if (model.size() > 0 && random.nextInt(3) == 0) {
+                List<BoardObject> objects = new ArrayList<>(model.objects());
+                removed.add(objects.get(random.nextInt(objects.size())));
+            }
+            // Moving an object re-adds it under the same id
+            List<BoardObject> added = List.of(!removed.isEmpty() && random.nextBoolean()
+                    ? stroke(random, removed.get(0).id()) : stroke(random, nextId++));
+            BoardEdit edit = new BoardEdit(removed, added);
+            edit.applyTo(model);
+            journal.record(edit);
+            if (step % 40 == 0) {
+                // Spreads the records over time, so seeks land between them
+                Thread.sleep(2);
+            }
+        }
+        journal.close();
+        byte[] last = contents(model);
+
+        try (SessionRecording recording = SessionRecording.open(path)) {
+            int keyframes = 0;
+            for (int record = 0; record < recording.size(); record++) {
+                keyframes += recording.isKeyframe(record) ? 1 : 0;
+            }
+            assertTrue(keyframes > 3, keyframes + " keyframes");
+
+            BoardModel fromStart = new BoardModel();
+            replay(recording, fromStart, 0, recording.size() - 1);
+            assertArrayEquals(last, contents(fromStart));
+
+            long duration = recording.getDurationMillis();
+            List<Long> times = new ArrayList<>(List.of(0L, duration, duration + 1000));
+            for (int i = 0; i < 150; i++) {
+                times.add((long) random.nextInt((int) duration + 1));
+            }
+            for (int record = 0; record < recording.size(); record++) {
+                if (recording.isKeyframe(record)) {
+                    // Right on a keyframe, and just before it
+                    times.add(recording.timeOf(record));
+                    times.add(recording.timeOf(record) - 1);
+                }
+            }
+            // The replay from the start moves forward through the seeks in order
+            times.sort(null);
+            replay(recording, fromStart, 0, 0);
+            int reached = 0;
+            for (long millis : times) {
+                int target = Math.max(0, recording.recordAt(Math.min(millis, duration)));
+                while (reached < target) {
+                    apply(recording, fromStart, ++reached);
+                }
+                BoardModel seeked = new BoardModel();
+                replay(recording, seeked, recording.keyframeBefore(target), target);
+                assertArrayEquals(contents(fromStart), contents(seeked), "seek to " + millis + " ms, record " + target);
+            }
+        }
+    }
+
+    private static void replay(SessionRecording recording, BoardModel model, int keyframe, int target)
+            throws IOException {
+        model.clear();
+        recording.readKeyframe(keyframe).forEach(model::add);
+        for (int record = keyframe + 1; record <= target; record++) {
+            apply(recording, model, record);
+        }
+    }
+
+    // Keyframes met on the way only restate the board and are passed over, unless it was replaced there
+    private static void apply(SessionRecording recording, BoardModel model, int record) throws IOException {
+        if (recording.isReset(record)) {
+            model.clear();
+            recording.readKeyframe(record).forEach(model::add);
+        } else if (!recording.isKeyframe(record)) {
+            recording.applyEdit(record, model);
+        }
+    }
+
+    // A wandering line on the fixed-point grid, so it comes back exactly from the compact encoding
+    private static Stroke stroke(Random random, long id) {
+        int points = 20 + random.nextInt(200);
+        float[] xs = new float[points];
+        float[] ys = new float[points];
+        int x = random.nextInt(64_000) - 32_000, y = random.nextInt(64_000) - 32_000;
+        for (int i = 0; i < points; i++) {
+            x += random.nextInt(81) - 40;
+            y += random.nextInt(81) - 40;
+            xs[i] = x / 16f;
+            ys[i] = y / 16f;
+        }
+        return new Stroke(id, 0xFF000000 | random.nextInt(0x1000000), 1 + random.nextInt(8), 0, xs, ys);
+    }
+
+    // Full-precision encoding in id order, so two boards compare byte for byte
+    private static byte[] contents(BoardModel model) {
+        List<BoardObject> objects = new ArrayList<>(model.objects());
+        objects.sort(Comparator.comparingLong(BoardObject::id));
+        return BoardCodec.encode(objects, false);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.interactivewhiteboard.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the quadtree against a plain scan of every object: queries and hit
+ * tests must agree with it however the objects were inserted, moved and
+ * removed, and removals must not leave empty cells behind.
+ */
+class SpatialIndexTest {
+    private final SpatialIndex index = new SpatialIndex();
+    private final Map<Long, BoardObject> objects = new TreeMap<>();
+
+    @Test
+    void queriesFindWhatAScanFinds() {
+        Random random = new Random(1);
+        for (long id = 1; id <= 3000; id++) {
+            put(shape(random, id));
+        }
+        // Small windows on cell borders, where the loose bounds matter, and large ones across the root
+        for (int i = 0; i < 500; i++) {
+            double x = random.nextInt(40) * 256 - 5120;
+            double y = random.nextInt(40) * 256 - 5120;
+            double size = i % 10 == 0 ? random.nextInt(8000) : random.nextInt(8);
+            assertQuery(x - size / 2, y - size / 2, x + size / 2, y + size / 2);
+        }
+    }
+
+    @Test
+    void movesAndRemovalsKeepTheIndexExact() {
+        Random random = new Random(2);
+        for (long id = 1; id <= 2000; id++) {
+            put(shape(random, id));
+        }
+        for (int step = 0; step < 4000; step++) {
+            long id = 1 + random.nextInt(2000);
+            if (random.nextBoolean()) {
+                // Inserting under a known id moves the object
+                put(shape(random, id));
+            } else {
+                assertEquals(objects.remove(id) != null, index.remove(id));
+            }
+        }
+        assertEquals(objects.size(), index.size());
+        for (int i = 0; i < 300; i++) {
+            double x = random.nextInt(10_000) - 5000;
+            double y = random.nextInt(10_000) - 5000;
+            assertQuery(x, y, x + random.nextInt(600), y + random.nextInt(600));
+        }
+    }
+
+    @Test
+    void hitTestsFindTheTopmostObjectUnderThePoint() {
+        Random random = new Random(3);
+        for (long id = 1; id <= 2000; id++) {
+            put(shape(random, id));
+        }
+        List<BoardObject> all = new ArrayList<>(objects.values());
+        int hits = 0;
+        for (int i = 0; i < 2000; i++) {
+            double x = random.nextInt(10_000) - 5000;
+            double y = random.nextInt(10_000) - 5000;
+            if (i % 2 == 0) {
+                // Near a corner of some shape, where outlines and overlaps are
+                ShapeObject shape = (ShapeObject) all.get(random.nextInt(all.size()));
+                x = shape.x1() + random.nextInt(9) - 4;
+                y = shape.y1() + random.nextInt(9) - 4;
+            }
+            double tolerance = random.nextInt(6);
+            BoardObject expected = null;
+            for (BoardObject object : objects.values()) {
+                if (object.intersects(x - tolerance, y - tolerance, x + tolerance, y + tolerance)
+                        && object.hits(x, y, tolerance)) {
+                    expected = object;
+                }
+            }
+            assertSame(expected, index.hitTest(x, y, tolerance));
+            hits += expected != null ? 1 : 0;
+        }
+        assertTrue(hits > 500, hits + " hits");
+    }
+
+    @Test
+    void removalsCollapseTheCellsTheyEmpty() {
+        Random random = new Random(4);
+        for (long id = 1; id <= 2000; id++) {
+            put(shape(random, id));
+        }
+        int full = index.nodeCount();
+        // Everything in one corner goes, and the cells there with it
+        for (BoardObject object : new ArrayList<>(objects.values())) {
+            if (object.minX() > 0 && object.minY() > 0) {
+                objects.remove(object.id());
+                assertTrue(index.remove(object.id()));
+            }
+        }
+        assertTrue(index.nodeCount() < full, index.nodeCount() + " of " + full + " nodes left");
+        assertQuery(-10_000, -10_000, 10_000, 10_000);
+        for (long id : new ArrayList<>(objects.keySet())) {
+            index.remove(id);
+        }
+        assertEquals(0, index.nodeCount());
+        assertEquals(0, index.size());
+
+        // And the index still works from empty
+        objects.clear();
+        put(shape(random, 1));
+        assertQuery(-10_000, -10_000, 10_000, 10_000);
+    }
+
+    private void put(BoardObject object) {
+        objects.put(object.id(), object);
+        index.insert(object);
+    }
+
+    private void assertQuery(double x0, double y0, double x1, double y1) {
+        List<BoardObject> expected = new ArrayList<>();
+        for (BoardObject object : objects.values()) {
+            if (object.intersects(x0, y0, x1, y1)) {
+                expected.add(object);
+            }
+        }
+        List<BoardObject> found = index.query(x0, y0, x1, y1);
+        assertEquals(expected, found);
+    }
+
+    // Mostly small shapes, a few spanning many cells, over an area that makes the root grow both ways
+    private static ShapeObject shape(Random random, long id) {
+        float x = random.nextInt(10_000) - 5000;
+        float y = random.nextInt(10_000) - 5000;
+        int size = random.nextInt(20) == 0 ? 500 + random.nextInt(3000) : 1 + random.nextInt(80);
+        byte kind = (byte) random.nextInt(3);
+        return new ShapeObject(id, kind, x, y, x + random.nextInt(size), y + random.nextInt(size), 0xFF000000,
+                1 + random.nextInt(6));
+    }
+}
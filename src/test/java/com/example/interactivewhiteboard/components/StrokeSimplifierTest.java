@@ -0,0 +1,107 @@
+package com.example.interactivewhiteboard.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Feeds the simplifier strokes the way the pointer delivers them: every raw
+ * sample must end up within the tolerance of the stored stroke, whose first
+ * and last points are the first and last samples.
+ */
+class StrokeSimplifierTest {
+    // Slack for the float coordinates the points are kept in
+    private static final double EPSILON = 1e-3;
+
+    private final StrokeSimplifier simplifier = new StrokeSimplifier();
+    private final PointBuffer output = new PointBuffer();
+
+    @Test
+    void curvesStayWithinTheToleranceAndKeepTheirEnds() {
+        for (double tolerance : new double[] {0.25, 1, 4}) {
+            // A spiral, tight at the centre and loose further out
+            int samples = 2000;
+            double[] xs = new double[samples];
+            double[] ys = new double[samples];
+            for (int i = 0; i < samples; i++) {
+                double angle = i * 0.02;
+                double radius = 5 + i * 0.2;
+                xs[i] = 300 + radius * Math.cos(angle);
+                ys[i] = -150 + radius * Math.sin(angle);
+            }
+            draw(xs, ys, tolerance);
+            assertTrue(output.size() < samples / 4, output.size() + " points kept");
+        }
+    }
+
+    @Test
+    void jitteryStrokesStayWithinTheToleranceAndKeepTheirEnds() {
+        Random random = new Random(1);
+        for (int stroke = 0; stroke < 200; stroke++) {
+            int samples = 2 + random.nextInt(600);
+            double[] xs = new double[samples];
+            double[] ys = new double[samples];
+            double x = random.nextInt(2000) - 1000, y = random.nextInt(2000) - 1000;
+            double heading = random.nextDouble() * Math.PI * 2;
+            for (int i = 0; i < samples; i++) {
+                // A wandering hand with the odd sharp turn and the pen resting in place
+                heading += random.nextInt(30) == 0 ? random.nextDouble() * 3 - 1.5 : random.nextGaussian() * 0.05;
+                double step = random.nextInt(20) == 0 ? 0 : random.nextDouble() * 3;
+                x += step * Math.cos(heading) + random.nextGaussian() * 0.3;
+                y += step * Math.sin(heading) + random.nextGaussian() * 0.3;
+                xs[i] = x;
+                ys[i] = y;
+            }
+            draw(xs, ys, 0.5 + random.nextInt(4));
+        }
+    }
+
+    @Test
+    void longStraightRunsStayWithinTheToleranceAndKeepTheirEnds() {
+        // Longer than the window, so the loose end gets fixed mid-line, and then doubling back
+        int samples = 1500;
+        double[] xs = new double[samples];
+        double[] ys = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            xs[i] = i < 1000 ? i * 0.5 : 500 - (i - 1000) * 0.5;
+            ys[i] = i < 1000 ? i * 0.25 : 250 + (i - 1000) * 0.01;
+        }
+        draw(xs, ys, 1);
+        assertTrue(output.size() < 20, output.size() + " points kept");
+    }
+
+    private void draw(double[] xs, double[] ys, double tolerance) {
+        int last = xs.length - 1;
+        simplifier.begin(output, xs[0], ys[0], 0.5, 0, tolerance);
+        for (int i = 1; i <= last; i++) {
+            simplifier.add(xs[i], ys[i], 0.5, i * 8_000_000L);
+        }
+        simplifier.finish();
+
+        assertEquals((float) xs[0], output.x(0));
+        assertEquals((float) ys[0], output.y(0));
+        assertEquals((float) xs[last], output.x(output.size() - 1));
+        assertEquals((float) ys[last], output.y(output.size() - 1));
+        for (int i = 0; i <= last; i++) {
+            double distance = Math.sqrt(distanceSq(xs[i], ys[i]));
+            assertTrue(distance <= tolerance + EPSILON,
+                    "sample " + i + " is " + distance + " from the stroke, tolerance " + tolerance);
+        }
+    }
+
+    // Squared distance from a raw sample to the nearest segment of the kept stroke
+    private double distanceSq(double x, double y) {
+        if (output.size() == 1) {
+            return Geometry.segmentDistanceSq(x, y, output.x(0), output.y(0), output.x(0), output.y(0));
+        }
+        double nearest = Double.MAX_VALUE;
+        for (int i = 1; i < output.size(); i++) {
+            nearest = Math.min(nearest, Geometry.segmentDistanceSq(x, y, output.x(i - 1), output.y(i - 1),
+                    output.x(i), output.y(i)));
+        }
+        return nearest;
+    }
+}
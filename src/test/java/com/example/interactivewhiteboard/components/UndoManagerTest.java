@@ -0,0 +1,119 @@
+package com.example.interactivewhiteboard.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Walks the undo log back and forth: every step must restore the board it
+ * left, past the byte budget only the newest edits stay, and a removal
+ * large enough to be kept deflated comes back exactly.
+ */
+class UndoManagerTest {
+    private final BoardModel model = new BoardModel();
+
+    @Test
+    void undoAndRedoWalkThroughEveryEdit() {
+        UndoManager undo = new UndoManager(model);
+        List<byte[]> boards = new ArrayList<>();
+        boards.add(contents());
+        for (long id = 1; id <= 20; id++) {
+            List<BoardObject> removed = id % 4 == 0 ? List.of(model.get(id - 2)) : List.of();
+            apply(undo, new BoardEdit(removed, List.of(stroke(id, 10))));
+            boards.add(contents());
+        }
+        for (int i = boards.size() - 2; i >= 0; i--) {
+            assertNotNull(undo.undo());
+            assertArrayEquals(boards.get(i), contents());
+        }
+        assertNull(undo.undo());
+        for (int i = 1; i < boards.size(); i++) {
+            assertNotNull(undo.redo());
+            assertArrayEquals(boards.get(i), contents());
+        }
+        assertNull(undo.redo());
+    }
+
+    @Test
+    void onlyTheNewestEditsStayWithinTheByteBudget() {
+        for (long id = 1; id <= 50; id++) {
+            model.add(stroke(id, 100));
+        }
+        // Each removal keeps about 900 bytes off the board
+        UndoManager undo = new UndoManager(model, 1000, 10_000);
+        for (long id = 1; id <= 50; id++) {
+            apply(undo, new BoardEdit(List.of(model.get(id)), List.of()));
+        }
+        int undone = 0;
+        while (undo.undo() != null) {
+            undone++;
+        }
+        assertTrue(undone > 1 && undone < 50, undone + " edits undone");
+        for (long id = 1; id <= 50; id++) {
+            assertEquals(id > 50 - undone, model.get(id) != null, "stroke " + id);
+        }
+        for (int i = 0; i < undone; i++) {
+            assertNotNull(undo.redo());
+        }
+        assertNull(undo.redo());
+        assertEquals(0, model.size());
+    }
+
+    @Test
+    void largeRemovalsAreKeptDeflatedAndComeBackIntact() {
+        long estimate = 0;
+        for (long id = 1; id <= 2000; id++) {
+            model.add(stroke(id, 50));
+            estimate += BoardCodec.estimateSize(model.get(id));
+        }
+        // Kept as objects, the removal alone would spend the budget and push out the edit before it
+        UndoManager undo = new UndoManager(model, 1000, estimate / 4);
+        apply(undo, new BoardEdit(List.of(), List.of(stroke(5000, 2))));
+        byte[] full = contents();
+        apply(undo, new BoardEdit(new ArrayList<>(model.objects()).subList(0, 2000), List.of()));
+        assertEquals(1, model.size());
+
+        for (int round = 0; round < 2; round++) {
+            assertNotNull(undo.undo());
+            assertArrayEquals(full, contents());
+            assertNotNull(undo.redo());
+            assertEquals(1, model.size());
+        }
+        // The edit before the removal is still there to undo
+        assertNotNull(undo.undo());
+        assertNotNull(undo.undo());
+        assertNull(model.get(5000));
+        assertEquals(2000, model.size());
+    }
+
+    private void apply(UndoManager undo, BoardEdit edit) {
+        edit.applyTo(model);
+        undo.record(edit);
+    }
+
+    // A straight run of points on the fixed-point grid, which deflates well and encodes exactly
+    private static Stroke stroke(long id, int points) {
+        float[] xs = new float[points];
+        float[] ys = new float[points];
+        for (int i = 0; i < points; i++) {
+            xs[i] = id + i;
+            ys[i] = id * 2 + i / 2f;
+        }
+        return new Stroke(id, 0xFF000000 | (int) id, 2, 0, xs, ys);
+    }
+
+    // Full-precision encoding in id order, so two boards compare byte for byte
+    private byte[] contents() {
+        List<BoardObject> objects = new ArrayList<>(model.objects());
+        objects.sort(Comparator.comparingLong(BoardObject::id));
+        return BoardCodec.encode(objects, false);
+    }
+}